@@ -17,10 +17,16 @@
 
 package org.apache.hop.projects.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hop.projects.environment.LifecycleEnvironment;
 import org.apache.hop.projects.lifecycle.ProjectLifecycle;
@@ -31,6 +37,7 @@ public class ProjectsConfig {
 
   public static final String HOP_CONFIG_PROJECTS_CONFIG_KEY = "projectsConfig";
   public static final String DEFAULT_PROJECT_CONFIG_FILENAME = "project-config.json";
+  public static final int DEFAULT_SEARCH_CACHE_SIZE = 1000;
 
   private boolean enabled;
 
@@ -42,17 +49,42 @@ public class ProjectsConfig {
   private String standardLinkedProject;
   private String standardProjectsFolder;
   private String defaultProjectConfigFile;
+  private int fileScanParallelism;
+  private int searchParallelism;
+  private int searchCacheSize;
+  private int importParallelism;
 
   private List<ProjectConfig> projectConfigurations;
   private List<LifecycleEnvironment> lifecycleEnvironments;
   private List<ProjectLifecycle> projectLifecycles;
 
+  // Lookup indexes on top of the lists above.
+  // They are rebuilt when a list is replaced and maintained by the add/remove methods.
+  //
+  private transient Map<String, ProjectConfig> projectConfigsByName;
+  private transient Map<ProjectConfig, String> indexedProjectNames;
+  private transient Map<String, LifecycleEnvironment> environmentsByName;
+  private transient Map<String, List<LifecycleEnvironment>> environmentsByProject;
+  private transient Map<LifecycleEnvironment, String> indexedEnvironmentNames;
+  private transient Map<LifecycleEnvironment, String> indexedEnvironmentProjects;
+  private transient List<String> sortedProjectNames;
+  private transient List<String> sortedEnvironmentNames;
+  private transient Map<String, List<String>> sortedEnvironmentNamesByProject;
+
+  // Set on the immutable snapshots handed out to concurrent readers
+  //
+  private transient boolean readOnly;
+  private transient long version;
+
   public ProjectsConfig() {
     enabled = true;
     defaultProjectConfigFile = DEFAULT_PROJECT_CONFIG_FILENAME;
+    searchCacheSize = DEFAULT_SEARCH_CACHE_SIZE;
     projectConfigurations = new ArrayList<>();
     lifecycleEnvironments = new ArrayList<>();
     projectLifecycles = new ArrayList<>();
+    reindexProjectConfigs();
+    reindexEnvironments();
   }
 
   public ProjectsConfig(ProjectsConfig config) {
@@ -69,18 +101,139 @@ public class ProjectsConfig {
     standardProjectsFolder = config.standardProjectsFolder;
     defaultProjectConfigFile = config.defaultProjectConfigFile;
     environmentsForActiveProject = config.environmentsForActiveProject;
+    fileScanParallelism = config.fileScanParallelism;
+    searchParallelism = config.searchParallelism;
+    searchCacheSize = config.searchCacheSize;
+    importParallelism = config.importParallelism;
+    reindexProjectConfigs();
+    reindexEnvironments();
   }
 
-  public ProjectConfig findProjectConfig(String projectName) {
-    if (StringUtils.isEmpty(projectName)) {
-      return null;
+  /**
+   * Create a read-only copy of this configuration. The project, environment and lifecycle objects
+   * are copied as read-only objects as well so that later changes to this configuration don't leak
+   * into the snapshot. Any attempt to modify the snapshot or the objects it holds throws an {@link
+   * UnsupportedOperationException}.
+   *
+   * @param version The version to give to the snapshot
+   * @return A new immutable configuration
+   */
+  public ProjectsConfig createSnapshot(long version) {
+    ProjectsConfig snapshot = new ProjectsConfig(this);
+    List<ProjectConfig> projectConfigs = new ArrayList<>(projectConfigurations.size());
+    for (ProjectConfig projectConfig : projectConfigurations) {
+      projectConfigs.add(projectConfig.createReadOnlyCopy());
     }
+    List<LifecycleEnvironment> environments = new ArrayList<>(lifecycleEnvironments.size());
+    for (LifecycleEnvironment environment : lifecycleEnvironments) {
+      environments.add(environment.createReadOnlyCopy());
+    }
+    List<ProjectLifecycle> lifecycles = new ArrayList<>(projectLifecycles.size());
+    for (ProjectLifecycle lifecycle : projectLifecycles) {
+      lifecycles.add(lifecycle.createReadOnlyCopy());
+    }
+    snapshot.projectConfigurations = Collections.unmodifiableList(projectConfigs);
+    snapshot.lifecycleEnvironments = Collections.unmodifiableList(environments);
+    snapshot.projectLifecycles = Collections.unmodifiableList(lifecycles);
+    snapshot.reindexProjectConfigs();
+    snapshot.reindexEnvironments();
+
+    // Compute the sorted views up front, nothing changes after publication
+    //
+    snapshot.listProjectConfigNames();
+    snapshot.listEnvironmentNames();
+
+    snapshot.version = version;
+    snapshot.readOnly = true;
+    return snapshot;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException(
+          "This projects configuration is a read-only snapshot (version " + version + ")");
+    }
+  }
+
+  private static String projectKey(String projectName) {
+    return projectName == null ? null : projectName.toLowerCase(Locale.ROOT);
+  }
+
+  private void reindexProjectConfigs() {
+    projectConfigsByName = new HashMap<>();
+    indexedProjectNames = new IdentityHashMap<>();
     for (ProjectConfig projectConfig : projectConfigurations) {
-      if (projectConfig.getProjectName().equalsIgnoreCase(projectName)) {
-        return projectConfig;
+      indexProjectConfig(projectConfig);
+    }
+    sortedProjectNames = null;
+  }
+
+  private void indexProjectConfig(ProjectConfig projectConfig) {
+    String key = projectKey(projectConfig.getProjectName());
+    // Keep the first one in the list, like a linear scan would
+    //
+    projectConfigsByName.putIfAbsent(key, projectConfig);
+    indexedProjectNames.put(projectConfig, key);
+  }
+
+  private void unindexProjectConfig(ProjectConfig projectConfig) {
+    String key = indexedProjectNames.remove(projectConfig);
+    if (projectConfigsByName.get(key) == projectConfig) {
+      projectConfigsByName.remove(key);
+    }
+  }
+
+  private void reindexEnvironments() {
+    environmentsByName = new HashMap<>();
+    environmentsByProject = new HashMap<>();
+    indexedEnvironmentNames = new IdentityHashMap<>();
+    indexedEnvironmentProjects = new IdentityHashMap<>();
+    for (LifecycleEnvironment environment : lifecycleEnvironments) {
+      indexEnvironment(environment);
+    }
+    sortedEnvironmentNames = null;
+    sortedEnvironmentNamesByProject = new ConcurrentHashMap<>();
+  }
+
+  private void indexEnvironment(LifecycleEnvironment environment) {
+    environmentsByName.putIfAbsent(environment.getName(), environment);
+    environmentsByProject
+        .computeIfAbsent(environment.getProjectName(), k -> new ArrayList<>())
+        .add(environment);
+    indexedEnvironmentNames.put(environment, environment.getName());
+    indexedEnvironmentProjects.put(environment, environment.getProjectName());
+  }
+
+  private void unindexEnvironment(LifecycleEnvironment environment) {
+    if (!indexedEnvironmentNames.containsKey(environment)) {
+      return;
+    }
+    // Use the names the environment had when it was indexed, it might have been modified since.
+    //
+    String name = indexedEnvironmentNames.remove(environment);
+    String projectName = indexedEnvironmentProjects.remove(environment);
+    if (environmentsByName.get(name) == environment) {
+      environmentsByName.remove(name);
+    }
+    List<LifecycleEnvironment> projectEnvironments = environmentsByProject.get(projectName);
+    if (projectEnvironments != null) {
+      projectEnvironments.removeIf(e -> e == environment);
+      if (projectEnvironments.isEmpty()) {
+        environmentsByProject.remove(projectName);
       }
     }
-    return null;
+  }
+
+  private void environmentsChanged() {
+    sortedEnvironmentNames = null;
+    sortedEnvironmentNamesByProject.clear();
+  }
+
+  public ProjectConfig findProjectConfig(String projectName) {
+    if (StringUtils.isEmpty(projectName)) {
+      return null;
+    }
+    return projectConfigsByName.get(projectKey(projectName));
   }
 
   /**
@@ -90,26 +243,35 @@ public class ProjectsConfig {
    * @return The environments for the project
    */
   public List<LifecycleEnvironment> findEnvironmentsOfProject(String projectName) {
-    List<LifecycleEnvironment> list = new ArrayList<>();
-    lifecycleEnvironments.stream()
-        .forEach(
-            e -> {
-              if (e.getProjectName().equals(projectName)) {
-                list.add(e);
-              }
-            });
-    return list;
+    List<LifecycleEnvironment> environments = environmentsByProject.get(projectName);
+    if (environments == null) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(environments);
   }
 
   public void addProjectConfig(ProjectConfig projectConfig) {
+    checkWritable();
+    if (indexedProjectNames.containsKey(projectConfig)) {
+      // This instance is already part of the configuration but its name might have been changed.
+      //
+      unindexProjectConfig(projectConfig);
+      indexProjectConfig(projectConfig);
+      sortedProjectNames = null;
+      return;
+    }
     ProjectConfig existing = findProjectConfig(projectConfig.getProjectName());
     if (existing == null) {
       projectConfigurations.add(projectConfig);
+      indexProjectConfig(projectConfig);
     } else {
+      unindexProjectConfig(existing);
       existing.setProjectName(projectConfig.getProjectName());
       existing.setProjectHome(projectConfig.getProjectHome());
       existing.setConfigFilename(projectConfig.getConfigFilename());
+      indexProjectConfig(existing);
     }
+    sortedProjectNames = null;
   }
 
   public int indexOfProjectConfig(String projectName) {
@@ -118,69 +280,103 @@ public class ProjectsConfig {
   }
 
   public ProjectConfig removeProjectConfig(String projectName) {
+    checkWritable();
     int index = indexOfProjectConfig(projectName);
     if (index >= 0) {
-      return projectConfigurations.remove(index);
+      ProjectConfig projectConfig = projectConfigurations.remove(index);
+      unindexProjectConfig(projectConfig);
+      // Another project with the same name (ignoring case) can now be found
+      //
+      ProjectConfig other = findFirstProjectConfig(projectConfig.getProjectName());
+      if (other != null) {
+        indexProjectConfig(other);
+      }
+      sortedProjectNames = null;
+      return projectConfig;
     } else {
       return null;
     }
   }
 
+  private ProjectConfig findFirstProjectConfig(String projectName) {
+    for (ProjectConfig projectConfig : projectConfigurations) {
+      if (projectConfig.getProjectName().equalsIgnoreCase(projectName)) {
+        return projectConfig;
+      }
+    }
+    return null;
+  }
+
   public List<String> listProjectConfigNames() {
-    List<String> names = new ArrayList<>();
-    projectConfigurations.stream().forEach(config -> names.add(config.getProjectName()));
-    Collections.sort(names);
-    return names;
+    if (sortedProjectNames == null) {
+      List<String> names = new ArrayList<>(projectConfigurations.size());
+      projectConfigurations.stream().forEach(config -> names.add(config.getProjectName()));
+      Collections.sort(names);
+      sortedProjectNames = Collections.unmodifiableList(names);
+    }
+    return new ArrayList<>(sortedProjectNames);
   }
 
   public LifecycleEnvironment findEnvironment(String environmentName) {
     if (StringUtils.isEmpty(environmentName)) {
       return null;
     }
-    for (LifecycleEnvironment environment : lifecycleEnvironments) {
-      if (environment.getName().equals(environmentName)) {
-        return environment;
-      }
-    }
-    return null;
+    return environmentsByName.get(environmentName);
   }
 
   public void addEnvironment(LifecycleEnvironment environment) {
-    int index = lifecycleEnvironments.indexOf(environment);
-    if (index < 0) {
+    checkWritable();
+    LifecycleEnvironment existing = environmentsByName.get(environment.getName());
+    if (existing == null) {
       lifecycleEnvironments.add(environment);
-    } else {
-      lifecycleEnvironments.set(index, environment);
+    } else if (existing != environment) {
+      lifecycleEnvironments.set(lifecycleEnvironments.indexOf(existing), environment);
+      unindexEnvironment(existing);
     }
+    // The environment might have been modified in place: index it again
+    //
+    unindexEnvironment(environment);
+    indexEnvironment(environment);
+    environmentsChanged();
   }
 
   public LifecycleEnvironment removeEnvironment(String environmentName) {
+    checkWritable();
     LifecycleEnvironment environment = findEnvironment(environmentName);
     if (environment != null) {
       lifecycleEnvironments.remove(environment);
+      unindexEnvironment(environment);
+      environmentsChanged();
     }
     return environment;
   }
 
   public List<String> listEnvironmentNames() {
-    List<String> names = new ArrayList<>();
-    lifecycleEnvironments.stream().forEach(env -> names.add(env.getName()));
-    Collections.sort(names);
-    return names;
+    if (sortedEnvironmentNames == null) {
+      List<String> names = new ArrayList<>(lifecycleEnvironments.size());
+      lifecycleEnvironments.stream().forEach(env -> names.add(env.getName()));
+      Collections.sort(names);
+      sortedEnvironmentNames = Collections.unmodifiableList(names);
+    }
+    return new ArrayList<>(sortedEnvironmentNames);
   }
 
   public List<String> listEnvironmentNamesForProject(String projectName) {
-    List<String> names = new ArrayList<>();
-    lifecycleEnvironments.stream()
-        .forEach(
-            env -> {
-              if (env.getProjectName().equals(projectName)) {
+    if (projectName == null) {
+      return new ArrayList<>();
+    }
+    List<String> sortedNames =
+        sortedEnvironmentNamesByProject.computeIfAbsent(
+            projectName,
+            k -> {
+              List<String> names = new ArrayList<>();
+              for (LifecycleEnvironment env : environmentsByProject.getOrDefault(k, List.of())) {
                 names.add(env.getName());
               }
+              Collections.sort(names);
+              return Collections.unmodifiableList(names);
             });
-
-    Collections.sort(names);
-    return names;
+    return new ArrayList<>(sortedNames);
   }
 
   public int indexOfEnvironment(String environmentName) {
@@ -202,6 +398,7 @@ public class ProjectsConfig {
   }
 
   public void addLifecycle(ProjectLifecycle lifecycle) {
+    checkWritable();
     int index = projectLifecycles.indexOf(lifecycle);
     if (index < 0) {
       projectLifecycles.add(lifecycle);
@@ -211,6 +408,7 @@ public class ProjectsConfig {
   }
 
   public ProjectLifecycle removeLifecycle(String lifecycleName) {
+    checkWritable();
     ProjectLifecycle lifecycle = findLifecycle(lifecycleName);
     if (lifecycle != null) {
       lifecycleEnvironments.remove(lifecycle);
@@ -246,6 +444,7 @@ public class ProjectsConfig {
    * @param enabled The enabled to set
    */
   public void setEnabled(boolean enabled) {
+    checkWritable();
     this.enabled = enabled;
   }
 
@@ -262,7 +461,9 @@ public class ProjectsConfig {
    * @param projectConfigurations The projectConfigurations to set
    */
   public void setProjectConfigurations(List<ProjectConfig> projectConfigurations) {
+    checkWritable();
     this.projectConfigurations = projectConfigurations;
+    reindexProjectConfigs();
   }
 
   /**
@@ -278,7 +479,9 @@ public class ProjectsConfig {
    * @param lifecycleEnvironments The lifecycleEnvironments to set
    */
   public void setLifecycleEnvironments(List<LifecycleEnvironment> lifecycleEnvironments) {
+    checkWritable();
     this.lifecycleEnvironments = lifecycleEnvironments;
+    reindexEnvironments();
   }
 
   /**
@@ -294,6 +497,7 @@ public class ProjectsConfig {
    * @param defaultProject The defaultProject to set
    */
   public void setDefaultProject(String defaultProject) {
+    checkWritable();
     this.defaultProject = defaultProject;
   }
 
@@ -310,6 +514,7 @@ public class ProjectsConfig {
    * @param projectMandatory The projectMandatory to set
    */
   public void setProjectMandatory(boolean projectMandatory) {
+    checkWritable();
     this.projectMandatory = projectMandatory;
   }
 
@@ -326,6 +531,7 @@ public class ProjectsConfig {
    * @param environmentMandatory The environmentMandatory to set
    */
   public void setEnvironmentMandatory(boolean environmentMandatory) {
+    checkWritable();
     this.environmentMandatory = environmentMandatory;
   }
 
@@ -342,6 +548,7 @@ public class ProjectsConfig {
    * @param defaultEnvironment The defaultEnvironment to set
    */
   public void setDefaultEnvironment(String defaultEnvironment) {
+    checkWritable();
     this.defaultEnvironment = defaultEnvironment;
   }
 
@@ -358,6 +565,7 @@ public class ProjectsConfig {
    * @param standardLinkedProject The standardLinkedProject to set
    */
   public void setStandardLinkedProject(String standardLinkedProject) {
+    checkWritable();
     this.standardLinkedProject = standardLinkedProject;
   }
 
@@ -374,6 +582,7 @@ public class ProjectsConfig {
    * @param projectLifecycles The projectLifecycles to set
    */
   public void setProjectLifecycles(List<ProjectLifecycle> projectLifecycles) {
+    checkWritable();
     this.projectLifecycles = projectLifecycles;
   }
 
@@ -390,6 +599,7 @@ public class ProjectsConfig {
    * @param standardProjectsFolder The standardProjectsFolder to set
    */
   public void setStandardProjectsFolder(String standardProjectsFolder) {
+    checkWritable();
     this.standardProjectsFolder = standardProjectsFolder;
   }
 
@@ -406,6 +616,7 @@ public class ProjectsConfig {
    * @param defaultProjectConfigFile The defaultProjectConfigFile to set
    */
   public void setDefaultProjectConfigFile(String defaultProjectConfigFile) {
+    checkWritable();
     this.defaultProjectConfigFile = defaultProjectConfigFile;
   }
 
@@ -422,6 +633,98 @@ public class ProjectsConfig {
    * @param environmentsForActiveProject The environmentMandatory to set
    */
   public void setEnvironmentsForActiveProject(boolean environmentsForActiveProject) {
+    checkWritable();
     this.environmentsForActiveProject = environmentsForActiveProject;
   }
+
+  /**
+   * Gets the number of threads used to scan project files, 0 means the number of processors
+   *
+   * @return value of fileScanParallelism
+   */
+  public int getFileScanParallelism() {
+    return fileScanParallelism;
+  }
+
+  /**
+   * @param fileScanParallelism The fileScanParallelism to set
+   */
+  public void setFileScanParallelism(int fileScanParallelism) {
+    checkWritable();
+    this.fileScanParallelism = fileScanParallelism;
+  }
+
+  /**
+   * Gets the number of threads which load searchables ahead of a project search, 0 or 1 to load
+   * them one by one while searching
+   *
+   * @return value of searchParallelism
+   */
+  public int getSearchParallelism() {
+    return searchParallelism;
+  }
+
+  /**
+   * @param searchParallelism The searchParallelism to set
+   */
+  public void setSearchParallelism(int searchParallelism) {
+    checkWritable();
+    this.searchParallelism = searchParallelism;
+  }
+
+  /**
+   * Gets the maximum number of files of which the loaded searchables are kept between searches, 0
+   * to disable caching
+   *
+   * @return value of searchCacheSize
+   */
+  public int getSearchCacheSize() {
+    return searchCacheSize;
+  }
+
+  /**
+   * @param searchCacheSize The searchCacheSize to set
+   */
+  public void setSearchCacheSize(int searchCacheSize) {
+    checkWritable();
+    this.searchCacheSize = searchCacheSize;
+  }
+
+  /**
+   * Gets the number of threads which convert and copy files when importing Kettle files into a
+   * project, 0 means the number of processors
+   *
+   * @return value of importParallelism
+   */
+  public int getImportParallelism() {
+    return importParallelism;
+  }
+
+  /**
+   * @param importParallelism The importParallelism to set
+   */
+  public void setImportParallelism(int importParallelism) {
+    checkWritable();
+    this.importParallelism = importParallelism;
+  }
+
+  /**
+   * Gets readOnly
+   *
+   * @return true if this is an immutable snapshot of the configuration
+   */
+  @JsonIgnore
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Gets version
+   *
+   * @return The version of the snapshot or 0 if this is not a snapshot
+   */
+  @JsonIgnore
+  public long getVersion() {
+    return version;
+  }
 }
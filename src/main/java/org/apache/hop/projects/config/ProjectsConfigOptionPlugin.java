@@ -167,6 +167,30 @@ public class ProjectsConfigOptionPlugin
       description = "Restrict environment list to active project")
   private Boolean environmentsForActiveProject;
 
+  @CommandLine.Option(
+      names = {"-fsp", "--file-scan-parallelism"},
+      description =
+          "The number of threads to use when scanning project files, 0 to use the number of processors")
+  private Integer fileScanParallelism;
+
+  @CommandLine.Option(
+      names = {"-sep", "--search-parallelism"},
+      description =
+          "The number of threads to load project pipelines, workflows and metadata with ahead of a search, 0 to load them one by one")
+  private Integer searchParallelism;
+
+  @CommandLine.Option(
+      names = {"-scs", "--search-cache-size"},
+      description =
+          "The maximum number of project files of which the loaded searchables are kept between searches, 0 to disable the cache")
+  private Integer searchCacheSize;
+
+  @CommandLine.Option(
+      names = {"-imp", "--import-parallelism"},
+      description =
+          "The number of threads to convert and copy files with when importing Kettle files into a project, 0 to use the number of processors")
+  private Integer importParallelism;
+
   /**
    * Gets instance
    *
@@ -175,7 +199,7 @@ public class ProjectsConfigOptionPlugin
   public static ProjectsConfigOptionPlugin getInstance() {
     ProjectsConfigOptionPlugin instance = new ProjectsConfigOptionPlugin();
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     instance.projectsEnabled = config.isEnabled();
     instance.defaultProject = config.getDefaultProject();
     instance.defaultEnvironment = config.getDefaultEnvironment();
@@ -185,6 +209,10 @@ public class ProjectsConfigOptionPlugin
     instance.standardProjectsFolder = config.getStandardProjectsFolder();
     instance.defaultProjectConfigFile = config.getDefaultProjectConfigFile();
     instance.environmentsForActiveProject = config.isEnvironmentsForActiveProject();
+    instance.fileScanParallelism = config.getFileScanParallelism();
+    instance.searchParallelism = config.getSearchParallelism();
+    instance.searchCacheSize = config.getSearchCacheSize();
+    instance.importParallelism = config.getImportParallelism();
     return instance;
   }
 
@@ -265,6 +293,32 @@ public class ProjectsConfigOptionPlugin
         }
         changed = true;
       }
+      if (fileScanParallelism != null) {
+        config.setFileScanParallelism(Math.max(0, fileScanParallelism));
+        log.logBasic(
+            "The number of threads to scan project files with is set to "
+                + config.getFileScanParallelism());
+        changed = true;
+      }
+      if (searchParallelism != null) {
+        config.setSearchParallelism(Math.max(0, searchParallelism));
+        log.logBasic(
+            "The number of threads to load searchables with is set to "
+                + config.getSearchParallelism());
+        changed = true;
+      }
+      if (searchCacheSize != null) {
+        config.setSearchCacheSize(Math.max(0, searchCacheSize));
+        log.logBasic("The search cache size is set to " + config.getSearchCacheSize() + " files");
+        changed = true;
+      }
+      if (importParallelism != null) {
+        config.setImportParallelism(Math.max(0, importParallelism));
+        log.logBasic(
+            "The number of threads to import Kettle files with is set to "
+                + config.getImportParallelism());
+        changed = true;
+      }
       // Save to file if anything changed
       //
       if (changed) {
@@ -527,6 +581,70 @@ public class ProjectsConfigOptionPlugin
     this.environmentsForActiveProject = environmentsForActiveProject;
   }
 
+  /**
+   * Gets fileScanParallelism
+   *
+   * @return value of fileScanParallelism
+   */
+  public Integer getFileScanParallelism() {
+    return fileScanParallelism;
+  }
+
+  /**
+   * @param fileScanParallelism The fileScanParallelism to set
+   */
+  public void setFileScanParallelism(Integer fileScanParallelism) {
+    this.fileScanParallelism = fileScanParallelism;
+  }
+
+  /**
+   * Gets searchParallelism
+   *
+   * @return value of searchParallelism
+   */
+  public Integer getSearchParallelism() {
+    return searchParallelism;
+  }
+
+  /**
+   * @param searchParallelism The searchParallelism to set
+   */
+  public void setSearchParallelism(Integer searchParallelism) {
+    this.searchParallelism = searchParallelism;
+  }
+
+  /**
+   * Gets searchCacheSize
+   *
+   * @return value of searchCacheSize
+   */
+  public Integer getSearchCacheSize() {
+    return searchCacheSize;
+  }
+
+  /**
+   * @param searchCacheSize The searchCacheSize to set
+   */
+  public void setSearchCacheSize(Integer searchCacheSize) {
+    this.searchCacheSize = searchCacheSize;
+  }
+
+  /**
+   * Gets importParallelism
+   *
+   * @return value of importParallelism
+   */
+  public Integer getImportParallelism() {
+    return importParallelism;
+  }
+
+  /**
+   * @param importParallelism The importParallelism to set
+   */
+  public void setImportParallelism(Integer importParallelism) {
+    this.importParallelism = importParallelism;
+  }
+
   /**
    * Used to generate the list that is shown in the mySqlDriverClass GuiWidget
    *
@@ -535,7 +653,7 @@ public class ProjectsConfigOptionPlugin
    * @return The list of driver type names shown in the GUI
    */
   public List<String> getProjectsList(ILogChannel log, IHopMetadataProvider metadataProvider) {
-    ProjectsConfig prjsConfig = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig prjsConfig = ProjectsConfigSingleton.getSnapshot();
     List<String> prjs = prjsConfig.listProjectConfigNames();
 
     List<String> prjsList = new ArrayList<>();
@@ -18,8 +18,9 @@
 package org.apache.hop.projects.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.hop.core.config.HopConfig;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.json.HopJson;
@@ -27,61 +28,136 @@ import org.apache.hop.core.logging.LogChannel;
 
 public class ProjectsConfigSingleton {
 
-  private static ProjectsConfigSingleton configSingleton;
+  private static volatile ProjectsConfigSingleton configSingleton;
 
-  private ProjectsConfig projectsConfig;
+  private final ProjectsConfig projectsConfig;
+
+  /** The last published immutable version of the configuration, for concurrent readers */
+  private final AtomicReference<ProjectsConfig> snapshot;
+
+  private final AtomicLong snapshotVersion;
 
   private ProjectsConfigSingleton() {
     // Load from the HopConfig store
     //
-    Object configObject =
-        HopConfig.getInstance().getConfigMap().get(ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY);
-    if (configObject == null) {
-      projectsConfig = new ProjectsConfig();
-    } else {
-      // The way Jackson stores these simple POJO is with a map per default...
-      // So we don't really need to mess around with Deserializer and so on.
-      // This way we can keep the class name out of the JSON as well.
-      //
-      try {
-        ObjectMapper mapper = HopJson.newMapper();
-        projectsConfig = mapper.readValue(new Gson().toJson(configObject), ProjectsConfig.class);
-      } catch (Exception e) {
-        LogChannel.GENERAL.logError(
-            "Error reading environments configuration, check property '"
-                + ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY
-                + "' in the Hop config json file",
-            e);
-        projectsConfig = new ProjectsConfig();
-      }
-    }
+    ProjectsConfig projectsConfig =
+        loadConfig(
+            HopConfig.getInstance()
+                .getConfigMap()
+                .get(ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY));
     HopConfig.getInstance()
         .getConfigMap()
         .put(ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY, projectsConfig);
+
+    this.projectsConfig = projectsConfig;
+    this.snapshotVersion = new AtomicLong();
+    this.snapshot =
+        new AtomicReference<>(projectsConfig.createSnapshot(snapshotVersion.incrementAndGet()));
+  }
+
+  /**
+   * Turn the projects entry of the Hop config map into the projects configuration
+   *
+   * @param configObject The entry as read from the Hop config file, can be null
+   * @return The projects configuration, an empty one if the entry is missing or can't be read
+   */
+  static ProjectsConfig loadConfig(Object configObject) {
+    if (configObject == null) {
+      return new ProjectsConfig();
+    }
+    if (configObject instanceof ProjectsConfig) {
+      return (ProjectsConfig) configObject;
+    }
+    // The way Jackson stores these simple POJO is with a map per default...
+    // So we don't really need to mess around with Deserializer and so on.
+    // This way we can keep the class name out of the JSON as well.
+    // The map is converted straight into the configuration object, without going through a JSON
+    // string first.
+    //
+    try {
+      ObjectMapper mapper = HopJson.newMapper();
+      return mapper.convertValue(configObject, ProjectsConfig.class);
+    } catch (Exception e) {
+      LogChannel.GENERAL.logError(
+          "Error reading environments configuration, check property '"
+              + ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY
+              + "' in the Hop config json file",
+          e);
+      return new ProjectsConfig();
+    }
   }
 
   public static ProjectsConfigSingleton getInstance() {
     return configSingleton;
   }
 
+  private static ProjectsConfigSingleton instance() {
+    ProjectsConfigSingleton singleton = configSingleton;
+    if (singleton == null) {
+      synchronized (ProjectsConfigSingleton.class) {
+        singleton = configSingleton;
+        if (singleton == null) {
+          singleton = new ProjectsConfigSingleton();
+          configSingleton = singleton;
+        }
+      }
+    }
+    return singleton;
+  }
+
+  /**
+   * The modifiable projects configuration. Use this to make changes and call {@link #saveConfig()}
+   * or {@link #publishConfig()} afterwards to make them visible to the readers of {@link
+   * #getSnapshot()}. Changes are only made from the thread driving the edit (the GUI thread or
+   * hop-conf), which is also the one publishing them. Code which only reads the configuration
+   * should use {@link #getSnapshot()} so it never sees a configuration that's being changed.
+   *
+   * @return The modifiable projects configuration
+   */
   public static ProjectsConfig getConfig() {
-    if (configSingleton == null) {
-      configSingleton = new ProjectsConfigSingleton();
+    return instance().projectsConfig;
+  }
+
+  /**
+   * A consistent, read-only view on the projects configuration. This doesn't take any lock and can
+   * safely be used from multiple threads while the configuration is being edited.
+   *
+   * @return The last published snapshot of the projects configuration
+   */
+  public static ProjectsConfig getSnapshot() {
+    return instance().snapshot.get();
+  }
+
+  /**
+   * Publish the current state of the modifiable configuration as a new snapshot.
+   *
+   * @return The new snapshot
+   */
+  public static ProjectsConfig publishConfig() {
+    ProjectsConfigSingleton singleton = instance();
+    synchronized (singleton.projectsConfig) {
+      ProjectsConfig newSnapshot =
+          singleton.projectsConfig.createSnapshot(singleton.snapshotVersion.incrementAndGet());
+      singleton.snapshot.set(newSnapshot);
+      return newSnapshot;
     }
-    return configSingleton.projectsConfig;
   }
 
   public static void saveConfig() throws HopException {
-    HopConfig.getInstance()
-        .saveOption(ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY, configSingleton.projectsConfig);
-    HopConfig.getInstance().saveToFile();
+    ProjectsConfigSingleton singleton = instance();
+    synchronized (singleton.projectsConfig) {
+      HopConfig.getInstance()
+          .saveOption(ProjectsConfig.HOP_CONFIG_PROJECTS_CONFIG_KEY, singleton.projectsConfig);
+      HopConfig.getInstance().saveToFile();
+      publishConfig();
+    }
   }
 
   public List<String> listProjectNames() {
-    return projectsConfig.listProjectConfigNames();
+    return snapshot.get().listProjectConfigNames();
   }
 
   public List<String> listEnvironmentNames() {
-    return projectsConfig.listEnvironmentNames();
+    return snapshot.get().listEnvironmentNames();
   }
 }
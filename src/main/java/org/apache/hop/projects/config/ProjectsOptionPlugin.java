@@ -63,7 +63,7 @@ public class ProjectsOptionPlugin implements IConfigOptions {
       String projectName,
       String environmentName)
       throws HopException {
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     ProjectConfig projectConfig;
     List<String> configurationFiles = new ArrayList<>();
     LifecycleEnvironment environment;
@@ -28,6 +28,7 @@ import org.apache.hop.projects.project.ProjectConfig;
 import org.apache.hop.projects.search.ProjectsSearchablesLocation;
 import org.apache.hop.search.HopSearch;
 import org.apache.hop.ui.core.gui.HopNamespace;
+import picocli.CommandLine;
 
 @ConfigPlugin(
     id = "ProjectsSearchOptionPlugin",
@@ -35,6 +36,12 @@ import org.apache.hop.ui.core.gui.HopNamespace;
     category = ConfigPlugin.CATEGORY_SEARCH)
 public class ProjectsSearchOptionPlugin extends ProjectsOptionPlugin implements IConfigOptions {
 
+  @CommandLine.Option(
+      names = {"-iq", "--index-query"},
+      description =
+          "Only search the project files which contain all the words of this query according to the project search index. End the query with * to match the last word as a prefix.")
+  private String indexQuery;
+
   @Override
   public boolean handleOption(
       ILogChannel log, IHasHopMetadataProvider hasHopMetadataProvider, IVariables variables)
@@ -51,9 +58,9 @@ public class ProjectsSearchOptionPlugin extends ProjectsOptionPlugin implements
         // Re-load the project config
         //
         ProjectConfig projectConfig =
-            ProjectsConfigSingleton.getConfig().findProjectConfig(projectName);
+            ProjectsConfigSingleton.getSnapshot().findProjectConfig(projectName);
         ProjectsSearchablesLocation projectsSearchablesLocation =
-            new ProjectsSearchablesLocation(projectConfig);
+            new ProjectsSearchablesLocation(projectConfig, indexQuery);
         ((HopSearch) hasHopMetadataProvider)
             .getSearchablesLocations()
             .add(projectsSearchablesLocation);
@@ -63,4 +70,20 @@ public class ProjectsSearchOptionPlugin extends ProjectsOptionPlugin implements
     }
     return false;
   }
+
+  /**
+   * Gets indexQuery
+   *
+   * @return value of indexQuery
+   */
+  public String getIndexQuery() {
+    return indexQuery;
+  }
+
+  /**
+   * @param indexQuery The indexQuery to set
+   */
+  public void setIndexQuery(String indexQuery) {
+    this.indexQuery = indexQuery;
+  }
 }
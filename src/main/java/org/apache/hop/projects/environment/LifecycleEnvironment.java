@@ -17,9 +17,8 @@
 
 package org.apache.hop.projects.environment;
 
-import lombok.Data;
-
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -36,6 +35,10 @@ public class LifecycleEnvironment {
 
   private List<String> configurationFiles;
 
+  // Set on the copies held by a read-only projects configuration snapshot
+  //
+  private transient boolean readOnly;
+
   public LifecycleEnvironment() {
     configurationFiles = new ArrayList<>();
   }
@@ -52,9 +55,30 @@ public class LifecycleEnvironment {
     this.name = env.name;
     this.purpose = env.purpose;
     this.projectName = env.projectName;
+    this.linkedProjectEnv = env.linkedProjectEnv;
     this.configurationFiles = new ArrayList<>(env.configurationFiles);
   }
 
+  /**
+   * Create a copy of this environment which can't be modified, the list of configuration files
+   * included. Any attempt to do so throws an {@link UnsupportedOperationException}.
+   *
+   * @return A new read-only environment
+   */
+  public LifecycleEnvironment createReadOnlyCopy() {
+    LifecycleEnvironment copy = new LifecycleEnvironment(this);
+    copy.configurationFiles = Collections.unmodifiableList(copy.configurationFiles);
+    copy.readOnly = true;
+    return copy;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException(
+          "Environment '" + name + "' is part of a read-only projects configuration snapshot");
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -85,6 +109,7 @@ public class LifecycleEnvironment {
    * @param linkedProjectEnv The linkedProjectEnv to set
    */
   public void setLinkedProjectEnv(String linkedProjectEnv) {
+    checkWritable();
     this.linkedProjectEnv = linkedProjectEnv;
   }
 
@@ -101,6 +126,7 @@ public class LifecycleEnvironment {
    * @param name The name to set
    */
   public void setName(String name) {
+    checkWritable();
     this.name = name;
   }
 
@@ -117,6 +143,7 @@ public class LifecycleEnvironment {
    * @param purpose The purpose to set
    */
   public void setPurpose(String purpose) {
+    checkWritable();
     this.purpose = purpose;
   }
 
@@ -133,6 +160,7 @@ public class LifecycleEnvironment {
    * @param projectName The projectName to set
    */
   public void setProjectName(String projectName) {
+    checkWritable();
     this.projectName = projectName;
   }
 
@@ -149,6 +177,7 @@ public class LifecycleEnvironment {
    * @param configurationFiles The configurationFiles to set
    */
   public void setConfigurationFiles(List<String> configurationFiles) {
+    checkWritable();
     this.configurationFiles = configurationFiles;
   }
 }
@@ -31,6 +31,7 @@ import org.apache.hop.projects.config.ProjectsConfig;
 import org.apache.hop.projects.config.ProjectsConfigSingleton;
 import org.apache.hop.projects.project.Project;
 import org.apache.hop.projects.project.ProjectConfig;
+import org.apache.hop.projects.var.DescribedVariablesCache;
 import org.apache.hop.ui.core.PropsUi;
 import org.apache.hop.ui.core.dialog.BaseDialog;
 import org.apache.hop.ui.core.dialog.ErrorDialog;
@@ -301,6 +302,7 @@ public class LifecycleEnvironmentDialog extends Dialog {
 
       boolean changed = HopGui.editConfigFile(shell, realConfigFilename, variablesConfigFile, null);
       if (changed) {
+        DescribedVariablesCache.getInstance().invalidate(realConfigFilename);
         needingEnvironmentRefresh = true;
       }
 
@@ -338,7 +340,7 @@ public class LifecycleEnvironmentDialog extends Dialog {
       String projectName = wProject.getText();
       if (StringUtils.isNotEmpty(projectName)) {
         ProjectConfig projectConfig =
-            ProjectsConfigSingleton.getConfig().findProjectConfig(projectName);
+            ProjectsConfigSingleton.getSnapshot().findProjectConfig(projectName);
         if (projectConfig != null) {
           String environmentName = Const.NVL(wName.getText(), projectName);
           filename =
@@ -415,7 +417,7 @@ public class LifecycleEnvironmentDialog extends Dialog {
   }
 
   private void getData() {
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     wProject.setItems(config.listProjectConfigNames().toArray(new String[0]));
     wPurpose.setItems(
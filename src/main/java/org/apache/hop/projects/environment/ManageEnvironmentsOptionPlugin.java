@@ -35,6 +35,7 @@ import org.apache.hop.projects.config.ProjectsConfigSingleton;
 import org.apache.hop.projects.project.Project;
 import org.apache.hop.projects.project.ProjectConfig;
 import org.apache.hop.projects.util.ProjectsUtil;
+import org.apache.hop.projects.var.DescribedVariablesCache;
 import picocli.CommandLine;
 
 @ConfigPlugin(
@@ -258,6 +259,7 @@ public class ManageEnvironmentsOptionPlugin implements IConfigOptions {
       // Create the config file if it doesn't exist
       if (!HopVfs.getFileObject(realEnvConfFilename).exists()) {
         variablesConfigFile.saveToFile();
+        DescribedVariablesCache.getInstance().invalidate(realEnvConfFilename);
         log.logBasic("Created empty environment configuration file : " + realEnvConfFilename);
       } else {
         log.logBasic("Found existing environment configuration file: " + realEnvConfFilename);
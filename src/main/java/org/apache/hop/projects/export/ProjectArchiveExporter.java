@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.IProgressMonitor;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.vfs.HopVfs;
+import org.apache.hop.projects.project.ProjectFileHashes;
+import org.apache.hop.projects.project.ProjectIndexStore;
+
+/**
+ * Exports several projects to a single content-addressed archive. Every distinct file content is
+ * stored once in {@value #BLOBS_FOLDER}, named after its SHA-256 hash. Every project gets a
+ * manifest in {@value #PROJECTS_FOLDER} which maps its files to those hashes. Projects linking the
+ * same standard project, or sharing files and metadata otherwise, make the archive grow with the
+ * unique content rather than with the number of projects. {@link ProjectArchiveImporter}
+ * materializes a single project from the archive.
+ *
+ * <p>The files of all the projects are hashed in parallel first, reusing the {@link
+ * ProjectFileHashes} of unchanged files. The distinct contents are then compressed and written by
+ * the same {@link ProjectExportPipeline} as the one of {@link ProjectExporter}.
+ */
+public class ProjectArchiveExporter {
+
+  public static final String BLOBS_FOLDER = "blobs/";
+  public static final String PROJECTS_FOLDER = "projects/";
+  public static final String MANIFEST_EXTENSION = ".json";
+
+  private final String zipFilename;
+  private final Map<String, ArchivedProject> projects;
+  private int parallelism;
+  private int compressionLevel;
+  private String taskName;
+  private ILogChannel log;
+
+  /**
+   * @param zipFilename The archive to create
+   */
+  public ProjectArchiveExporter(String zipFilename) {
+    this.zipFilename = zipFilename;
+    this.projects = new LinkedHashMap<>();
+    this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    this.taskName = "Exporting projects...";
+    this.log = LogChannel.GENERAL;
+  }
+
+  /**
+   * Gets the name of the archive entry holding the content with the given hash
+   *
+   * @param hash The hex encoded SHA-256 hash of the content
+   * @return The entry name
+   */
+  public static String getBlobName(String hash) {
+    return BLOBS_FOLDER + hash.substring(0, 2) + "/" + hash;
+  }
+
+  /**
+   * Gets the name of the archive entry holding the manifest of a project
+   *
+   * @param projectName The name of the project
+   * @return The entry name
+   */
+  public static String getManifestName(String projectName) {
+    return PROJECTS_FOLDER + projectName + MANIFEST_EXTENSION;
+  }
+
+  /**
+   * Add a project to export. Add the projects it links to as well to be able to materialize it
+   * together with its linked projects.
+   *
+   * @param projectName The name of the project
+   * @param projectHome The home folder of the project
+   * @param linkedProjectName The project it inherits metadata and variables from, null if none
+   */
+  public void addProject(String projectName, FileObject projectHome, String linkedProjectName) {
+    projects.put(
+        projectName,
+        new ArchivedProject(
+            projectHome,
+            new ProjectArchiveManifest(
+                projectName, linkedProjectName, projectHome.getName().getBaseName())));
+  }
+
+  /**
+   * Export the projects
+   *
+   * @param monitor The monitor to report progress to and to check for cancellation
+   * @return The size, duration and throughput of the export
+   * @throws HopException In case the export fails, the partial archive is removed
+   * @throws InterruptedException When the export is cancelled, the partial archive is removed
+   */
+  public ProjectExportResult export(IProgressMonitor monitor)
+      throws HopException, InterruptedException {
+    long startTime = System.currentTimeMillis();
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+
+    FileObject zipFile;
+    List<ArchivedFile> files = new ArrayList<>();
+    try {
+      zipFile = HopVfs.getFileObject(zipFilename);
+      monitor.subTask("Listing the project files");
+      for (ArchivedProject project : projects.values()) {
+        project.hashes = ProjectExporter.loadHashes(project.home, log);
+        addFiles(project, project.home, zipFile.getName(), files, monitor);
+      }
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error listing the files of the exported projects", e);
+    }
+
+    ProjectExportPipeline pipeline = new ProjectExportPipeline(zipFile, threads, "archive", log);
+    Map<String, Blob> blobs = new LinkedHashMap<>();
+    try (pipeline) {
+      // The hashes decide which files are stored, so they're all needed up front
+      //
+      monitor.subTask("Hashing the project files");
+      List<Future<Void>> hashes = new ArrayList<>();
+      for (ArchivedFile file : files) {
+        hashes.add(pipeline.getExecutor().submit(() -> file.hash(pipeline.getCancelled())));
+      }
+      for (Future<Void> hash : hashes) {
+        ProjectExportPipeline.take(hash, monitor);
+      }
+      for (ArchivedFile file : files) {
+        file.project.manifest.addFile(file.path, file.hash, file.size);
+        blobs.computeIfAbsent(file.hash, hash -> new Blob(hash, file));
+      }
+      monitor.beginTask(taskName, blobs.size());
+
+      pipeline.write(
+          blobs.values().iterator(),
+          blobs.size(),
+          (blob, cancelled) -> blob.compress(startTime, compressionLevel, cancelled),
+          null,
+          blob -> blob.file.project.manifest.getProjectName() + " : " + blob.file.path,
+          monitor);
+
+      for (ArchivedProject project : projects.values()) {
+        pipeline.write(
+            ProjectExportEntry.compress(
+                getManifestName(project.manifest.getProjectName()),
+                startTime,
+                true,
+                compressionLevel,
+                project.manifest::write));
+      }
+      pipeline.finish();
+    } catch (InterruptedException | HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error exporting projects to " + zipFilename, e);
+    }
+    for (ArchivedProject project : projects.values()) {
+      project.hashes.save(log);
+    }
+
+    ProjectExportResult result =
+        new ProjectExportResult(
+            pipeline.getWritten(),
+            0,
+            0,
+            pipeline.getBytesRead(),
+            pipeline.getBytesWritten(),
+            System.currentTimeMillis() - startTime,
+            threads);
+    monitor.done();
+    log.logBasic(
+        "Exported "
+            + projects.size()
+            + " projects with "
+            + files.size()
+            + " files as "
+            + blobs.size()
+            + " unique blobs to "
+            + zipFilename
+            + ": "
+            + result);
+    return result;
+  }
+
+  private void addFiles(
+      ArchivedProject project,
+      FileObject file,
+      FileName zipName,
+      List<ArchivedFile> files,
+      IProgressMonitor monitor)
+      throws Exception {
+    if (monitor.isCanceled()) {
+      throw new InterruptedException("The project export was cancelled");
+    }
+    if (file.isHidden() || file.getName().equals(zipName)) {
+      return;
+    }
+    FileName homeName = project.home.getName();
+    String path =
+        homeName.isDescendent(file.getName()) ? homeName.getRelativeName(file.getName()) : null;
+    if (ProjectIndexStore.INDEX_FOLDER.equals(path)) {
+      return;
+    }
+    if (file.isFolder()) {
+      for (FileObject child : file.getChildren()) {
+        addFiles(project, child, zipName, files, monitor);
+      }
+    } else if (path != null) {
+      files.add(new ArchivedFile(project, path, file));
+    }
+  }
+
+  /** A project to export with the manifest which is filled in during the export */
+  private static final class ArchivedProject {
+    private final FileObject home;
+    private final ProjectArchiveManifest manifest;
+    private ProjectFileHashes hashes;
+
+    private ArchivedProject(FileObject home, ProjectArchiveManifest manifest) {
+      this.home = home;
+      this.manifest = manifest;
+    }
+  }
+
+  /** A file of one of the exported projects */
+  private static final class ArchivedFile {
+    private final ArchivedProject project;
+    private final String path;
+    private final FileObject file;
+
+    // Set on the hashing threads, read once all the files are hashed
+    //
+    private volatile String hash;
+    private volatile long size;
+
+    private ArchivedFile(ArchivedProject project, String path, FileObject file) {
+      this.project = project;
+      this.path = path;
+      this.file = file;
+    }
+
+    private Void hash(AtomicBoolean cancelled) throws HopException {
+      try {
+        FileContent content = file.getContent();
+        long fileSize = content.getSize();
+        hash =
+            ProjectExporter.hashFile(
+                file, path, content.getLastModifiedTime(), fileSize, project.hashes, cancelled);
+        size = fileSize;
+        return null;
+      } catch (CancellationException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new HopException("Error hashing " + file, e);
+      }
+    }
+  }
+
+  /** A distinct file content, stored from the first file which has it */
+  private static final class Blob {
+    private final String hash;
+    private final ArchivedFile file;
+
+    private Blob(String hash, ArchivedFile file) {
+      this.hash = hash;
+      this.file = file;
+    }
+
+    private ProjectExportEntry compress(long lastModified, int level, AtomicBoolean cancelled)
+        throws HopException {
+      try {
+        MessageDigest digest = ProjectFileHashes.newDigest();
+        ProjectExportEntry entry =
+            ProjectExportEntry.compress(
+                getBlobName(hash),
+                lastModified,
+                !ProjectExporter.isCompressed(file.path),
+                level,
+                outputStream ->
+                    ProjectExporter.copy(
+                        file.file, new DigestOutputStream(outputStream, digest), cancelled));
+        if (cancelled.get()) {
+          entry.discard();
+          throw new CancellationException();
+        }
+        // The blob name has to match its content, also when the file changed after hashing
+        //
+        if (!hash.equals(HexFormat.of().formatHex(digest.digest()))) {
+          entry.discard();
+          throw new HopException("File " + file.file + " changed during the export");
+        }
+        return entry;
+      } catch (CancellationException | HopException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new HopException("Error exporting " + file.file, e);
+      }
+    }
+  }
+
+  /**
+   * Gets the projects to export by name
+   *
+   * @return The project names in the order they were added
+   */
+  public List<String> getProjectNames() {
+    return new ArrayList<>(projects.keySet());
+  }
+
+  /**
+   * Gets the number of compression threads, 0 or less to use all available processors
+   *
+   * @return value of parallelism
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @param parallelism The parallelism to set
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the deflate compression level
+   *
+   * @return value of compressionLevel
+   */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * @param compressionLevel The compressionLevel to set
+   */
+  public void setCompressionLevel(int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * Gets the task name reported to the progress monitor
+   *
+   * @return value of taskName
+   */
+  public String getTaskName() {
+    return taskName;
+  }
+
+  /**
+   * @param taskName The taskName to set
+   */
+  public void setTaskName(String taskName) {
+    this.taskName = taskName;
+  }
+
+  /**
+   * Gets log
+   *
+   * @return value of log
+   */
+  public ILogChannel getLog() {
+    return log;
+  }
+
+  /**
+   * @param log The log to set
+   */
+  public void setLog(ILogChannel log) {
+    this.log = log;
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.IProgressMonitor;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.vfs.HopVfs;
+import org.apache.hop.projects.export.ProjectExportManifest.ManifestEntry;
+import org.apache.hop.projects.project.ProjectFileHashes;
+
+/**
+ * Materializes a single project from an archive written by {@link ProjectArchiveExporter}. The
+ * files of the project are written to a target folder in parallel, every file is checked against
+ * the hash in the project manifest. Optionally the files of the linked projects are materialized
+ * in the same folder: the linked project files come first and the files of the project itself
+ * replace the ones with the same path, the way the metadata of a project overrides the metadata it
+ * inherits.
+ */
+public class ProjectArchiveImporter {
+
+  private static final int ENTRIES_PER_THREAD = 4;
+  private static final long PROGRESS_INTERVAL_MS = 250L;
+
+  private final String archiveFilename;
+  private boolean includingLinkedProjects;
+  private int parallelism;
+  private String taskName;
+  private ILogChannel log;
+
+  /**
+   * @param archiveFilename The archive created by a {@link ProjectArchiveExporter}
+   */
+  public ProjectArchiveImporter(String archiveFilename) {
+    this.archiveFilename = archiveFilename;
+    this.taskName = "Importing project...";
+    this.log = LogChannel.GENERAL;
+  }
+
+  /**
+   * List the projects in the archive
+   *
+   * @return The project names, sorted
+   * @throws HopException In case the archive can't be read
+   */
+  public List<String> getProjectNames() throws HopException {
+    try (ZipFile zipFile = openArchive()) {
+      List<String> names = new ArrayList<>();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.startsWith(ProjectArchiveExporter.PROJECTS_FOLDER)
+            && name.endsWith(ProjectArchiveExporter.MANIFEST_EXTENSION)) {
+          names.add(
+              name.substring(
+                  ProjectArchiveExporter.PROJECTS_FOLDER.length(),
+                  name.length() - ProjectArchiveExporter.MANIFEST_EXTENSION.length()));
+        }
+      }
+      names.sort(String::compareTo);
+      return names;
+    } catch (HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error reading project archive " + archiveFilename, e);
+    }
+  }
+
+  /**
+   * Write the files of a project to a folder
+   *
+   * @param projectName The project to materialize
+   * @param targetFolder The folder to write the files to, usually the new project home
+   * @param monitor The monitor to report progress to and to check for cancellation
+   * @return The number of files written
+   * @throws HopException In case the project isn't in the archive or a file can't be written
+   * @throws InterruptedException When the import is cancelled
+   */
+  public int importProject(String projectName, String targetFolder, IProgressMonitor monitor)
+      throws HopException, InterruptedException {
+    long startTime = System.currentTimeMillis();
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    String folder = StringUtils.removeEnd(targetFolder, "/");
+
+    AtomicBoolean cancelled = new AtomicBoolean();
+    ExecutorService executor = null;
+    Deque<Future<Void>> inFlight = new ArrayDeque<>();
+    try (ZipFile zipFile = openArchive()) {
+      Map<String, ManifestEntry> files = collectFiles(zipFile, projectName);
+      monitor.beginTask(taskName, files.size());
+
+      executor =
+          Executors.newFixedThreadPool(
+              threads, new ProjectExportPipeline.ExportThreadFactory(projectName));
+      List<String> paths = new ArrayList<>(files.keySet());
+      int next = 0;
+      int handled = 0;
+      long lastProgressTime = 0L;
+      while (next < paths.size() || !inFlight.isEmpty()) {
+        while (next < paths.size() && inFlight.size() < threads * ENTRIES_PER_THREAD) {
+          String path = paths.get(next++);
+          ManifestEntry entry = files.get(path);
+          inFlight.add(
+              executor.submit(
+                  () -> materialize(zipFile, entry.getHash(), folder + "/" + path, cancelled)));
+        }
+        ProjectExportPipeline.take(inFlight.peekFirst(), monitor);
+        inFlight.removeFirst();
+        handled++;
+
+        long now = System.currentTimeMillis();
+        if (now - lastProgressTime >= PROGRESS_INTERVAL_MS || handled == paths.size()) {
+          lastProgressTime = now;
+          monitor.subTask(paths.get(handled - 1));
+          monitor.worked(handled);
+        }
+      }
+      monitor.done();
+      log.logBasic(
+          "Imported "
+              + paths.size()
+              + " files of project "
+              + projectName
+              + " to "
+              + folder
+              + " in "
+              + (System.currentTimeMillis() - startTime)
+              + "ms");
+      return paths.size();
+    } catch (InterruptedException | HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException(
+          "Error importing project " + projectName + " from " + archiveFilename, e);
+    } finally {
+      cancelled.set(true);
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /** The files of the project, on top of the files of its linked projects if requested */
+  private Map<String, ManifestEntry> collectFiles(ZipFile zipFile, String projectName)
+      throws Exception {
+    List<ProjectArchiveManifest> chain = new ArrayList<>();
+    Set<String> visited = new HashSet<>();
+    String name = projectName;
+    while (StringUtils.isNotEmpty(name) && visited.add(name)) {
+      ZipEntry entry = zipFile.getEntry(ProjectArchiveExporter.getManifestName(name));
+      if (entry == null) {
+        if (chain.isEmpty()) {
+          throw new HopException(
+              "Project '" + projectName + "' isn't part of archive " + archiveFilename);
+        }
+        log.logBasic(
+            "Linked project '" + name + "' isn't part of the archive, its files are skipped");
+        break;
+      }
+      try (InputStream inputStream = zipFile.getInputStream(entry)) {
+        chain.add(ProjectArchiveManifest.read(inputStream));
+      }
+      if (!includingLinkedProjects) {
+        break;
+      }
+      name = chain.get(chain.size() - 1).getLinkedProjectName();
+    }
+
+    Map<String, ManifestEntry> files = new TreeMap<>();
+    for (int i = chain.size() - 1; i >= 0; i--) {
+      for (Map.Entry<String, ManifestEntry> file : chain.get(i).getFiles().entrySet()) {
+        validatePath(file.getKey());
+        files.put(file.getKey(), file.getValue());
+      }
+    }
+    return files;
+  }
+
+  /** Keep the files inside the target folder */
+  void validatePath(String path) throws HopException {
+    if (path.isEmpty() || path.startsWith("/") || path.contains("\\") || path.contains(":")) {
+      throw new HopException("Invalid path '" + path + "' in project archive " + archiveFilename);
+    }
+    for (String part : path.split("/", -1)) {
+      if (part.isEmpty() || part.equals(".") || part.equals("..")) {
+        throw new HopException(
+            "Invalid path '" + path + "' in project archive " + archiveFilename);
+      }
+    }
+  }
+
+  /**
+   * Write a file through a temporary file next to it, which only replaces the file once its content
+   * matches the hash. A corrupt archive or a cancelled import leaves the existing file alone.
+   */
+  private static Void materialize(
+      ZipFile zipFile, String hash, String filename, AtomicBoolean cancelled) throws HopException {
+    try {
+      ZipEntry entry = zipFile.getEntry(ProjectArchiveExporter.getBlobName(hash));
+      if (entry == null) {
+        throw new HopException("The archive doesn't contain the content of " + filename);
+      }
+      FileObject tempFile = HopVfs.getFileObject(filename + "." + UUID.randomUUID() + ".tmp");
+      try {
+        MessageDigest digest = ProjectFileHashes.newDigest();
+        byte[] buffer = new byte[ProjectExportEntry.BUFFER_SIZE];
+        try (InputStream inputStream = zipFile.getInputStream(entry);
+            OutputStream outputStream =
+                new DigestOutputStream(HopVfs.getOutputStream(tempFile, false), digest)) {
+          int length;
+          while ((length = inputStream.read(buffer)) >= 0) {
+            if (cancelled.get()) {
+              throw new CancellationException();
+            }
+            outputStream.write(buffer, 0, length);
+          }
+        }
+        if (!hash.equals(HexFormat.of().formatHex(digest.digest()))) {
+          throw new HopException("The content of " + filename + " doesn't match its hash");
+        }
+        tempFile.moveTo(HopVfs.getFileObject(filename));
+      } finally {
+        if (tempFile.exists()) {
+          tempFile.delete();
+        }
+      }
+      return null;
+    } catch (CancellationException | HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error writing " + filename, e);
+    }
+  }
+
+  /** Zip files need random access, archives which aren't local are copied to a temporary file */
+  private ZipFile openArchive() throws Exception {
+    FileObject archive = HopVfs.getFileObject(archiveFilename);
+    if ("file".equals(archive.getName().getScheme())) {
+      return new ZipFile(archive.getPath().toFile());
+    }
+    Path tempFile = Files.createTempFile("hop-project-archive-", ".zip");
+    try (InputStream inputStream = HopVfs.getInputStream(archive)) {
+      Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (Exception e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    return new ZipFile(tempFile.toFile(), ZipFile.OPEN_READ | ZipFile.OPEN_DELETE);
+  }
+
+  /**
+   * Gets whether the files of the linked projects are materialized underneath the project files
+   *
+   * @return value of includingLinkedProjects
+   */
+  public boolean isIncludingLinkedProjects() {
+    return includingLinkedProjects;
+  }
+
+  /**
+   * @param includingLinkedProjects The includingLinkedProjects to set
+   */
+  public void setIncludingLinkedProjects(boolean includingLinkedProjects) {
+    this.includingLinkedProjects = includingLinkedProjects;
+  }
+
+  /**
+   * Gets the number of threads writing files, 0 or less to use all available processors
+   *
+   * @return value of parallelism
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @param parallelism The parallelism to set
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the task name reported to the progress monitor
+   *
+   * @return value of taskName
+   */
+  public String getTaskName() {
+    return taskName;
+  }
+
+  /**
+   * @param taskName The taskName to set
+   */
+  public void setTaskName(String taskName) {
+    this.taskName = taskName;
+  }
+
+  /**
+   * Gets log
+   *
+   * @return value of log
+   */
+  public ILogChannel getLog() {
+    return log;
+  }
+
+  /**
+   * @param log The log to set
+   */
+  public void setLog(ILogChannel log) {
+    this.log = log;
+  }
+}
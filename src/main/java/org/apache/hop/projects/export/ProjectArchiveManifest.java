@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.json.HopJson;
+import org.apache.hop.projects.export.ProjectExportManifest.ManifestEntry;
+
+/**
+ * The manifest of a single project in a multi-project archive: the project name, the project it's
+ * linked to and for every file the path relative to the project home with the SHA-256 hash of its
+ * content. The content itself is stored once per hash in the blob folder of the archive, so files
+ * shared by several projects take up space only once.
+ */
+public class ProjectArchiveManifest {
+
+  public static final int MANIFEST_VERSION = 1;
+
+  private int version;
+  private String projectName;
+  private String linkedProjectName;
+  private String projectFolder;
+  private Map<String, ManifestEntry> files;
+
+  public ProjectArchiveManifest() {
+    this.version = MANIFEST_VERSION;
+    this.files = new TreeMap<>();
+  }
+
+  public ProjectArchiveManifest(
+      String projectName, String linkedProjectName, String projectFolder) {
+    this();
+    this.projectName = projectName;
+    this.linkedProjectName = linkedProjectName;
+    this.projectFolder = projectFolder;
+  }
+
+  /**
+   * Read a manifest, leaving the input stream open
+   *
+   * @param inputStream The stream to read from
+   * @return The manifest
+   * @throws Exception In case the manifest can't be read or has an unsupported version
+   */
+  public static ProjectArchiveManifest read(InputStream inputStream) throws Exception {
+    ProjectArchiveManifest manifest =
+        HopJson.newMapper()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .readValue(inputStream, ProjectArchiveManifest.class);
+    if (manifest.getVersion() != MANIFEST_VERSION) {
+      throw new HopException(
+          "Unsupported project archive manifest version " + manifest.getVersion());
+    }
+    if (manifest.getFiles() == null) {
+      manifest.setFiles(new TreeMap<>());
+    }
+    return manifest;
+  }
+
+  /**
+   * Write the manifest as JSON, leaving the output stream open
+   *
+   * @param outputStream The stream to write to
+   * @throws Exception In case writing fails
+   */
+  public void write(OutputStream outputStream) throws Exception {
+    HopJson.newMapper()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .writerWithDefaultPrettyPrinter()
+        .writeValue(outputStream, this);
+  }
+
+  /**
+   * Add a file
+   *
+   * @param path The path relative to the project home
+   * @param hash The hex encoded SHA-256 hash of the content
+   * @param size The size of the content
+   */
+  public void addFile(String path, String hash, long size) {
+    files.put(path, new ManifestEntry(hash, size));
+  }
+
+  /**
+   * Gets version
+   *
+   * @return value of version
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * @param version The version to set
+   */
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  /**
+   * Gets projectName
+   *
+   * @return value of projectName
+   */
+  public String getProjectName() {
+    return projectName;
+  }
+
+  /**
+   * @param projectName The projectName to set
+   */
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  /**
+   * Gets the name of the project this project inherits metadata and variables from
+   *
+   * @return value of linkedProjectName
+   */
+  public String getLinkedProjectName() {
+    return linkedProjectName;
+  }
+
+  /**
+   * @param linkedProjectName The linkedProjectName to set
+   */
+  public void setLinkedProjectName(String linkedProjectName) {
+    this.linkedProjectName = linkedProjectName;
+  }
+
+  /**
+   * Gets the name of the home folder of the exported project
+   *
+   * @return value of projectFolder
+   */
+  public String getProjectFolder() {
+    return projectFolder;
+  }
+
+  /**
+   * @param projectFolder The projectFolder to set
+   */
+  public void setProjectFolder(String projectFolder) {
+    this.projectFolder = projectFolder;
+  }
+
+  /**
+   * Gets the files of the project by their path relative to the project home
+   *
+   * @return value of files
+   */
+  public Map<String, ManifestEntry> getFiles() {
+    return files;
+  }
+
+  /**
+   * @param files The files to set
+   */
+  public void setFiles(Map<String, ManifestEntry> files) {
+    this.files = files;
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * A single entry of an export archive, compressed ahead of writing it. Entries are compressed on
+ * worker threads and handed to a {@link ZipArchiveWriter} which only copies the compressed bytes.
+ * Small entries are kept in memory, larger ones are spilled to a temporary file. The entries in
+ * flight share a memory budget: once it's used up, entries are spilled whatever their size. The
+ * memory they use stays bounded by the budget rather than by the number of entries and threads.
+ */
+public class ProjectExportEntry {
+
+  /** Compressed data beyond this size is written to a temporary file */
+  public static final int SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+  /** The compressed data kept in memory by all the entries in flight together */
+  public static final long MEMORY_BUDGET = 64L * 1024 * 1024;
+
+  private static final AtomicLong memoryUsed = new AtomicLong();
+
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Writes the uncompressed content of an entry */
+  @FunctionalInterface
+  public interface IEntryContent {
+    void write(OutputStream outputStream) throws Exception;
+  }
+
+  private final String name;
+  private final int method;
+  private final long crc;
+  private final long size;
+  private final long compressedSize;
+  private final long lastModified;
+  private final byte[] data;
+  private final Path spillFile;
+  private boolean discarded;
+
+  private ProjectExportEntry(
+      String name,
+      int method,
+      long crc,
+      long size,
+      long compressedSize,
+      long lastModified,
+      byte[] data,
+      Path spillFile) {
+    this.name = name;
+    this.method = method;
+    this.crc = crc;
+    this.size = size;
+    this.compressedSize = compressedSize;
+    this.lastModified = lastModified;
+    this.data = data;
+    this.spillFile = spillFile;
+  }
+
+  /**
+   * Create an entry for a folder
+   *
+   * @param name The name of the folder in the archive, ending with a slash
+   * @param lastModified The modification time of the folder
+   * @return The folder entry
+   */
+  public static ProjectExportEntry folder(String name, long lastModified) {
+    return new ProjectExportEntry(
+        name, ZipEntry.STORED, 0L, 0L, 0L, lastModified, new byte[0], null);
+  }
+
+  /**
+   * Compress the content of an entry. This is called from the worker threads of the export.
+   *
+   * @param name The name of the entry in the archive
+   * @param lastModified The modification time of the entry
+   * @param deflate Deflate the content or store it as is, for content which is already compressed
+   * @param level The deflate compression level
+   * @param content Writes the uncompressed content
+   * @return The compressed entry
+   * @throws Exception In case the content can't be written
+   */
+  public static ProjectExportEntry compress(
+      String name, long lastModified, boolean deflate, int level, IEntryContent content)
+      throws Exception {
+    SpillOutputStream spill = new SpillOutputStream();
+    Deflater deflater = deflate ? new Deflater(level, true) : null;
+    try {
+      CRC32 crc = new CRC32();
+      OutputStream target =
+          deflate ? new DeflaterOutputStream(spill, deflater, BUFFER_SIZE) : spill;
+      content.write(new CheckedOutputStream(target, crc));
+      if (deflate) {
+        ((DeflaterOutputStream) target).finish();
+      }
+      spill.close();
+      long size = deflate ? deflater.getBytesRead() : spill.getSize();
+      return new ProjectExportEntry(
+          name,
+          deflate ? ZipEntry.DEFLATED : ZipEntry.STORED,
+          crc.getValue(),
+          size,
+          spill.getSize(),
+          lastModified,
+          spill.getData(),
+          spill.getFile());
+    } catch (Exception e) {
+      spill.discard();
+      throw e;
+    } finally {
+      if (deflater != null) {
+        deflater.end();
+      }
+    }
+  }
+
+  /** Return the memory of the entry to the budget and delete its temporary file, if any */
+  public synchronized void discard() {
+    if (discarded) {
+      return;
+    }
+    discarded = true;
+    if (data != null) {
+      release(data.length);
+    }
+    if (spillFile != null) {
+      try {
+        Files.deleteIfExists(spillFile);
+      } catch (IOException e) {
+        spillFile.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * Gets the name of the entry in the archive
+   *
+   * @return value of name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the compression method, {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   *
+   * @return value of method
+   */
+  public int getMethod() {
+    return method;
+  }
+
+  /**
+   * Gets the CRC-32 of the uncompressed content
+   *
+   * @return value of crc
+   */
+  public long getCrc() {
+    return crc;
+  }
+
+  /**
+   * Gets the uncompressed size
+   *
+   * @return value of size
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets compressedSize
+   *
+   * @return value of compressedSize
+   */
+  public long getCompressedSize() {
+    return compressedSize;
+  }
+
+  /**
+   * Gets lastModified
+   *
+   * @return value of lastModified
+   */
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Gets whether this is a folder entry
+   *
+   * @return true if the name ends with a slash
+   */
+  public boolean isFolder() {
+    return name.endsWith("/");
+  }
+
+  /**
+   * Gets the compressed data kept in memory, null if it was spilled to a file
+   *
+   * @return value of data
+   */
+  public byte[] getData() {
+    return data;
+  }
+
+  /**
+   * Gets the temporary file holding the compressed data, null if it's kept in memory
+   *
+   * @return value of spillFile
+   */
+  public Path getSpillFile() {
+    return spillFile;
+  }
+
+  /**
+   * Gets the number of bytes of the memory budget in use
+   *
+   * @return The compressed bytes kept in memory by the entries which weren't discarded yet
+   */
+  static long getMemoryUsed() {
+    return memoryUsed.get();
+  }
+
+  private static boolean reserve(long bytes) {
+    while (true) {
+      long used = memoryUsed.get();
+      if (used + bytes > MEMORY_BUDGET) {
+        return false;
+      }
+      if (memoryUsed.compareAndSet(used, used + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  private static void release(long bytes) {
+    memoryUsed.addAndGet(-bytes);
+  }
+
+  /**
+   * Keeps the written bytes in memory up to the spill threshold, as long as the memory budget
+   * allows it, then moves to a file.
+   */
+  private static final class SpillOutputStream extends OutputStream {
+    private byte[] buffer = new byte[0];
+    private int count;
+    private long size;
+    private Path file;
+    private OutputStream fileStream;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      size += length;
+      if (fileStream == null && !grow(count + length)) {
+        file = Files.createTempFile("hop-project-export-", ".tmp");
+        fileStream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        fileStream.write(buffer, 0, count);
+        release(buffer.length);
+        buffer = null;
+        count = 0;
+      }
+      if (fileStream != null) {
+        fileStream.write(bytes, offset, length);
+        return;
+      }
+      System.arraycopy(bytes, offset, buffer, count, length);
+      count += length;
+    }
+
+    /** Make room for the given number of bytes in memory, false if they have to be spilled */
+    private boolean grow(int needed) {
+      if (needed <= buffer.length) {
+        return true;
+      }
+      if (needed > SPILL_THRESHOLD) {
+        return false;
+      }
+      int length = Math.min(SPILL_THRESHOLD, Math.max(Math.max(buffer.length * 2, 8192), needed));
+      if (!reserve(length - buffer.length)) {
+        return false;
+      }
+      buffer = Arrays.copyOf(buffer, length);
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (fileStream != null) {
+        fileStream.close();
+      }
+    }
+
+    private long getSize() {
+      return size;
+    }
+
+    /** Hand the data over to the entry, the memory beyond its size goes back to the budget */
+    private byte[] getData() {
+      if (file != null) {
+        return null;
+      }
+      if (count < buffer.length) {
+        release(buffer.length - count);
+        buffer = Arrays.copyOf(buffer, count);
+      }
+      return buffer;
+    }
+
+    private Path getFile() {
+      return file;
+    }
+
+    private void discard() {
+      try {
+        close();
+      } catch (IOException e) {
+        // Ignore, the file is removed next
+      }
+      if (buffer != null) {
+        release(buffer.length);
+        buffer = null;
+      }
+      if (file != null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          file.toFile().deleteOnExit();
+        }
+      }
+    }
+  }
+}
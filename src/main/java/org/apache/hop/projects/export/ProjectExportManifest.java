@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.json.HopJson;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * The content of an export archive: for every exported file the path relative to the project
+ * folder of the archive, the SHA-256 hash of its content and its size. The manifest is stored in
+ * the archive as {@value #MANIFEST_FILENAME}. A delta export compares the project with a previous
+ * manifest and only archives the added and changed files, the removed files are listed in {@link
+ * #getDeleted()}. The manifest of a delta export still describes all the files of the project, so
+ * it can be the base of the next delta.
+ */
+public class ProjectExportManifest {
+
+  public static final String MANIFEST_FILENAME = "export-manifest.json";
+  public static final int MANIFEST_VERSION = 1;
+
+  private int version;
+  private boolean delta;
+  private Map<String, ManifestEntry> files;
+  private List<String> deleted;
+
+  public ProjectExportManifest() {
+    this.version = MANIFEST_VERSION;
+    this.files = new TreeMap<>();
+    this.deleted = new ArrayList<>();
+  }
+
+  /**
+   * Load a manifest from a manifest file or from the export archive containing it
+   *
+   * @param filename The manifest file or a zip file created by a project export
+   * @return The manifest
+   * @throws HopException In case the manifest can't be read or the archive doesn't contain one
+   */
+  public static ProjectExportManifest load(String filename) throws HopException {
+    try (InputStream inputStream = HopVfs.getInputStream(filename)) {
+      if (!filename.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+        return read(inputStream);
+      }
+      ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+      ZipEntry entry;
+      while ((entry = zipInputStream.getNextEntry()) != null) {
+        if (entry.getName().endsWith("/" + MANIFEST_FILENAME)) {
+          return read(zipInputStream);
+        }
+      }
+      throw new HopException("Archive '" + filename + "' doesn't contain an export manifest");
+    } catch (HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error reading export manifest from '" + filename + "'", e);
+    }
+  }
+
+  private static ProjectExportManifest read(InputStream inputStream) throws Exception {
+    ProjectExportManifest manifest =
+        HopJson.newMapper()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .readValue(inputStream, ProjectExportManifest.class);
+    if (manifest.getVersion() != MANIFEST_VERSION) {
+      throw new HopException("Unsupported export manifest version " + manifest.getVersion());
+    }
+    if (manifest.getFiles() == null) {
+      manifest.setFiles(new TreeMap<>());
+    }
+    if (manifest.getDeleted() == null) {
+      manifest.setDeleted(new ArrayList<>());
+    }
+    return manifest;
+  }
+
+  /**
+   * Write the manifest as JSON, leaving the output stream open
+   *
+   * @param outputStream The stream to write to
+   * @throws Exception In case writing fails
+   */
+  public void write(OutputStream outputStream) throws Exception {
+    HopJson.newMapper()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .writerWithDefaultPrettyPrinter()
+        .writeValue(outputStream, this);
+  }
+
+  /**
+   * Gets whether the given file is unchanged compared to this manifest
+   *
+   * @param path The path relative to the project folder
+   * @param hash The hash of the current content
+   * @param size The current size
+   * @return true if the manifest has the same hash and size for the path
+   */
+  public boolean isUnchanged(String path, String hash, long size) {
+    ManifestEntry entry = files.get(path);
+    return entry != null && entry.getSize() == size && entry.getHash().equals(hash);
+  }
+
+  /**
+   * Add a file
+   *
+   * @param path The path relative to the project folder of the archive
+   * @param hash The hex encoded SHA-256 hash of the content
+   * @param size The size of the content
+   */
+  public void addFile(String path, String hash, long size) {
+    files.put(path, new ManifestEntry(hash, size));
+  }
+
+  /**
+   * Gets version
+   *
+   * @return value of version
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * @param version The version to set
+   */
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
+  /**
+   * Gets whether the archive only contains the files changed since a previous export
+   *
+   * @return value of delta
+   */
+  public boolean isDelta() {
+    return delta;
+  }
+
+  /**
+   * @param delta The delta to set
+   */
+  public void setDelta(boolean delta) {
+    this.delta = delta;
+  }
+
+  /**
+   * Gets all the files of the project by their path relative to the project folder
+   *
+   * @return value of files
+   */
+  public Map<String, ManifestEntry> getFiles() {
+    return files;
+  }
+
+  /**
+   * @param files The files to set
+   */
+  public void setFiles(Map<String, ManifestEntry> files) {
+    this.files = files;
+  }
+
+  /**
+   * Gets the files of the previous manifest which no longer exist
+   *
+   * @return value of deleted
+   */
+  public List<String> getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * @param deleted The deleted to set
+   */
+  public void setDeleted(List<String> deleted) {
+    this.deleted = deleted;
+  }
+
+  /** The hash and size of a single file */
+  public static class ManifestEntry {
+    private String hash;
+    private long size;
+
+    public ManifestEntry() {
+      // For Jackson
+    }
+
+    public ManifestEntry(String hash, long size) {
+      this.hash = hash;
+      this.size = size;
+    }
+
+    /**
+     * Gets the hex encoded SHA-256 hash of the file content
+     *
+     * @return value of hash
+     */
+    public String getHash() {
+      return hash;
+    }
+
+    /**
+     * @param hash The hash to set
+     */
+    public void setHash(String hash) {
+      this.hash = hash;
+    }
+
+    /**
+     * Gets size
+     *
+     * @return value of size
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * @param size The size to set
+     */
+    public void setSize(long size) {
+      this.size = size;
+    }
+  }
+}
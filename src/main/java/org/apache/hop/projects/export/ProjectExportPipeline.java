@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.IProgressMonitor;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * The scatter-gather pipeline which writes a zip archive, shared by the exporters. Items are
+ * handed to a pool of compression threads and the compressed entries are gathered in the order
+ * they were handed out, then written with a {@link ZipArchiveWriter}. The number of entries in
+ * flight is bounded.
+ *
+ * <p>The pipeline is closed when the export is over. Unless {@link #finish()} was called, the
+ * entries in flight are discarded and the partial archive is removed.
+ */
+final class ProjectExportPipeline implements AutoCloseable {
+
+  private static final int ENTRIES_PER_THREAD = 4;
+  private static final long POLL_INTERVAL_MS = 200L;
+  private static final long PROGRESS_INTERVAL_MS = 250L;
+
+  private final FileObject zipFile;
+  private final int threads;
+  private final ExecutorService executor;
+  private final AtomicBoolean cancelled;
+  private final Deque<Future<ProjectExportEntry>> inFlight;
+  private final ILogChannel log;
+  private ZipArchiveWriter writer;
+  private boolean finished;
+  private long bytesRead;
+  private int written;
+
+  /**
+   * @param zipFile The archive to write
+   * @param threads The number of compression threads
+   * @param threadName The name of the compression threads, after project-export-
+   * @param log The log channel to report errors to
+   */
+  ProjectExportPipeline(FileObject zipFile, int threads, String threadName, ILogChannel log) {
+    this.zipFile = zipFile;
+    this.threads = threads;
+    this.executor = Executors.newFixedThreadPool(threads, new ExportThreadFactory(threadName));
+    this.cancelled = new AtomicBoolean();
+    this.inFlight = new ArrayDeque<>();
+    this.log = log;
+  }
+
+  /** Compresses an item into its entry, on one of the compression threads */
+  @FunctionalInterface
+  interface IEntryCompressor<T> {
+    ProjectExportEntry compress(T item, AtomicBoolean cancelled) throws HopException;
+  }
+
+  /** Decides whether a compressed entry is written, on the thread gathering the entries */
+  @FunctionalInterface
+  interface IEntryFilter<T> {
+    boolean isWritten(T item, ProjectExportEntry entry);
+  }
+
+  /**
+   * Compress the items on the compression threads and write their entries in the order of the
+   * items
+   *
+   * @param items The items to compress
+   * @param count The number of items, to report progress
+   * @param compressor Compresses an item into its entry
+   * @param filter Decides whether an entry is written, null to write all of them
+   * @param description Describes an item to the progress monitor
+   * @param monitor The monitor to report progress to and to check for cancellation
+   * @param <T> The type of the items
+   * @throws Exception In case an item can't be compressed or written, or the export is cancelled
+   */
+  <T> void write(
+      Iterator<T> items,
+      int count,
+      IEntryCompressor<T> compressor,
+      IEntryFilter<T> filter,
+      Function<T, String> description,
+      IProgressMonitor monitor)
+      throws Exception {
+    ZipArchiveWriter zipWriter = getWriter();
+    Deque<T> inFlightItems = new ArrayDeque<>();
+    int handled = 0;
+    long lastProgressTime = 0L;
+    while (items.hasNext() || !inFlight.isEmpty()) {
+      // Scatter: keep every compression thread busy with a few entries
+      //
+      while (items.hasNext() && inFlight.size() < threads * ENTRIES_PER_THREAD) {
+        T item = items.next();
+        inFlight.add(executor.submit(() -> compressor.compress(item, cancelled)));
+        inFlightItems.add(item);
+      }
+
+      // Gather: write the entries in the order they were handed out
+      //
+      ProjectExportEntry entry = take(inFlight.peekFirst(), monitor);
+      inFlight.removeFirst();
+      T item = inFlightItems.removeFirst();
+      try {
+        if (filter == null || filter.isWritten(item, entry)) {
+          zipWriter.write(entry);
+          bytesRead += entry.getSize();
+          written++;
+        }
+      } finally {
+        entry.discard();
+      }
+      handled++;
+
+      long now = System.currentTimeMillis();
+      if (now - lastProgressTime >= PROGRESS_INTERVAL_MS || handled == count) {
+        lastProgressTime = now;
+        monitor.subTask(description.apply(item));
+        monitor.worked(handled);
+      }
+    }
+  }
+
+  /**
+   * Write a single entry, like a manifest, on the calling thread
+   *
+   * @param entry The entry to write, it's discarded afterwards
+   * @throws IOException In case the entry can't be written
+   */
+  void write(ProjectExportEntry entry) throws IOException {
+    try {
+      getWriter().write(entry);
+    } finally {
+      entry.discard();
+    }
+    written++;
+  }
+
+  /**
+   * Complete the archive. Without this call closing the pipeline removes the archive.
+   *
+   * @throws IOException In case the archive can't be completed
+   */
+  void finish() throws IOException {
+    getWriter().close();
+    finished = true;
+  }
+
+  @Override
+  public void close() {
+    if (!finished) {
+      cancelled.set(true);
+      discardInFlight();
+    }
+    executor.shutdownNow();
+    if (!finished) {
+      deletePartialArchive();
+    }
+  }
+
+  private ZipArchiveWriter getWriter() throws IOException {
+    if (writer == null) {
+      writer = new ZipArchiveWriter(openChannel(zipFile));
+    }
+    return writer;
+  }
+
+  private void discardInFlight() {
+    for (Future<ProjectExportEntry> future : inFlight) {
+      if (!future.cancel(true) && !future.isCancelled()) {
+        try {
+          future.get().discard();
+        } catch (Exception e) {
+          // The entry failed, there is nothing to clean up
+        }
+      }
+    }
+    inFlight.clear();
+  }
+
+  private void deletePartialArchive() {
+    try {
+      if (writer != null) {
+        writer.close();
+      }
+    } catch (IOException e) {
+      // The archive is removed next
+    }
+    try {
+      zipFile.delete();
+    } catch (Exception e) {
+      log.logError("Unable to remove partial export archive " + zipFile, e);
+    }
+  }
+
+  /**
+   * Gets the thread pool of the compression threads, to run other work like hashing on
+   *
+   * @return value of executor
+   */
+  ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Gets the flag which is set when the work on the compression threads should stop
+   *
+   * @return value of cancelled
+   */
+  AtomicBoolean getCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Gets the uncompressed size of the written entries
+   *
+   * @return value of bytesRead
+   */
+  long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Gets the number of written entries
+   *
+   * @return value of written
+   */
+  int getWritten() {
+    return written;
+  }
+
+  /**
+   * Gets the size of the archive so far
+   *
+   * @return The number of bytes written to the archive
+   */
+  long getBytesWritten() {
+    return writer == null ? 0L : writer.getBytesWritten();
+  }
+
+  static <T> T take(Future<T> future, IProgressMonitor monitor) throws Exception {
+    while (true) {
+      if (monitor.isCanceled()) {
+        throw new InterruptedException("The project export was cancelled");
+      }
+      try {
+        return future.get(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // Check for cancellation and wait some more
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static WritableByteChannel openChannel(FileObject zipFile) throws IOException {
+    if ("file".equals(zipFile.getName().getScheme())) {
+      Path path = zipFile.getPath();
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      return FileChannel.open(
+          path,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.WRITE);
+    }
+    return Channels.newChannel(HopVfs.getOutputStream(zipFile, false));
+  }
+
+  static final class ExportThreadFactory implements ThreadFactory {
+    private final String name;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    ExportThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread =
+          new Thread(runnable, "project-export-" + name + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
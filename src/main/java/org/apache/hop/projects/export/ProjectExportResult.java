@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+/** The numbers of a finished {@link ProjectExporter#export} */
+public class ProjectExportResult {
+
+  private static final double MEGABYTE = 1024.0 * 1024.0;
+
+  private final int entryCount;
+  private final int unchangedCount;
+  private final int deletedCount;
+  private final long bytesRead;
+  private final long bytesWritten;
+  private final long elapsedMillis;
+  private final int parallelism;
+
+  public ProjectExportResult(
+      int entryCount,
+      int unchangedCount,
+      int deletedCount,
+      long bytesRead,
+      long bytesWritten,
+      long elapsedMillis,
+      int parallelism) {
+    this.entryCount = entryCount;
+    this.unchangedCount = unchangedCount;
+    this.deletedCount = deletedCount;
+    this.bytesRead = bytesRead;
+    this.bytesWritten = bytesWritten;
+    this.elapsedMillis = elapsedMillis;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the number of files, folders and generated entries in the archive
+   *
+   * @return value of entryCount
+   */
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * Gets the number of files left out of a delta export because they didn't change
+   *
+   * @return value of unchangedCount
+   */
+  public int getUnchangedCount() {
+    return unchangedCount;
+  }
+
+  /**
+   * Gets the number of files of the previous export which no longer exist
+   *
+   * @return value of deletedCount
+   */
+  public int getDeletedCount() {
+    return deletedCount;
+  }
+
+  /**
+   * Gets the uncompressed size of all the entries
+   *
+   * @return value of bytesRead
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Gets the size of the archive
+   *
+   * @return value of bytesWritten
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * Gets elapsedMillis
+   *
+   * @return value of elapsedMillis
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * Gets the number of compression threads used
+   *
+   * @return value of parallelism
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Gets the uncompressed megabytes exported per second
+   *
+   * @return The throughput in MB/s
+   */
+  public double getThroughput() {
+    return bytesRead / MEGABYTE / (Math.max(1L, elapsedMillis) / 1000.0);
+  }
+
+  @Override
+  public String toString() {
+    String summary =
+        String.format(
+            "%d entries, %.1f MB compressed to %.1f MB in %.1fs (%.1f MB/s, %d threads)",
+            entryCount,
+            bytesRead / MEGABYTE,
+            bytesWritten / MEGABYTE,
+            elapsedMillis / 1000.0,
+            getThroughput(),
+            parallelism);
+    if (unchangedCount > 0 || deletedCount > 0) {
+      summary += ", " + unchangedCount + " unchanged, " + deletedCount + " deleted";
+    }
+    return summary;
+  }
+}
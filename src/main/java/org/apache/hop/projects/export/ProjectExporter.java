@@ -0,0 +1,831 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.Const;
+import org.apache.hop.core.IProgressMonitor;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.core.vfs.HopVfs;
+import org.apache.hop.metadata.api.HopMetadata;
+import org.apache.hop.metadata.api.IHopMetadata;
+import org.apache.hop.metadata.api.IHopMetadataProvider;
+import org.apache.hop.metadata.api.IHopMetadataSerializer;
+import org.apache.hop.metadata.serializer.json.JsonMetadataParser;
+import org.apache.hop.projects.project.ProjectFileHashes;
+import org.apache.hop.projects.project.ProjectIndexStore;
+import org.json.simple.JSONValue;
+
+/**
+ * Exports the files of a project to a zip archive, optionally with the project variables and the
+ * serialized metadata.
+ *
+ * <p>The export is a pipeline: the calling thread walks the selected files and hands them to the
+ * compression threads of a {@link ProjectExportPipeline}, which gathers the compressed entries in
+ * the order they were handed out and writes them to the archive. The number of entries in flight
+ * is bounded, the memory they use is bounded by {@link ProjectExportEntry#MEMORY_BUDGET}.
+ * The metadata is serialized one object at a time straight into its compressed entry.
+ */
+public class ProjectExporter {
+
+  public static final String VARIABLES_FILENAME = "variables.json";
+  public static final String METADATA_FILENAME = "metadata.json";
+
+  /** Files with these extensions are compressed already, they're stored as they are */
+  private static final Set<String> STORED_EXTENSIONS =
+      Set.of(
+          "zip", "jar", "gz", "tgz", "bz2", "xz", "7z", "png", "jpg", "jpeg", "gif", "parquet",
+          "avro", "orc");
+
+  /** Variables which describe the environment of the exporting machine rather than the project */
+  private static final String[] EXCLUDED_VARIABLE_PARTS = {
+    "java.", "user.", "sun.", "os.", "file.", "jdk.", "http.", "path.", "ftp.", "line.", "awt.",
+    "HOP_ENVIRONMENT_NAME", "HOP_AUDIT_FOLDER", "HOP_CONFIG_FOLDER", "PROJECT_HOME",
+    "HOP_PROJECTS", "HOP_PLATFORM_OS", "HOP_PROJECT_NAME", "HOP_SERVER_URL"
+  };
+
+  private final FileObject projectHome;
+  private final String zipFilename;
+  private final List<FileObject> files;
+  private final Map<String, FileObject> additionalFiles;
+  private final List<String> includes;
+  private final List<String> excludes;
+  private Map<String, String> variables;
+  private IHopMetadataProvider metadataProvider;
+  private ProjectExportManifest previousManifest;
+  private String manifestFilename;
+  private int parallelism;
+  private int compressionLevel;
+  private String taskName;
+  private ILogChannel log;
+
+  /**
+   * @param projectHome The home folder of the project
+   * @param zipFilename The archive to create
+   */
+  public ProjectExporter(FileObject projectHome, String zipFilename) {
+    this.projectHome = projectHome;
+    this.zipFilename = zipFilename;
+    this.files = new ArrayList<>();
+    this.additionalFiles = new LinkedHashMap<>();
+    this.includes = new ArrayList<>();
+    this.excludes = new ArrayList<>();
+    this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    this.taskName = "Exporting project...";
+    this.log = LogChannel.GENERAL;
+  }
+
+  /**
+   * Get the variables worth exporting with a project: the ones which don't describe the exporting
+   * machine or the active project and environment.
+   *
+   * @param variables The variables to filter
+   * @return The exported variables by name
+   */
+  public static Map<String, String> getExportedVariables(IVariables variables) {
+    Map<String, String> variablesMap = new HashMap<>();
+    for (String name : variables.getVariableNames()) {
+      if (isExportedVariable(name)) {
+        variablesMap.put(name, variables.getVariable(name));
+      }
+    }
+    return variablesMap;
+  }
+
+  private static boolean isExportedVariable(String name) {
+    if (name.equals("HOP_METADATA_FOLDER")) {
+      return false;
+    }
+    for (String part : EXCLUDED_VARIABLE_PARTS) {
+      if (name.contains(part)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Export the selected files, the default being the whole project home. A manifest with the hash
+   * of every file is added to the archive. With a previous manifest only the files which changed
+   * since are archived.
+   *
+   * @param monitor The monitor to report progress to and to check for cancellation
+   * @return The size, duration and throughput of the export
+   * @throws HopException In case the export fails, the partial archive is removed
+   * @throws InterruptedException When the export is cancelled, the partial archive is removed
+   */
+  public ProjectExportResult export(IProgressMonitor monitor)
+      throws HopException, InterruptedException {
+    long startTime = System.currentTimeMillis();
+    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    String projectFolder = projectHome.getName().getBaseName();
+
+    FileObject zipFile;
+    List<ExportItem> items;
+    try {
+      zipFile = HopVfs.getFileObject(zipFilename);
+      items = collectItems(zipFile, startTime, monitor);
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error listing the files of project folder " + projectHome, e);
+    }
+    ProjectFileHashes hashes = loadHashes(projectHome, log);
+    ProjectExportManifest manifest = new ProjectExportManifest();
+    manifest.setDelta(previousManifest != null);
+
+    ProjectExportPipeline pipeline =
+        new ProjectExportPipeline(zipFile, threads, projectFolder, log);
+    int unchanged = 0;
+    try (pipeline) {
+      List<ExportItem> exported = items;
+      if (previousManifest != null) {
+        hashFiles(items, pipeline, hashes, monitor);
+        exported = new ArrayList<>();
+        for (ExportItem item : items) {
+          if (item.isFile() && previousManifest.isUnchanged(item.key, item.hash, item.size)) {
+            unchanged++;
+          } else if (item.content != null) {
+            // A delta has no folder entries, only the added and changed files
+            exported.add(item);
+          }
+        }
+      }
+      monitor.beginTask(taskName, exported.size());
+
+      pipeline.write(
+          exported.iterator(),
+          exported.size(),
+          (item, cancelled) -> item.compress(compressionLevel, cancelled, hashes),
+          this::isChanged,
+          item -> item.name,
+          monitor);
+      unchanged += exported.size() - pipeline.getWritten();
+
+      // The manifest describes all the files, also the ones left out of a delta
+      //
+      for (ExportItem item : items) {
+        if (item.key != null && item.hash != null) {
+          manifest.addFile(item.key, item.hash, item.size);
+        }
+      }
+      if (previousManifest != null) {
+        for (String key : previousManifest.getFiles().keySet()) {
+          if (!manifest.getFiles().containsKey(key)) {
+            manifest.getDeleted().add(key);
+          }
+        }
+      }
+      pipeline.write(
+          ProjectExportEntry.compress(
+              projectFolder + "/" + ProjectExportManifest.MANIFEST_FILENAME,
+              startTime,
+              true,
+              compressionLevel,
+              manifest::write));
+      pipeline.finish();
+    } catch (InterruptedException | HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error exporting project to " + zipFilename, e);
+    }
+    hashes.save(log);
+    if (StringUtils.isNotEmpty(manifestFilename)) {
+      writeManifestFile(manifest);
+    }
+
+    ProjectExportResult result =
+        new ProjectExportResult(
+            pipeline.getWritten(),
+            unchanged,
+            manifest.getDeleted().size(),
+            pipeline.getBytesRead(),
+            pipeline.getBytesWritten(),
+            System.currentTimeMillis() - startTime,
+            threads);
+    monitor.done();
+    log.logBasic("Exported project " + projectHome + " to " + zipFilename + ": " + result);
+    return result;
+  }
+
+  /** Generated entries like the metadata are only known to be unchanged once compressed */
+  private boolean isChanged(ExportItem item, ProjectExportEntry entry) {
+    return previousManifest == null
+        || item.key == null
+        || !previousManifest.isUnchanged(item.key, item.hash, entry.getSize());
+  }
+
+  /** Hash the files on the compression threads, reusing the known hashes of unchanged files */
+  private static void hashFiles(
+      List<ExportItem> items,
+      ProjectExportPipeline pipeline,
+      ProjectFileHashes hashes,
+      IProgressMonitor monitor)
+      throws Exception {
+    monitor.subTask("Comparing the project files with the previous export");
+    List<Future<Void>> futures = new ArrayList<>();
+    for (ExportItem item : items) {
+      if (item.isFile()) {
+        futures.add(
+            pipeline.getExecutor().submit(() -> item.hash(hashes, pipeline.getCancelled())));
+      }
+    }
+    for (Future<Void> future : futures) {
+      ProjectExportPipeline.take(future, monitor);
+    }
+  }
+
+  private void writeManifestFile(ProjectExportManifest manifest) throws HopException {
+    try (OutputStream outputStream = HopVfs.getOutputStream(manifestFilename, false)) {
+      manifest.write(outputStream);
+    } catch (Exception e) {
+      throw new HopException("Error writing export manifest " + manifestFilename, e);
+    }
+  }
+
+  private List<ExportItem> collectItems(
+      FileObject zipFile, long startTime, IProgressMonitor monitor) throws Exception {
+    ItemCollector collector = new ItemCollector(zipFile.getName(), monitor);
+    List<FileObject> roots = files.isEmpty() ? List.of(projectHome) : files;
+    for (FileObject root : roots) {
+      collector.addFiles(root);
+    }
+
+    String projectFolder = projectHome.getName().getBaseName();
+    List<ExportItem> items = collector.items;
+    for (Map.Entry<String, FileObject> additionalFile : additionalFiles.entrySet()) {
+      String name = projectFolder + "/" + additionalFile.getKey();
+      if (additionalFile.getValue().exists() && collector.names.add(name)) {
+        items.add(ExportItem.file(name, additionalFile.getKey(), additionalFile.getValue()));
+      }
+    }
+    if (variables != null) {
+      byte[] variablesJson = new ObjectMapper().writeValueAsBytes(variables);
+      items.add(
+          new ExportItem(
+              projectFolder + "/" + VARIABLES_FILENAME,
+              VARIABLES_FILENAME,
+              null,
+              startTime,
+              true,
+              (outputStream, cancelled) -> outputStream.write(variablesJson)));
+    }
+    if (metadataProvider != null) {
+      items.add(
+          new ExportItem(
+              projectFolder + "/" + METADATA_FILENAME,
+              METADATA_FILENAME,
+              null,
+              startTime,
+              true,
+              this::writeMetadata));
+    }
+    return items;
+  }
+
+  private static List<PathMatcher> compileGlobs(List<String> globs) {
+    List<PathMatcher> matchers = new ArrayList<>();
+    for (String glob : globs) {
+      matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+      // **/*.hpl should match the files in the project home itself too
+      //
+      if (glob.startsWith("**/")) {
+        matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.substring(3)));
+      }
+    }
+    return matchers;
+  }
+
+  private static boolean matches(List<PathMatcher> matchers, String relativeName) {
+    Path path = Paths.get(relativeName);
+    for (PathMatcher matcher : matchers) {
+      if (matcher.matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Walks the selected files and folders, applying the include and exclude globs */
+  private final class ItemCollector {
+    private final FileName baseName;
+    private final String projectFolder;
+    private final FileName zipName;
+    private final IProgressMonitor monitor;
+    private final List<PathMatcher> includeMatchers;
+    private final List<PathMatcher> excludeMatchers;
+    private final List<ExportItem> items;
+    private final Set<String> names;
+
+    private ItemCollector(FileName zipName, IProgressMonitor monitor) {
+      FileName parent = projectHome.getName().getParent();
+      this.baseName = parent == null ? projectHome.getName() : parent;
+      this.projectFolder = projectHome.getName().getBaseName();
+      this.zipName = zipName;
+      this.monitor = monitor;
+      this.includeMatchers = compileGlobs(includes);
+      this.excludeMatchers = compileGlobs(excludes);
+      this.items = new ArrayList<>();
+      this.names = new HashSet<>();
+    }
+
+    private void addFiles(FileObject file) throws Exception {
+      if (monitor.isCanceled()) {
+        throw new InterruptedException("The project export was cancelled");
+      }
+      if (file.isHidden() || file.getName().equals(zipName)) {
+        return;
+      }
+      String name =
+          baseName.isDescendent(file.getName())
+              ? baseName.getRelativeName(file.getName())
+              : projectFolder + "/" + file.getName().getBaseName();
+      String relativeName =
+          projectHome.getName().isDescendent(file.getName())
+              ? projectHome.getName().getRelativeName(file.getName())
+              : null;
+      if (relativeName != null
+          && (relativeName.equals(ProjectIndexStore.INDEX_FOLDER)
+              || matches(excludeMatchers, relativeName))) {
+        return;
+      }
+      if (file.isFolder()) {
+        // With include globs only the matching files are exported, not the folders around them
+        //
+        if (includeMatchers.isEmpty() && names.add(name + "/")) {
+          items.add(
+              new ExportItem(
+                  name + "/", null, file, file.getContent().getLastModifiedTime(), false, null));
+        }
+        for (FileObject child : file.getChildren()) {
+          addFiles(child);
+        }
+      } else if ((includeMatchers.isEmpty()
+              || relativeName == null
+              || matches(includeMatchers, relativeName))
+          && names.add(name)) {
+        String prefix = projectFolder + "/";
+        String key = name.startsWith(prefix) ? name.substring(prefix.length()) : name;
+        items.add(ExportItem.file(name, key, file));
+      }
+    }
+  }
+
+  /**
+   * Serialize the metadata the way {@link
+   * org.apache.hop.core.metadata.SerializableMetadataProvider#toJson()} does, without building the
+   * whole document in memory first.
+   */
+  private void writeMetadata(OutputStream outputStream, AtomicBoolean cancelled)
+      throws HopException, IOException {
+    Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
+            ProjectExportEntry.BUFFER_SIZE);
+    writer.write('{');
+    boolean firstClass = true;
+    for (Class<IHopMetadata> metadataClass : metadataProvider.getMetadataClasses()) {
+      HopMetadata annotation = metadataClass.getAnnotation(HopMetadata.class);
+      IHopMetadataSerializer<IHopMetadata> serializer =
+          metadataProvider.getSerializer(metadataClass);
+      List<String> names = serializer.listObjectNames();
+      if (annotation == null || names.isEmpty()) {
+        continue;
+      }
+      JsonMetadataParser<IHopMetadata> parser =
+          new JsonMetadataParser<>(metadataClass, metadataProvider);
+      if (!firstClass) {
+        writer.write(',');
+      }
+      firstClass = false;
+      writer.write('"');
+      writer.write(JSONValue.escape(annotation.key()));
+      writer.write("\":[");
+      boolean firstObject = true;
+      for (String name : names) {
+        if (cancelled.get()) {
+          throw new CancellationException();
+        }
+        IHopMetadata object = serializer.load(name);
+        if (object == null) {
+          continue;
+        }
+        if (!firstObject) {
+          writer.write(',');
+        }
+        firstObject = false;
+        writer.write(parser.getJsonObject(object).toJSONString());
+      }
+      writer.write(']');
+    }
+    writer.write('}');
+    writer.flush();
+  }
+
+  static void copy(FileObject file, OutputStream outputStream, AtomicBoolean cancelled)
+      throws IOException {
+    byte[] buffer = new byte[ProjectExportEntry.BUFFER_SIZE];
+    try (InputStream inputStream = HopVfs.getInputStream(file)) {
+      int length;
+      while ((length = inputStream.read(buffer)) >= 0) {
+        if (cancelled.get()) {
+          throw new CancellationException();
+        }
+        outputStream.write(buffer, 0, length);
+      }
+    }
+  }
+
+  /** Writes the content of a generated entry, checking for cancellation */
+  @FunctionalInterface
+  private interface IItemContent {
+    void write(OutputStream outputStream, AtomicBoolean cancelled) throws Exception;
+  }
+
+  /**
+   * Get the SHA-256 hash of a file, the known one if the file didn't change since it was hashed
+   *
+   * @param file The file to hash
+   * @param key The path of the file relative to the project home
+   * @param lastModified The last modified time of the file
+   * @param size The size of the file
+   * @param hashes The hashes to look the hash up in and to add it to
+   * @param cancelled Set when the hashing should stop
+   * @return The hex encoded hash
+   * @throws Exception In case the file can't be read
+   */
+  static String hashFile(
+      FileObject file,
+      String key,
+      long lastModified,
+      long size,
+      ProjectFileHashes hashes,
+      AtomicBoolean cancelled)
+      throws Exception {
+    String hash = hashes.getHash(key, lastModified, size);
+    if (hash == null) {
+      MessageDigest digest = ProjectFileHashes.newDigest();
+      copy(file, new DigestOutputStream(OutputStream.nullOutputStream(), digest), cancelled);
+      hash = HexFormat.of().formatHex(digest.digest());
+      hashes.putHash(key, lastModified, size, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * Gets whether a file is compressed already, judging by its extension
+   *
+   * @param name The name of the file
+   * @return true if the file is better stored than deflated
+   */
+  static boolean isCompressed(String name) {
+    String extension = FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT);
+    return STORED_EXTENSIONS.contains(extension);
+  }
+
+  /**
+   * Load the file hashes of a project home. A project home which isn't on the local file system
+   * gets hashes which are only kept in memory.
+   *
+   * @param projectHome The home folder of the project
+   * @param log The log channel to report a damaged index to
+   * @return The file hashes of the project
+   */
+  static ProjectFileHashes loadHashes(FileObject projectHome, ILogChannel log) {
+    boolean local = "file".equals(projectHome.getName().getScheme());
+    return ProjectFileHashes.load(local ? projectHome.getPath() : null, log);
+  }
+
+  /** A file, folder or generated entry to export */
+  private static final class ExportItem {
+    private final String name;
+    private final String key;
+    private final FileObject file;
+    private final long lastModified;
+    private final boolean deflate;
+    private final IItemContent content;
+
+    // Set on the compression threads, read after the entry is gathered
+    //
+    private volatile String hash;
+    private volatile long size;
+
+    /**
+     * @param name The name of the entry in the archive
+     * @param key The path in the manifest, null for folders
+     */
+    private ExportItem(
+        String name,
+        String key,
+        FileObject file,
+        long lastModified,
+        boolean deflate,
+        IItemContent content) {
+      this.name = name;
+      this.key = key;
+      this.file = file;
+      this.lastModified = lastModified;
+      this.deflate = deflate;
+      this.content = content;
+    }
+
+    private static ExportItem file(String name, String key, FileObject file) {
+      return new ExportItem(
+          name,
+          key,
+          file,
+          -1L,
+          !isCompressed(name),
+          (outputStream, cancelled) -> copy(file, outputStream, cancelled));
+    }
+
+    private boolean isFile() {
+      return file != null && content != null;
+    }
+
+    private Void hash(ProjectFileHashes hashes, AtomicBoolean cancelled)
+        throws HopException {
+      try {
+        FileContent fileContent = file.getContent();
+        long fileSize = fileContent.getSize();
+        hash =
+            hashFile(
+                file, key, fileContent.getLastModifiedTime(), fileSize, hashes, cancelled);
+        size = fileSize;
+        return null;
+      } catch (CancellationException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new HopException("Error hashing " + name, e);
+      }
+    }
+
+    private ProjectExportEntry compress(
+        int level, AtomicBoolean cancelled, ProjectFileHashes hashes) throws HopException {
+      try {
+        if (content == null) {
+          return ProjectExportEntry.folder(name, lastModified);
+        }
+        long modified = lastModified >= 0 ? lastModified : file.getContent().getLastModifiedTime();
+        MessageDigest digest = hash == null ? ProjectFileHashes.newDigest() : null;
+        ProjectExportEntry entry =
+            ProjectExportEntry.compress(
+                name,
+                modified,
+                deflate,
+                level,
+                outputStream ->
+                    content.write(
+                        digest == null
+                            ? outputStream
+                            : new DigestOutputStream(outputStream, digest),
+                        cancelled));
+        if (cancelled.get()) {
+          entry.discard();
+          throw new CancellationException();
+        }
+        if (digest != null) {
+          size = entry.getSize();
+          hash = HexFormat.of().formatHex(digest.digest());
+          if (file != null) {
+            hashes.putHash(key, modified, size, hash);
+          }
+        }
+        return entry;
+      } catch (CancellationException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new HopException("Error exporting " + name, e);
+      }
+    }
+  }
+
+  /**
+   * Export the given file or folder instead of the whole project home. Files outside of the
+   * project home are added to the root folder of the archive.
+   *
+   * @param file The file or folder to export
+   */
+  public void addFile(FileObject file) {
+    files.add(file);
+  }
+
+  /**
+   * Add a file which isn't part of the project home, like the Hop configuration file
+   *
+   * @param filename The name of the file in the project folder of the archive
+   * @param file The file to add
+   */
+  public void addAdditionalFile(String filename, FileObject file) {
+    additionalFiles.put(filename, file);
+  }
+
+  /**
+   * Add the Hop configuration file, hop-config.json, to the project folder of the archive
+   *
+   * @throws HopException In case the configuration file can't be resolved
+   */
+  public void addHopConfigFile() throws HopException {
+    addAdditionalFile(
+        Const.HOP_CONFIG,
+        HopVfs.getFileObject(Const.HOP_CONFIG_FOLDER + Const.FILE_SEPARATOR + Const.HOP_CONFIG));
+  }
+
+  /**
+   * Only export the files matching one of the include globs, like **&#47;*.hpl. The globs are
+   * matched against the path relative to the project home.
+   *
+   * @param glob The glob to add
+   */
+  public void addInclude(String glob) {
+    includes.add(glob);
+  }
+
+  /**
+   * Leave out the files and folders matching the glob, like datasets/**. The globs are matched
+   * against the path relative to the project home.
+   *
+   * @param glob The glob to add
+   */
+  public void addExclude(String glob) {
+    excludes.add(glob);
+  }
+
+  /**
+   * Gets the files and folders selected for export, empty to export the whole project home
+   *
+   * @return value of files
+   */
+  public List<FileObject> getFiles() {
+    return files;
+  }
+
+  /**
+   * Gets the variables to export, null to leave them out
+   *
+   * @return value of variables
+   */
+  public Map<String, String> getVariables() {
+    return variables;
+  }
+
+  /**
+   * @param variables The variables to set
+   */
+  public void setVariables(Map<String, String> variables) {
+    this.variables = variables;
+  }
+
+  /**
+   * Gets the metadata provider to export, null to leave the metadata out
+   *
+   * @return value of metadataProvider
+   */
+  public IHopMetadataProvider getMetadataProvider() {
+    return metadataProvider;
+  }
+
+  /**
+   * @param metadataProvider The metadataProvider to set
+   */
+  public void setMetadataProvider(IHopMetadataProvider metadataProvider) {
+    this.metadataProvider = metadataProvider;
+  }
+
+  /**
+   * Gets the manifest of a previous export. When set, only the files added or changed since are
+   * archived and the manifest lists the deleted files.
+   *
+   * @return value of previousManifest
+   */
+  public ProjectExportManifest getPreviousManifest() {
+    return previousManifest;
+  }
+
+  /**
+   * @param previousManifest The previousManifest to set
+   */
+  public void setPreviousManifest(ProjectExportManifest previousManifest) {
+    this.previousManifest = previousManifest;
+  }
+
+  /**
+   * Gets the file to write a copy of the manifest to, next to the one in the archive
+   *
+   * @return value of manifestFilename
+   */
+  public String getManifestFilename() {
+    return manifestFilename;
+  }
+
+  /**
+   * @param manifestFilename The manifestFilename to set
+   */
+  public void setManifestFilename(String manifestFilename) {
+    this.manifestFilename = manifestFilename;
+  }
+
+  /**
+   * Gets the number of compression threads, 0 or less to use all available processors
+   *
+   * @return value of parallelism
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @param parallelism The parallelism to set
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the deflate compression level
+   *
+   * @return value of compressionLevel
+   */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * @param compressionLevel The compressionLevel to set
+   */
+  public void setCompressionLevel(int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * Gets the task name reported to the progress monitor
+   *
+   * @return value of taskName
+   */
+  public String getTaskName() {
+    return taskName;
+  }
+
+  /**
+   * @param taskName The taskName to set
+   */
+  public void setTaskName(String taskName) {
+    this.taskName = taskName;
+  }
+
+  /**
+   * @param log The log channel to report the result to
+   */
+  public void setLog(ILogChannel log) {
+    this.log = log;
+  }
+}
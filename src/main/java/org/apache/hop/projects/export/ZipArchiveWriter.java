@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes entries which are already compressed to a zip archive. java.util.zip can only compress
+ * while writing, which limits it to a single core. This writer copies the compressed bytes of a
+ * {@link ProjectExportEntry} into the archive through a large buffer, spilled entries are
+ * transferred from their file channel directly. Zip64 records are written when the sizes, offsets
+ * or number of entries need them.
+ */
+public class ZipArchiveWriter implements Closeable {
+
+  public static final int BUFFER_SIZE = 1024 * 1024;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final short ZIP64_EXTRA_ID = 0x0001;
+  private static final short VERSION_DEFAULT = 20;
+  private static final short VERSION_ZIP64 = 45;
+  private static final short FLAG_UTF8 = 0x0800;
+  private static final long MAX_32 = 0xFFFFFFFFL;
+  private static final int MAX_16 = 0xFFFF;
+  private static final int ATTRIBUTE_FOLDER = 0x10;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final List<CentralRecord> records;
+  private long offset;
+  private boolean closed;
+
+  /**
+   * @param channel The channel to write the archive to, it's closed together with the writer
+   */
+  public ZipArchiveWriter(WritableByteChannel channel) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    this.records = new ArrayList<>();
+  }
+
+  /**
+   * Append an entry to the archive
+   *
+   * @param entry The compressed entry
+   * @throws IOException In case writing fails
+   */
+  public void write(ProjectExportEntry entry) throws IOException {
+    byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+    boolean zip64 = entry.getSize() >= MAX_32 || entry.getCompressedSize() >= MAX_32;
+    long dosTime = toDosTime(entry.getLastModified());
+
+    CentralRecord record =
+        new CentralRecord(
+            name,
+            entry.getMethod(),
+            dosTime,
+            entry.getCrc(),
+            entry.getSize(),
+            entry.getCompressedSize(),
+            offset,
+            entry.isFolder());
+    records.add(record);
+
+    ensureCapacity(30 + name.length + 20);
+    buffer.putInt(LOCAL_HEADER_SIGNATURE);
+    buffer.putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+    buffer.putShort(FLAG_UTF8);
+    buffer.putShort((short) entry.getMethod());
+    buffer.putInt((int) dosTime);
+    buffer.putInt((int) entry.getCrc());
+    buffer.putInt(zip64 ? (int) MAX_32 : (int) entry.getCompressedSize());
+    buffer.putInt(zip64 ? (int) MAX_32 : (int) entry.getSize());
+    buffer.putShort((short) name.length);
+    buffer.putShort((short) (zip64 ? 20 : 0));
+    buffer.put(name);
+    if (zip64) {
+      buffer.putShort(ZIP64_EXTRA_ID);
+      buffer.putShort((short) 16);
+      buffer.putLong(entry.getSize());
+      buffer.putLong(entry.getCompressedSize());
+    }
+    offset += 30 + name.length + (zip64 ? 20 : 0);
+
+    if (entry.getSpillFile() != null) {
+      flush();
+      try (FileChannel source = FileChannel.open(entry.getSpillFile(), StandardOpenOption.READ)) {
+        long position = 0;
+        long length = source.size();
+        while (position < length) {
+          position += source.transferTo(position, length - position, channel);
+        }
+      }
+    } else {
+      writeBytes(entry.getData());
+    }
+    offset += entry.getCompressedSize();
+  }
+
+  /**
+   * Write the central directory and close the channel
+   *
+   * @throws IOException In case writing fails
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      finish();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void finish() throws IOException {
+    long directoryOffset = offset;
+    for (CentralRecord record : records) {
+      writeCentralRecord(record);
+    }
+    long directorySize = offset - directoryOffset;
+
+    boolean zip64 =
+        records.size() >= MAX_16 || directoryOffset >= MAX_32 || directorySize >= MAX_32;
+    if (zip64) {
+      long zip64EndOffset = offset;
+      ensureCapacity(56 + 20);
+      buffer.putInt(ZIP64_END_SIGNATURE);
+      buffer.putLong(44L);
+      buffer.putShort(VERSION_ZIP64);
+      buffer.putShort(VERSION_ZIP64);
+      buffer.putInt(0);
+      buffer.putInt(0);
+      buffer.putLong(records.size());
+      buffer.putLong(records.size());
+      buffer.putLong(directorySize);
+      buffer.putLong(directoryOffset);
+
+      buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+      buffer.putInt(0);
+      buffer.putLong(zip64EndOffset);
+      buffer.putInt(1);
+      offset += 56 + 20;
+    }
+
+    ensureCapacity(22);
+    buffer.putInt(END_SIGNATURE);
+    buffer.putShort((short) 0);
+    buffer.putShort((short) 0);
+    buffer.putShort((short) Math.min(records.size(), MAX_16));
+    buffer.putShort((short) Math.min(records.size(), MAX_16));
+    buffer.putInt((int) Math.min(directorySize, MAX_32));
+    buffer.putInt((int) Math.min(directoryOffset, MAX_32));
+    buffer.putShort((short) 0);
+    offset += 22;
+    flush();
+  }
+
+  private void writeCentralRecord(CentralRecord record) throws IOException {
+    boolean zip64Size = record.size >= MAX_32;
+    boolean zip64CompressedSize = record.compressedSize >= MAX_32;
+    boolean zip64Offset = record.offset >= MAX_32;
+    int extraLength =
+        (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+    if (extraLength > 0) {
+      extraLength += 4;
+    }
+    short version = extraLength > 0 ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+    ensureCapacity(46 + record.name.length + extraLength);
+    buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+    buffer.putShort(VERSION_ZIP64);
+    buffer.putShort(version);
+    buffer.putShort(FLAG_UTF8);
+    buffer.putShort((short) record.method);
+    buffer.putInt((int) record.dosTime);
+    buffer.putInt((int) record.crc);
+    buffer.putInt((int) Math.min(record.compressedSize, MAX_32));
+    buffer.putInt((int) Math.min(record.size, MAX_32));
+    buffer.putShort((short) record.name.length);
+    buffer.putShort((short) extraLength);
+    buffer.putShort((short) 0);
+    buffer.putShort((short) 0);
+    buffer.putShort((short) 0);
+    buffer.putInt(record.folder ? ATTRIBUTE_FOLDER : 0);
+    buffer.putInt((int) Math.min(record.offset, MAX_32));
+    buffer.put(record.name);
+    if (extraLength > 0) {
+      buffer.putShort(ZIP64_EXTRA_ID);
+      buffer.putShort((short) (extraLength - 4));
+      if (zip64Size) {
+        buffer.putLong(record.size);
+      }
+      if (zip64CompressedSize) {
+        buffer.putLong(record.compressedSize);
+      }
+      if (zip64Offset) {
+        buffer.putLong(record.offset);
+      }
+    }
+    offset += 46 + record.name.length + extraLength;
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    if (bytes.length <= buffer.remaining()) {
+      buffer.put(bytes);
+      return;
+    }
+    flush();
+    if (bytes.length <= buffer.capacity()) {
+      buffer.put(bytes);
+      return;
+    }
+    ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+    while (wrapped.hasRemaining()) {
+      channel.write(wrapped);
+    }
+  }
+
+  private void ensureCapacity(int length) throws IOException {
+    if (buffer.remaining() < length) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Gets the number of bytes written to the archive so far, including the buffered ones
+   *
+   * @return value of offset
+   */
+  public long getBytesWritten() {
+    return offset;
+  }
+
+  /**
+   * Gets the number of entries written so far
+   *
+   * @return The number of entries
+   */
+  public int getEntryCount() {
+    return records.size();
+  }
+
+  private static long toDosTime(long millis) {
+    LocalDateTime time =
+        LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    if (time.getYear() < 1980) {
+      return (1L << 21) | (1L << 16);
+    }
+    return ((long) (time.getYear() - 1980) << 25)
+        | ((long) time.getMonthValue() << 21)
+        | ((long) time.getDayOfMonth() << 16)
+        | ((long) time.getHour() << 11)
+        | ((long) time.getMinute() << 5)
+        | ((long) time.getSecond() >> 1);
+  }
+
+  private static final class CentralRecord {
+    private final byte[] name;
+    private final int method;
+    private final long dosTime;
+    private final long crc;
+    private final long size;
+    private final long compressedSize;
+    private final long offset;
+    private final boolean folder;
+
+    private CentralRecord(
+        byte[] name,
+        int method,
+        long dosTime,
+        long crc,
+        long size,
+        long compressedSize,
+        long offset,
+        boolean folder) {
+      this.name = name;
+      this.method = method;
+      this.dosTime = dosTime;
+      this.crc = crc;
+      this.size = size;
+      this.compressedSize = compressedSize;
+      this.offset = offset;
+      this.folder = folder;
+    }
+  }
+}
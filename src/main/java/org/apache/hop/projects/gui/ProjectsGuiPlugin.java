@@ -17,11 +17,6 @@
 
 package org.apache.hop.projects.gui;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -32,13 +27,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.IRunnableWithProgress;
-import org.apache.hop.core.config.HopConfig;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.extension.ExtensionPointHandler;
 import org.apache.hop.core.extension.HopExtensionPoint;
@@ -48,7 +41,6 @@ import org.apache.hop.core.gui.plugin.toolbar.GuiToolbarElement;
 import org.apache.hop.core.gui.plugin.toolbar.GuiToolbarElementType;
 import org.apache.hop.core.logging.ILogChannel;
 import org.apache.hop.core.logging.LogChannel;
-import org.apache.hop.core.metadata.SerializableMetadataProvider;
 import org.apache.hop.core.variables.DescribedVariable;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.core.variables.Variables;
@@ -64,6 +56,8 @@ import org.apache.hop.projects.config.ProjectsConfig;
 import org.apache.hop.projects.config.ProjectsConfigSingleton;
 import org.apache.hop.projects.environment.LifecycleEnvironment;
 import org.apache.hop.projects.environment.LifecycleEnvironmentDialog;
+import org.apache.hop.projects.export.ProjectExportResult;
+import org.apache.hop.projects.export.ProjectExporter;
 import org.apache.hop.projects.project.Project;
 import org.apache.hop.projects.project.ProjectConfig;
 import org.apache.hop.projects.project.ProjectDialog;
@@ -288,7 +282,7 @@ public class ProjectsGuiPlugin {
 
   public static void selectProjectInList(String name) {
     GuiToolbarWidgets toolbarWidgets = HopGui.getInstance().getMainToolbarWidgets();
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     toolbarWidgets.selectComboItem(ID_TOOLBAR_PROJECT_COMBO, name);
     Combo combo = getProjectsCombo();
@@ -319,7 +313,7 @@ public class ProjectsGuiPlugin {
     toolbarWidgets.selectComboItem(ID_TOOLBAR_ENVIRONMENT_COMBO, name);
     Combo combo = getEnvironmentsCombo();
     if (combo != null) {
-      ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+      ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
       LifecycleEnvironment environment = config.findEnvironment(name);
       if (environment != null) {
         combo.setToolTipText(
@@ -349,7 +343,7 @@ public class ProjectsGuiPlugin {
     HopGui hopGui = HopGui.getInstance();
 
     IVariables variables = hopGui.getVariables();
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     if (projectConfig == null) {
       throw new HopException("The project with name '" + projectName + "' could not be found");
@@ -394,16 +388,20 @@ public class ProjectsGuiPlugin {
         // Project's home changed. Update reference in hop-config.json
         if (!projectFolder.equals(projectConfig.getProjectHome())) {
           // Refresh project reference in hop-config.json
-          HopConfig.getInstance().saveToFile();
+          ProjectsConfigSingleton.saveConfig();
         }
 
         if (!projectName.equals(projectConfig.getProjectName())) {
           // Project got renamed
           projectName = projectConfig.getProjectName();
           // Refresh project reference in hop-config.json
-          HopConfig.getInstance().saveToFile();
+          ProjectsConfigSingleton.saveConfig();
         }
 
+        // Make the other project settings visible to the readers of the snapshot as well
+        //
+        ProjectsConfigSingleton.publishConfig();
+
         project.saveToFile();
         refreshProjectsList();
         selectProjectInList(projectName);
@@ -453,7 +451,7 @@ public class ProjectsGuiPlugin {
       readOnly = true)
   public void selectProject() {
     HopGui hopGui = HopGui.getInstance();
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     Combo projectsCombo = getProjectsCombo();
     Combo environmentsCombo = getEnvironmentsCombo();
@@ -584,7 +582,7 @@ public class ProjectsGuiPlugin {
       String projectName = projectDialog.open();
       if (projectName != null) {
         config.addProjectConfig(projectConfig);
-        HopConfig.getInstance().saveToFile();
+        ProjectsConfigSingleton.saveConfig();
 
         // Save the project-config.json file as well in the project itself
         //
@@ -859,7 +857,7 @@ public class ProjectsGuiPlugin {
     if (StringUtils.isEmpty(environmentName)) {
       return;
     }
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     LifecycleEnvironment environment = config.findEnvironment(environmentName);
     if (environment == null) {
       return;
@@ -997,7 +995,7 @@ public class ProjectsGuiPlugin {
    */
   public List<String> getProjectsList(ILogChannel log, IHopMetadataProvider metadataProvider)
       throws Exception {
-    List<String> names = ProjectsConfigSingleton.getConfig().listProjectConfigNames();
+    List<String> names = ProjectsConfigSingleton.getSnapshot().listProjectConfigNames();
     Map<String, Date> lastUsedMap = new HashMap<>();
     names.stream()
         .forEach(
@@ -1040,7 +1038,7 @@ public class ProjectsGuiPlugin {
    * @param metadataProvider
    */
   public List<String> getEnvironmentsList(ILogChannel log, IHopMetadataProvider metadataProvider) {
-    return ProjectsConfigSingleton.getConfig().listEnvironmentNames();
+    return ProjectsConfigSingleton.getSnapshot().listEnvironmentNames();
   }
 
   // Add an e button to the file dialog browser toolbar
@@ -1051,7 +1049,7 @@ public class ProjectsGuiPlugin {
       toolTip = "i18n::FileDialog.Browse.Project.Home",
       image = "project.svg")
   public void fileDialogBrowserProjectHome() {
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     ProjectConfig projectConfig = config.findProjectConfig(HopNamespace.getNamespace());
     if (projectConfig == null) {
@@ -1101,7 +1099,7 @@ public class ProjectsGuiPlugin {
     if (StringUtils.isEmpty(projectName)) {
       return;
     }
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     String projectHome = projectConfig.getProjectHome();
 
@@ -1199,99 +1197,69 @@ public class ProjectsGuiPlugin {
         return;
       }
 
+      // The selection is read here, the export itself runs in the background
+      //
+      List<FileObject> selectedFiles = tree.getFileObjects();
+      if (selectedFiles.isEmpty()) {
+        return;
+      }
+
+      ProjectExporter exporter =
+          new ProjectExporter(HopVfs.getFileObject(projectHome), zipFilename);
+      exporter.setTaskName(
+          BaseMessages.getString(PKG, "ProjectGuiPlugin.ZipDirectory.Taskname.Text"));
+      for (FileObject selectedFile : selectedFiles) {
+        exporter.addFile(selectedFile);
+      }
+      exporter.addHopConfigFile();
+      if (includeVariables.get()) {
+        exporter.setVariables(ProjectExporter.getExportedVariables(variables));
+      }
+      if (includeMetadata.get()) {
+        exporter.setMetadataProvider(hopGui.getMetadataProvider());
+      }
+
+      AtomicReference<ProjectExportResult> result = new AtomicReference<>();
       IRunnableWithProgress op =
           monitor -> {
             try {
-              monitor.setTaskName(
-                  BaseMessages.getString(PKG, "ProjectGuiPlugin.ZipDirectory.Taskname.Text"));
-              HashMap<String, String> variablesMap = new HashMap<>();
-
-              for (String name : variables.getVariableNames()) {
-                if (!name.contains("java.")
-                    && !name.contains("user.")
-                    && !name.contains("sun.")
-                    && !name.contains("os.")
-                    && !name.contains("file.")
-                    && !name.contains("jdk.")
-                    && !name.contains("http.")
-                    && !name.contains("path.")
-                    && !name.contains("ftp.")
-                    && !name.contains("line.")
-                    && !name.contains("awt.")
-                    && !name.equals("HOP_METADATA_FOLDER")
-                    && !name.contains("HOP_ENVIRONMENT_NAME")
-                    && !name.contains("HOP_AUDIT_FOLDER")
-                    && !name.contains("HOP_CONFIG_FOLDER")
-                    && !name.contains("PROJECT_HOME")
-                    && !name.contains("HOP_PROJECTS")
-                    && !name.contains("HOP_PLATFORM_OS")
-                    && !name.contains("HOP_PROJECT_NAME")
-                    && !name.contains("HOP_SERVER_URL")) {
-                  String value = variables.getVariable(name);
-                  variablesMap.put(name, value);
-                }
-              }
-              ObjectMapper objectMapper = new ObjectMapper();
-              String variablesJson = objectMapper.writeValueAsString(variablesMap);
-
-              SerializableMetadataProvider metadataProvider =
-                  new SerializableMetadataProvider(hopGui.getMetadataProvider());
-              String metadataJson = metadataProvider.toJson();
-
-              OutputStream outputStream = HopVfs.getOutputStream(zipFilename, false);
-              ZipOutputStream zos = new ZipOutputStream(outputStream);
-              FileObject projectDirectory = HopVfs.getFileObject(projectHome);
-              String projectHomeFolder =
-                  HopVfs.getFileObject(projectHome).getParent().getName().getURI();
-
-              if (!tree.getFileObjects().isEmpty()) {
-                for (FileObject fileObject : tree.getFileObjects()) {
-                  zipFile(
-                      fileObject,
-                      fileObject.getName().getURI(),
-                      zos,
-                      projectHomeFolder,
-                      zipFilename);
-                }
-              } else {
-                return;
-              }
-              zipFile(
-                  HopVfs.getFileObject(
-                      Const.HOP_CONFIG_FOLDER + Const.FILE_SEPARATOR + Const.HOP_CONFIG),
-                  projectDirectory.getName().getBaseName()
-                      + Const.FILE_SEPARATOR
-                      + Const.HOP_CONFIG,
-                  zos,
-                  projectHomeFolder,
-                  zipFilename);
-              if (includeVariables.get()) {
-                zipString(
-                    variablesJson, "variables.json", zos, projectDirectory.getName().getBaseName());
-              }
-              if (includeMetadata.get()) {
-                zipString(
-                    metadataJson, "metadata.json", zos, projectDirectory.getName().getBaseName());
-              }
-              zos.close();
-              outputStream.close();
-              monitor.done();
+              result.set(exporter.export(monitor));
+            } catch (InterruptedException e) {
+              throw e;
             } catch (Exception e) {
               throw new InvocationTargetException(e, "Error zipping project: " + e.getMessage());
             }
           };
 
       ProgressMonitorDialog pmd = new ProgressMonitorDialog(shell);
-      pmd.run(false, op);
+      try {
+        pmd.run(true, op);
+      } catch (InterruptedException e) {
+        // Cancelled, the partial zip file is removed
+        return;
+      }
+      if (result.get() == null) {
+        return;
+      }
 
       GuiResource.getInstance().toClipboard(zipFilename);
 
+      ProjectExportResult exportResult = result.get();
       MessageBox box = new MessageBox(shell, SWT.CLOSE | SWT.ICON_INFORMATION);
       box.setText(BaseMessages.getString(PKG, "ProjectGuiPlugin.ZipDirectory.Dialog.Header"));
       box.setMessage(
           BaseMessages.getString(PKG, "ProjectGuiPlugin.ZipDirectory.Dialog.Message1", zipFilename)
               + Const.CR
-              + BaseMessages.getString(PKG, "ProjectGuiPlugin.ZipDirectory.Dialog.Message2"));
+              + BaseMessages.getString(PKG, "ProjectGuiPlugin.ZipDirectory.Dialog.Message2")
+              + Const.CR
+              + BaseMessages.getString(
+                  PKG,
+                  "ProjectGuiPlugin.ZipDirectory.Dialog.Throughput",
+                  Integer.toString(exportResult.getEntryCount()),
+                  String.format("%.1f", exportResult.getBytesRead() / (1024.0 * 1024.0)),
+                  String.format("%.1f", exportResult.getBytesWritten() / (1024.0 * 1024.0)),
+                  String.format("%.1f", exportResult.getElapsedMillis() / 1000.0),
+                  String.format("%.1f", exportResult.getThroughput())));
       box.open();
     } catch (Exception e) {
       new ErrorDialog(
@@ -1301,88 +1269,4 @@ public class ProjectsGuiPlugin {
           e);
     }
   }
-
-  /**
-   * Add file Object to zip file
-   *
-   * @param fileToZip the file to add
-   * @param filename destination filename
-   * @param zipOutputStream zip output stream to append the file to
-   * @param linkedProjectHome linked project home folder to be stripped from the base path
-   * @param zipFilename name of the destination zip file
-   * @throws IOException when failing to add a file to the zip
-   */
-  public void zipFile(
-      FileObject fileToZip,
-      String filename,
-      ZipOutputStream zipOutputStream,
-      String linkedProjectHome,
-      String zipFilename)
-      throws IOException {
-    if (fileToZip.isHidden()) {
-      return;
-    }
-    if (fileToZip.isFolder()) {
-      if (filename.endsWith("/")) {
-        zipOutputStream.putNextEntry(new ZipEntry(filename.replaceAll(linkedProjectHome, "")));
-        zipOutputStream.closeEntry();
-      } else {
-        zipOutputStream.putNextEntry(
-            new ZipEntry(filename.replaceAll(linkedProjectHome, "") + "/"));
-        zipOutputStream.closeEntry();
-      }
-      FileObject[] children = fileToZip.getChildren();
-      for (FileObject childFile : children) {
-        if (childFile.equals(zipFilename)) {
-          return;
-        }
-        zipFile(
-            childFile,
-            filename + "/" + childFile.getName().getBaseName(),
-            zipOutputStream,
-                linkedProjectHome,
-            zipFilename);
-      }
-      return;
-    }
-    InputStream fis = HopVfs.getInputStream(fileToZip);
-    ZipEntry zipEntry = new ZipEntry(filename.replaceAll(linkedProjectHome, ""));
-    zipOutputStream.putNextEntry(zipEntry);
-    byte[] bytes = new byte[1024];
-    int length;
-    while ((length = fis.read(bytes)) >= 0) {
-      zipOutputStream.write(bytes, 0, length);
-    }
-    zipOutputStream.closeEntry();
-    fis.close();
-  }
-
-  /**
-   * Add a string to a zip file
-   *
-   * @param stringToZip the string that needs to be added to the zip file
-   * @param filename the destination filename inside the zip
-   * @param zipOutputStream output stream of the zip file
-   * @param linkedProjectHome the root folder of the zip file
-   * @throws IOException when adding to the zip file fails
-   */
-  public void zipString(
-      String stringToZip,
-      String filename,
-      ZipOutputStream zipOutputStream,
-      String linkedProjectHome)
-      throws IOException {
-    if (stringToZip == null || stringToZip.isEmpty()) {
-      return;
-    }
-    ByteArrayInputStream bais = new ByteArrayInputStream(stringToZip.getBytes());
-    zipOutputStream.putNextEntry(new ZipEntry(linkedProjectHome + "/" + filename));
-    byte[] bytes = new byte[1024];
-    int length;
-    while ((length = bais.read(bytes)) >= 0) {
-      zipOutputStream.write(bytes, 0, length);
-    }
-    zipOutputStream.closeEntry();
-    bais.close();
-  }
 }
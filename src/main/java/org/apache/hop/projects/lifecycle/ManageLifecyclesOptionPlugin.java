@@ -19,7 +19,6 @@ package org.apache.hop.projects.lifecycle;
 
 import java.util.Arrays;
 import java.util.List;
-import org.apache.hop.core.config.HopConfig;
 import org.apache.hop.core.config.plugin.IConfigOptions;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.logging.ILogChannel;
@@ -107,7 +106,7 @@ public class ManageLifecyclesOptionPlugin implements IConfigOptions {
   }
 
   private void listLifecycles(ILogChannel log) {
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     log.logBasic("Project lifecycles:");
     List<String> names = config.listLifecycleNames();
@@ -142,7 +141,7 @@ public class ManageLifecyclesOptionPlugin implements IConfigOptions {
 
     config.removeLifecycle(lifecycleName);
 
-    HopConfig.getInstance().saveToFile();
+    ProjectsConfigSingleton.saveConfig();
     log.logBasic(CONST_PROJECT_LIFECYCLE + lifecycleName + "' was delete.");
   }
 
@@ -165,7 +164,7 @@ public class ManageLifecyclesOptionPlugin implements IConfigOptions {
     }
 
     config.addLifecycle(lifecycle);
-    HopConfig.getInstance().saveToFile();
+    ProjectsConfigSingleton.saveConfig();
     log.logBasic(CONST_PROJECT_LIFECYCLE + lifecycleName + "' was modified.");
     log.logBasic("Details after changes:");
     logLifecycleDetails(log, lifecycle);
@@ -192,7 +191,7 @@ public class ManageLifecyclesOptionPlugin implements IConfigOptions {
     }
 
     config.addLifecycle(lifecycle);
-    HopConfig.getInstance().saveToFile();
+    ProjectsConfigSingleton.saveConfig();
     log.logBasic(CONST_PROJECT_LIFECYCLE + lifecycleName + "' was created.");
     log.logBasic("Details after creation:");
     logLifecycleDetails(log, lifecycle);
@@ -18,6 +18,7 @@
 package org.apache.hop.projects.lifecycle;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -29,6 +30,10 @@ public class ProjectLifecycle {
 
   private List<String> configurationFiles;
 
+  // Set on the copies held by a read-only projects configuration snapshot
+  //
+  private transient boolean readOnly;
+
   public ProjectLifecycle() {
     this.lifecycleEnvironments = new ArrayList<>();
     this.configurationFiles = new ArrayList<>();
@@ -41,6 +46,29 @@ public class ProjectLifecycle {
     this.configurationFiles = configurationFiles;
   }
 
+  /**
+   * Create a copy of this lifecycle which can't be modified, its lists included. Any attempt to do
+   * so throws an {@link UnsupportedOperationException}.
+   *
+   * @return A new read-only lifecycle
+   */
+  public ProjectLifecycle createReadOnlyCopy() {
+    ProjectLifecycle copy =
+        new ProjectLifecycle(
+            name,
+            Collections.unmodifiableList(new ArrayList<>(lifecycleEnvironments)),
+            Collections.unmodifiableList(new ArrayList<>(configurationFiles)));
+    copy.readOnly = true;
+    return copy;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException(
+          "Lifecycle '" + name + "' is part of a read-only projects configuration snapshot");
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -71,6 +99,7 @@ public class ProjectLifecycle {
    * @param name The name to set
    */
   public void setName(String name) {
+    checkWritable();
     this.name = name;
   }
 
@@ -87,6 +116,7 @@ public class ProjectLifecycle {
    * @param lifecycleEnvironments The lifecycleEnvironments to set
    */
   public void setLifecycleEnvironments(List<String> lifecycleEnvironments) {
+    checkWritable();
     this.lifecycleEnvironments = lifecycleEnvironments;
   }
 
@@ -103,6 +133,7 @@ public class ProjectLifecycle {
    * @param configurationFiles The configurationFiles to set
    */
   public void setConfigurationFiles(List<String> configurationFiles) {
+    checkWritable();
     this.configurationFiles = configurationFiles;
   }
 }
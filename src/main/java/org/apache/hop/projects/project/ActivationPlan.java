@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hop.core.Const;
+import org.apache.hop.core.util.StringUtil;
+import org.apache.hop.core.variables.IVariables;
+
+/**
+ * The compiled outcome of activating a project in a given environment: the final values of all the
+ * variables which are set during activation, in order, together with the list of metadata folders.
+ *
+ * <p>A plan stays valid as long as the project definition, the projects configuration, the files it
+ * was read from and the values of the variables it resolved don't change. Other variables don't
+ * matter. See {@link #isValid(String, IVariables)}.
+ */
+public class ActivationPlan {
+
+  private final String fingerprint;
+  private final Map<String, String> variables;
+  private final List<String> metadataFolders;
+  private final Map<String, String> fileStamps;
+  private final Map<String, String> inputVariables;
+
+  private ActivationPlan(
+      String fingerprint,
+      Map<String, String> variables,
+      Map<String, String> fileStamps,
+      Map<String, String> inputVariables) {
+    this.fingerprint = fingerprint;
+    this.variables = Collections.unmodifiableMap(new LinkedHashMap<>(variables));
+    this.fileStamps = Collections.unmodifiableMap(new LinkedHashMap<>(fileStamps));
+    this.inputVariables = Collections.unmodifiableMap(new LinkedHashMap<>(inputVariables));
+
+    List<String> folders = new ArrayList<>();
+    String metadataFolder = variables.get(Const.HOP_METADATA_FOLDER);
+    if (StringUtils.isNotEmpty(metadataFolder)) {
+      for (String folder : metadataFolder.split(",")) {
+        if (StringUtils.isNotEmpty(folder)) {
+          folders.add(folder.trim());
+        }
+      }
+    }
+    this.metadataFolders = Collections.unmodifiableList(folders);
+  }
+
+  /**
+   * See if this plan can still be used for the given project definition fingerprint and input
+   * variables. Only the variables which were resolved while compiling the plan are compared. The
+   * files which were read to compile the plan are checked for changes as well.
+   *
+   * @param fingerprint The fingerprint of the project definition
+   * @param variables The variables the plan is going to be applied to
+   * @return true if applying this plan gives the same result as a fresh activation
+   */
+  public boolean isValid(String fingerprint, IVariables variables) {
+    if (!this.fingerprint.equals(fingerprint)) {
+      return false;
+    }
+    for (Map.Entry<String, String> entry : inputVariables.entrySet()) {
+      if (!Objects.equals(variables.getVariable(entry.getKey()), entry.getValue())) {
+        return false;
+      }
+    }
+    for (Map.Entry<String, String> entry : fileStamps.entrySet()) {
+      if (!entry.getValue().equals(ProjectFileStamps.getFileStamp(entry.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * See if all the variables of this plan already have their planned value.
+   *
+   * @param variables The variables to check
+   * @return true if the plan is already active in the given variables
+   */
+  public boolean isActiveIn(IVariables variables) {
+    for (Map.Entry<String, String> entry : this.variables.entrySet()) {
+      if (!Objects.equals(variables.getVariable(entry.getKey()), entry.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Set all the variables of this plan. Nothing is done if the plan is already active.
+   *
+   * @param variables The variables to modify
+   * @return true if variables were modified, false if the plan was already active
+   */
+  public boolean applyTo(IVariables variables) {
+    if (isActiveIn(variables)) {
+      return false;
+    }
+    for (Map.Entry<String, String> entry : this.variables.entrySet()) {
+      variables.setVariable(entry.getKey(), entry.getValue());
+    }
+    return true;
+  }
+
+  /**
+   * Gets fingerprint
+   *
+   * @return value of fingerprint
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Gets the variables set by this plan, in the order in which they are set
+   *
+   * @return value of variables
+   */
+  public Map<String, String> getVariables() {
+    return variables;
+  }
+
+  /**
+   * Gets metadataFolders
+   *
+   * @return value of metadataFolders
+   */
+  public List<String> getMetadataFolders() {
+    return metadataFolders;
+  }
+
+  /**
+   * Records the variables which are set while a project is being activated. The variables are also
+   * set on the working variables so that later values can be resolved against earlier ones.
+   * Expressions are resolved through {@link #resolve(String)} so that the plan knows which input
+   * variables it depends on.
+   */
+  static class Builder {
+    private final String fingerprint;
+    private final IVariables input;
+    private final IVariables work;
+    private final Map<String, String> variables;
+    private final Map<String, String> fileStamps;
+    private final Map<String, String> inputVariables;
+
+    Builder(String fingerprint, IVariables input, IVariables work) {
+      this.fingerprint = fingerprint;
+      this.input = input;
+      this.work = work;
+      this.variables = new LinkedHashMap<>();
+      this.fileStamps = new LinkedHashMap<>();
+      this.inputVariables = new LinkedHashMap<>();
+    }
+
+    IVariables getVariables() {
+      return work;
+    }
+
+    /**
+     * Resolve an expression against the working variables.
+     *
+     * @param expression The expression to resolve
+     * @return The resolved expression
+     */
+    String resolve(String expression) {
+      addUsedVariables(expression);
+      return work.resolve(expression);
+    }
+
+    /**
+     * Remember the current value of the variables used in the given expression, unless the plan
+     * sets them itself. Variables referenced in those values are followed as well.
+     *
+     * @param expression The expression which is going to be resolved
+     */
+    void addUsedVariables(String expression) {
+      addUsedVariables(expression, new HashSet<>());
+    }
+
+    private void addUsedVariables(String expression, Set<String> followed) {
+      if (StringUtils.isEmpty(expression)) {
+        return;
+      }
+      List<String> names = new ArrayList<>();
+      StringUtil.getUsedVariables(expression, names, true);
+      for (String name : names) {
+        if (!followed.add(name)) {
+          continue;
+        }
+        if (variables.containsKey(name)) {
+          addUsedVariables(variables.get(name), followed);
+        } else {
+          if (!inputVariables.containsKey(name)) {
+            inputVariables.put(name, input.getVariable(name));
+          }
+          addUsedVariables(inputVariables.get(name), followed);
+        }
+      }
+    }
+
+    void setVariable(String name, String value) {
+      work.setVariable(name, value);
+      variables.put(name, value);
+    }
+
+    void addFile(String filename) {
+      if (StringUtils.isNotEmpty(filename)) {
+        fileStamps.put(filename, ProjectFileStamps.getFileStamp(filename));
+      }
+    }
+
+    ActivationPlan build() {
+      return new ActivationPlan(fingerprint, variables, fileStamps, inputVariables);
+    }
+  }
+}
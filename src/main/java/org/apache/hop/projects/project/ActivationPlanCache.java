@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hop.core.Const;
+
+/** Keeps the last compiled activation plan for every project and environment combination. */
+public class ActivationPlanCache {
+
+  private static final ActivationPlanCache instance = new ActivationPlanCache();
+
+  private final Map<String, ActivationPlan> plans;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  private ActivationPlanCache() {
+    plans = new ConcurrentHashMap<>();
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+  }
+
+  public static ActivationPlanCache getInstance() {
+    return instance;
+  }
+
+  private static String getKey(String projectName, String environmentName) {
+    return Const.NVL(projectName, "") + "\u0000" + Const.NVL(environmentName, "");
+  }
+
+  /**
+   * Get the cached plan for the given project and environment.
+   *
+   * @param projectName The name of the project
+   * @param environmentName The name of the environment, can be null
+   * @return The cached plan or null if there isn't any
+   */
+  public ActivationPlan get(String projectName, String environmentName) {
+    return plans.get(getKey(projectName, environmentName));
+  }
+
+  public void put(String projectName, String environmentName, ActivationPlan plan) {
+    plans.put(getKey(projectName, environmentName), plan);
+  }
+
+  void registerHit() {
+    hits.incrementAndGet();
+  }
+
+  void registerMiss() {
+    misses.incrementAndGet();
+  }
+
+  /** Remove all cached plans */
+  public void invalidateAll() {
+    plans.clear();
+  }
+
+  /**
+   * Gets the number of activations which used a cached plan
+   *
+   * @return value of hits
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of activations which needed to compile a new plan
+   *
+   * @return value of misses
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+}
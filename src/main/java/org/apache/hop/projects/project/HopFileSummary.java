@@ -0,0 +1,342 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The parts of a pipeline or workflow file which are needed to take an inventory of a project: the
+ * transforms or actions with their types and the connections, files and variables they reference.
+ * See {@link HopFileSummaryReader}.
+ */
+public class HopFileSummary {
+
+  private String filename;
+  private ProjectFileScanner.FileType fileType;
+  private String name;
+  private List<Item> items;
+  private Set<String> connections;
+  private Set<String> referencedFiles;
+  private Set<String> variables;
+
+  public HopFileSummary() {
+    this.items = new ArrayList<>();
+    this.connections = new TreeSet<>();
+    this.referencedFiles = new TreeSet<>();
+    this.variables = new TreeSet<>();
+  }
+
+  public HopFileSummary(String filename, ProjectFileScanner.FileType fileType) {
+    this();
+    this.filename = filename;
+    this.fileType = fileType;
+  }
+
+  /** A transform in a pipeline or an action in a workflow */
+  public static class Item {
+    private String name;
+    private String type;
+    private Set<String> connections;
+    private Set<String> referencedFiles;
+    private List<MetadataReference> metadataReferences;
+
+    public Item() {
+      this.connections = new TreeSet<>();
+      this.referencedFiles = new TreeSet<>();
+      this.metadataReferences = new ArrayList<>();
+    }
+
+    /**
+     * Gets name
+     *
+     * @return value of name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @param name The name to set
+     */
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Gets the plugin ID of the transform or action
+     *
+     * @return value of type
+     */
+    public String getType() {
+      return type;
+    }
+
+    /**
+     * @param type The type to set
+     */
+    public void setType(String type) {
+      this.type = type;
+    }
+
+    /**
+     * Gets the names of the connections referenced by this item
+     *
+     * @return value of connections
+     */
+    public Set<String> getConnections() {
+      return connections;
+    }
+
+    /**
+     * @param connections The connections to set
+     */
+    public void setConnections(Set<String> connections) {
+      this.connections = connections;
+    }
+
+    /**
+     * Gets the filenames referenced by this item, like sub-pipelines or workflows
+     *
+     * @return value of referencedFiles
+     */
+    public Set<String> getReferencedFiles() {
+      return referencedFiles;
+    }
+
+    /**
+     * @param referencedFiles The referencedFiles to set
+     */
+    public void setReferencedFiles(Set<String> referencedFiles) {
+      this.referencedFiles = referencedFiles;
+    }
+
+    /**
+     * Gets the metadata items referenced by this item
+     *
+     * @return value of metadataReferences
+     */
+    public List<MetadataReference> getMetadataReferences() {
+      return metadataReferences;
+    }
+
+    /**
+     * @param metadataReferences The metadataReferences to set
+     */
+    public void setMetadataReferences(List<MetadataReference> metadataReferences) {
+      this.metadataReferences = metadataReferences;
+    }
+  }
+
+  /** A reference from a transform or action property to a metadata item */
+  public static class MetadataReference {
+    private String metadataType;
+    private String name;
+    private String property;
+
+    public MetadataReference() {
+      // For Jackson
+    }
+
+    public MetadataReference(String metadataType, String name, String property) {
+      this.metadataType = metadataType;
+      this.name = name;
+      this.property = property;
+    }
+
+    /**
+     * Gets the metadata property type of the referenced item, for example RDBMS_CONNECTION
+     *
+     * @return value of metadataType
+     */
+    public String getMetadataType() {
+      return metadataType;
+    }
+
+    /**
+     * @param metadataType The metadataType to set
+     */
+    public void setMetadataType(String metadataType) {
+      this.metadataType = metadataType;
+    }
+
+    /**
+     * Gets the name of the referenced metadata item
+     *
+     * @return value of name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @param name The name to set
+     */
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Gets the key of the property holding the reference
+     *
+     * @return value of property
+     */
+    public String getProperty() {
+      return property;
+    }
+
+    /**
+     * @param property The property to set
+     */
+    public void setProperty(String property) {
+      this.property = property;
+    }
+  }
+
+  /**
+   * Gets filename
+   *
+   * @return value of filename
+   */
+  public String getFilename() {
+    return filename;
+  }
+
+  /**
+   * @param filename The filename to set
+   */
+  public void setFilename(String filename) {
+    this.filename = filename;
+  }
+
+  /**
+   * Gets fileType
+   *
+   * @return value of fileType
+   */
+  public ProjectFileScanner.FileType getFileType() {
+    return fileType;
+  }
+
+  /**
+   * @param fileType The fileType to set
+   */
+  public void setFileType(ProjectFileScanner.FileType fileType) {
+    this.fileType = fileType;
+  }
+
+  /**
+   * Gets the name of the pipeline or workflow
+   *
+   * @return value of name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param name The name to set
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets the transforms or actions
+   *
+   * @return value of items
+   */
+  public List<Item> getItems() {
+    return items;
+  }
+
+  /**
+   * @param items The items to set
+   */
+  public void setItems(List<Item> items) {
+    this.items = items;
+  }
+
+  /**
+   * Gets the names of all the connections referenced in the file
+   *
+   * @return value of connections
+   */
+  public Set<String> getConnections() {
+    return connections;
+  }
+
+  /**
+   * @param connections The connections to set
+   */
+  public void setConnections(Set<String> connections) {
+    this.connections = connections;
+  }
+
+  /**
+   * Gets all the filenames referenced in the file
+   *
+   * @return value of referencedFiles
+   */
+  public Set<String> getReferencedFiles() {
+    return referencedFiles;
+  }
+
+  /**
+   * @param referencedFiles The referencedFiles to set
+   */
+  public void setReferencedFiles(Set<String> referencedFiles) {
+    this.referencedFiles = referencedFiles;
+  }
+
+  /**
+   * Gets the names of all the variables used in the file
+   *
+   * @return value of variables
+   */
+  public Set<String> getVariables() {
+    return variables;
+  }
+
+  /**
+   * @param variables The variables to set
+   */
+  public void setVariables(Set<String> variables) {
+    this.variables = variables;
+  }
+
+  /**
+   * Gets the plugin IDs of all the transforms or actions
+   *
+   * @return The sorted plugin IDs
+   */
+  @JsonIgnore
+  public Set<String> getTypes() {
+    Set<String> types = new TreeSet<>();
+    for (Item item : items) {
+      if (item.getType() != null) {
+        types.add(item.getType());
+      }
+    }
+    return Collections.unmodifiableSet(types);
+  }
+}
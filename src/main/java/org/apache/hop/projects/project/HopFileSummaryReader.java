@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.hop.core.exception.HopException;
+
+/**
+ * Reads a summary of a pipeline or workflow file with a streaming XML parser. Nothing but the
+ * summary is kept in memory: no plugins are loaded and no metadata is resolved. Large files are
+ * memory mapped instead of being read through a buffered stream.
+ */
+public class HopFileSummaryReader {
+
+  /** Files of at least this size are memory mapped */
+  public static final long MEMORY_MAP_THRESHOLD = 8L * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final String ELEMENT_PIPELINE = "pipeline";
+  private static final String ELEMENT_WORKFLOW = "workflow";
+  private static final String ELEMENT_INFO = "info";
+  private static final String ELEMENT_TRANSFORM = "transform";
+  private static final String ELEMENT_ACTIONS = "actions";
+  private static final String ELEMENT_ACTION = "action";
+  private static final String ELEMENT_NAME = "name";
+  private static final String ELEMENT_TYPE = "type";
+  private static final String ELEMENT_CONNECTION = "connection";
+  private static final String ELEMENT_FILENAME = "filename";
+
+  /** Provides the keys of the elements referencing metadata for a transform or action plugin */
+  @FunctionalInterface
+  public interface IReferenceKeys {
+    Map<String, String> getKeys(ProjectFileScanner.FileType fileType, String pluginId);
+  }
+
+  private static final class FactoryHolder {
+    private static final XMLInputFactory FACTORY;
+
+    static {
+      FACTORY = XMLInputFactory.newFactory();
+      FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+      FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+  }
+
+  private HopFileSummaryReader() {
+    // Static methods only
+  }
+
+  /**
+   * Read the summary of the given pipeline or workflow file
+   *
+   * @param path The file to read
+   * @param fileType The type of file
+   * @return The summary
+   * @throws HopException In case the file can't be read or parsed
+   */
+  public static HopFileSummary read(Path path, ProjectFileScanner.FileType fileType)
+      throws HopException {
+    return read(path, fileType, null, null);
+  }
+
+  /**
+   * Read the summary of the given pipeline or workflow file and calculate a digest of its content
+   * while reading.
+   *
+   * @param path The file to read
+   * @param fileType The type of file
+   * @param digest The digest to update with the complete content of the file, can be null
+   * @param referenceKeys Used to find the metadata references of every item, can be null
+   * @return The summary
+   * @throws HopException In case the file can't be read or parsed
+   */
+  public static HopFileSummary read(
+      Path path,
+      ProjectFileScanner.FileType fileType,
+      MessageDigest digest,
+      IReferenceKeys referenceKeys)
+      throws HopException {
+    try {
+      long size = Files.size(path);
+      if (size >= MEMORY_MAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+          MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+          return read(
+              new ByteBufferInputStream(buffer), path.toString(), fileType, digest, referenceKeys);
+        }
+      }
+      try (InputStream inputStream =
+          new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+        return read(inputStream, path.toString(), fileType, digest, referenceKeys);
+      }
+    } catch (HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error reading summary of file '" + path + "'", e);
+    }
+  }
+
+  private static HopFileSummary read(
+      InputStream inputStream,
+      String filename,
+      ProjectFileScanner.FileType fileType,
+      MessageDigest digest,
+      IReferenceKeys referenceKeys)
+      throws HopException, IOException {
+    if (digest == null) {
+      return read(inputStream, filename, fileType, referenceKeys);
+    }
+    DigestInputStream digestInputStream = new DigestInputStream(inputStream, digest);
+    HopFileSummary summary = read(digestInputStream, filename, fileType, referenceKeys);
+
+    // The parser can stop before the end of the file, the digest needs all of it
+    //
+    byte[] buffer = new byte[BUFFER_SIZE];
+    while (digestInputStream.read(buffer) >= 0) {
+      // Keep reading
+    }
+    return summary;
+  }
+
+  /**
+   * Read the summary of a pipeline or workflow from the given stream
+   *
+   * @param inputStream The stream to read from, it is not closed
+   * @param filename The filename to report in the summary
+   * @param fileType The type of file
+   * @param referenceKeys Used to find the metadata references of every item, can be null
+   * @return The summary
+   * @throws HopException In case the XML can't be parsed
+   */
+  public static HopFileSummary read(
+      InputStream inputStream,
+      String filename,
+      ProjectFileScanner.FileType fileType,
+      IReferenceKeys referenceKeys)
+      throws HopException {
+    HopFileSummary summary = new HopFileSummary(filename, fileType);
+    XMLStreamReader reader = null;
+    try {
+      reader = FactoryHolder.FACTORY.createXMLStreamReader(inputStream);
+      parse(reader, summary, referenceKeys);
+      return summary;
+    } catch (XMLStreamException e) {
+      throw new HopException("Error parsing file '" + filename + "'", e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // Ignore, the underlying stream is closed by the caller
+        }
+      }
+    }
+  }
+
+  private static void parse(
+      XMLStreamReader reader, HopFileSummary summary, IReferenceKeys referenceKeys)
+      throws XMLStreamException {
+    List<String> elements = new ArrayList<>();
+    StringBuilder text = new StringBuilder();
+    HopFileSummary.Item item = null;
+    int itemDepth = -1;
+
+    // The values of the item, the type is only known to be complete at the end of the item
+    //
+    List<String[]> itemValues = new ArrayList<>();
+
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          elements.add(reader.getLocalName());
+          text.setLength(0);
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            collectVariables(reader.getAttributeValue(i), summary.getVariables());
+          }
+          if (item == null && isItemElement(elements)) {
+            item = new HopFileSummary.Item();
+            itemDepth = elements.size();
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+          text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          int depth = elements.size();
+          String element = elements.get(depth - 1);
+          String value = text.toString().trim();
+          collectVariables(value, summary.getVariables());
+
+          if (item != null) {
+            if (depth == itemDepth) {
+              if (referenceKeys != null) {
+                addMetadataReferences(item, itemValues, summary.getFileType(), referenceKeys);
+              }
+              summary.getItems().add(item);
+              item = null;
+              itemDepth = -1;
+              itemValues.clear();
+            } else {
+              if (referenceKeys != null && !value.isEmpty()) {
+                itemValues.add(new String[] {element, value});
+              }
+              if (depth == itemDepth + 1) {
+                if (ELEMENT_NAME.equals(element)) {
+                  item.setName(value);
+                } else if (ELEMENT_TYPE.equals(element)) {
+                  item.setType(value);
+                }
+              }
+              if (!value.isEmpty()) {
+                if (ELEMENT_CONNECTION.equals(element)) {
+                  item.getConnections().add(value);
+                  summary.getConnections().add(value);
+                } else if (ELEMENT_FILENAME.equals(element)) {
+                  item.getReferencedFiles().add(value);
+                  summary.getReferencedFiles().add(value);
+                }
+              }
+            }
+          } else if (ELEMENT_NAME.equals(element) && isNameElement(elements)) {
+            summary.setName(value);
+          } else if (ELEMENT_CONNECTION.equals(element) && !value.isEmpty()) {
+            summary.getConnections().add(value);
+          }
+
+          elements.remove(depth - 1);
+          text.setLength(0);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static void addMetadataReferences(
+      HopFileSummary.Item item,
+      List<String[]> itemValues,
+      ProjectFileScanner.FileType fileType,
+      IReferenceKeys referenceKeys) {
+    Map<String, String> keys = referenceKeys.getKeys(fileType, item.getType());
+    if (keys == null || keys.isEmpty()) {
+      return;
+    }
+    for (String[] itemValue : itemValues) {
+      String metadataType = keys.get(itemValue[0]);
+      if (metadataType != null) {
+        item.getMetadataReferences()
+            .add(new HopFileSummary.MetadataReference(metadataType, itemValue[1], itemValue[0]));
+      }
+    }
+  }
+
+  private static boolean isItemElement(List<String> elements) {
+    int depth = elements.size();
+    if (depth == 2) {
+      return ELEMENT_PIPELINE.equals(elements.get(0)) && ELEMENT_TRANSFORM.equals(elements.get(1));
+    }
+    if (depth == 3) {
+      return ELEMENT_WORKFLOW.equals(elements.get(0))
+          && ELEMENT_ACTIONS.equals(elements.get(1))
+          && ELEMENT_ACTION.equals(elements.get(2));
+    }
+    return false;
+  }
+
+  private static boolean isNameElement(List<String> elements) {
+    int depth = elements.size();
+    if (depth == 2) {
+      return ELEMENT_WORKFLOW.equals(elements.get(0));
+    }
+    if (depth == 3) {
+      return ELEMENT_PIPELINE.equals(elements.get(0)) && ELEMENT_INFO.equals(elements.get(1));
+    }
+    return false;
+  }
+
+  /**
+   * Add the names of all the ${VARIABLE} expressions in the given string to the given set
+   *
+   * @param value The string to search
+   * @param variables The set to add the variable names to
+   */
+  public static void collectVariables(String value, Set<String> variables) {
+    if (value == null) {
+      return;
+    }
+    int start = value.indexOf("${");
+    while (start >= 0) {
+      int end = value.indexOf('}', start + 2);
+      if (end < 0) {
+        return;
+      }
+      String name = value.substring(start + 2, end).trim();
+      if (!name.isEmpty()) {
+        variables.add(name);
+      }
+      start = value.indexOf("${", end + 1);
+    }
+  }
+
+  /** Reads from a (memory mapped) byte buffer */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+  }
+}
@@ -0,0 +1,412 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hop.core.Const;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.core.variables.Variables;
+import org.apache.hop.projects.config.ProjectsConfig;
+import org.apache.hop.projects.config.ProjectsConfigSingleton;
+
+/**
+ * The linked project relations of all the projects in the registry. Every project has at most one
+ * linked project so every strongly connected component with more than one project, or a project
+ * linking to itself, is a simple cycle. The graph is analyzed lazily: the first time the verdict of
+ * a project is asked for, its chain of linked projects is followed and every project on it gets its
+ * verdict cached. A project is invalid if it is part of a cycle or if following its linked projects
+ * leads to one. Project names are compared case-insensitively, the way they are looked up in the
+ * projects configuration.
+ *
+ * <p>The graph of the registry, see {@link #getRegistryGraph(IVariables)}, is built once per
+ * version of the projects configuration and only loads the projects it needs to follow.
+ */
+public class LinkedProjectsGraph {
+
+  /** Resolves the linked project of a project the first time the graph needs it */
+  @FunctionalInterface
+  public interface ILinkResolver {
+    /**
+     * @param projectName The name of the project
+     * @return The name of its linked project, null or empty if there is none
+     */
+    String getLinkedProjectName(String projectName);
+  }
+
+  /** The verdict of a project which isn't part of a cycle and doesn't lead to one */
+  private static final List<String> NO_CYCLE = Collections.emptyList();
+
+  private static volatile LinkedProjectsGraph registryGraph;
+
+  /** The version of the projects configuration the graph was built for, -1 if none */
+  private final long version;
+
+  /** Project key to project name */
+  private final Map<String, String> names;
+
+  private final ILinkResolver resolver;
+
+  /** Project key to linked project name, empty if there is none. Filled as the graph is walked. */
+  private final Map<String, String> links;
+
+  /** Project key to the cycle it is part of or leads to, {@link #NO_CYCLE} if there is none */
+  private final Map<String, List<String>> verdicts;
+
+  private final List<List<String>> cycles;
+  private final List<String> topologicalOrder;
+
+  /**
+   * Build the graph.
+   *
+   * @param links The linked project name for every project name. Projects without a linked project
+   *     have a null or empty value.
+   */
+  public LinkedProjectsGraph(Map<String, String> links) {
+    this(-1L, links.keySet(), links::get);
+  }
+
+  /**
+   * Build a graph which only resolves the linked projects it needs to follow.
+   *
+   * @param projectNames The names of all the projects
+   * @param resolver Resolves the linked project of a project, at most once per project
+   */
+  public LinkedProjectsGraph(Collection<String> projectNames, ILinkResolver resolver) {
+    this(-1L, projectNames, resolver);
+  }
+
+  private LinkedProjectsGraph(
+      long version, Collection<String> projectNames, ILinkResolver resolver) {
+    Map<String, String> nameMap = new HashMap<>();
+    for (String projectName : projectNames) {
+      nameMap.put(projectKey(projectName), projectName);
+    }
+    this.version = version;
+    this.names = Collections.unmodifiableMap(nameMap);
+    this.resolver = resolver;
+    this.links = new HashMap<>();
+    this.verdicts = new ConcurrentHashMap<>();
+    this.cycles = new ArrayList<>();
+    this.topologicalOrder = new ArrayList<>();
+  }
+
+  /**
+   * Get the graph of all the projects in the registry. It's built again when the projects
+   * configuration changes or after a project was saved. The projects are loaded through the {@link
+   * ProjectCache} when the graph first needs their linked project. Filenames and linked project
+   * names containing variables are resolved with the variables which are passed when the graph is
+   * built.
+   *
+   * @param variables The variables to resolve filenames and linked project names with
+   * @return The graph of the current projects configuration
+   */
+  public static LinkedProjectsGraph getRegistryGraph(IVariables variables) {
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    LinkedProjectsGraph graph = registryGraph;
+    if (graph != null && graph.version == config.getVersion()) {
+      return graph;
+    }
+    synchronized (LinkedProjectsGraph.class) {
+      graph = registryGraph;
+      if (graph == null || graph.version != config.getVersion()) {
+        Variables resolveVariables = new Variables();
+        resolveVariables.copyFrom(variables);
+        graph =
+            new LinkedProjectsGraph(
+                config.getVersion(),
+                config.listProjectConfigNames(),
+                projectName -> loadLinkedProjectName(config, projectName, resolveVariables));
+        registryGraph = graph;
+      }
+      return graph;
+    }
+  }
+
+  /** Forget the graph of the registry, a project was saved */
+  public static void invalidateRegistryGraph() {
+    registryGraph = null;
+  }
+
+  private static String loadLinkedProjectName(
+      ProjectsConfig config, String projectName, IVariables variables) {
+    ProjectConfig projectConfig = config.findProjectConfig(projectName);
+    if (projectConfig == null) {
+      return null;
+    }
+    try {
+      Project project = projectConfig.loadProject(variables);
+      return variables.resolve(project.getLinkedProjectName());
+    } catch (HopException e) {
+      // The chain ends here, activating the project reports the problem
+      //
+      LogChannel.GENERAL.logError(
+          "Unable to load project '" + projectName + "' to follow its linked project", e);
+      return null;
+    }
+  }
+
+  /**
+   * The key projects are identified with: the lower case project name
+   *
+   * @param projectName The name of the project
+   * @return The key of the project or null if there is no name
+   */
+  static String projectKey(String projectName) {
+    return projectName == null ? null : projectName.toLowerCase(Locale.ROOT);
+  }
+
+  /** The linked project name of a known project, resolved the first time it's needed */
+  private String getLink(String key) {
+    String linked = links.get(key);
+    if (linked == null) {
+      linked = Const.NVL(resolver.getLinkedProjectName(names.get(key)), "");
+      links.put(key, linked);
+    }
+    return linked;
+  }
+
+  private String getSuccessor(String key) {
+    String linkedKey = projectKey(getLink(key));
+    if (linkedKey.isEmpty() || !names.containsKey(linkedKey)) {
+      return null;
+    }
+    return linkedKey;
+  }
+
+  /** Follow the chain starting with the given project until we reach a known verdict */
+  private synchronized List<String> analyze(String start) {
+    List<String> verdict = verdicts.get(start);
+    if (verdict != null) {
+      return verdict;
+    }
+
+    // Follow the links until we reach the end of the chain or a project we've seen before
+    //
+    List<String> path = new ArrayList<>();
+    Map<String, Integer> positions = new HashMap<>();
+    String current = start;
+    while (current != null && !verdicts.containsKey(current) && !positions.containsKey(current)) {
+      positions.put(current, path.size());
+      path.add(current);
+      current = getSuccessor(current);
+    }
+
+    List<String> cycle = NO_CYCLE;
+    if (current != null && positions.containsKey(current)) {
+      // We came back to a project on the current path: that's a new cycle
+      //
+      cycle =
+          Collections.unmodifiableList(toNames(path.subList(positions.get(current), path.size())));
+      cycles.add(cycle);
+    } else if (current != null) {
+      cycle = verdicts.get(current);
+    }
+
+    // Walk back: the end of the chain comes first in the activation order
+    //
+    for (int i = path.size() - 1; i >= 0; i--) {
+      String key = path.get(i);
+      verdicts.put(key, cycle);
+      if (cycle == NO_CYCLE) {
+        topologicalOrder.add(names.get(key));
+      }
+    }
+    return verdicts.get(start);
+  }
+
+  private void analyzeAll() {
+    for (String key : new TreeSet<>(names.keySet())) {
+      if (!verdicts.containsKey(key)) {
+        analyze(key);
+      }
+    }
+  }
+
+  private List<String> toNames(List<String> keys) {
+    List<String> list = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      list.add(names.get(key));
+    }
+    return list;
+  }
+
+  /**
+   * See if the project is known in this graph
+   *
+   * @param projectName The name of the project
+   * @return true if the project is known
+   */
+  public boolean contains(String projectName) {
+    return names.containsKey(projectKey(projectName));
+  }
+
+  /**
+   * Get the linked project name of the given project
+   *
+   * @param projectName The name of the project
+   * @return The linked project name or null if there is none
+   */
+  public synchronized String getLinkedProjectName(String projectName) {
+    String key = projectKey(projectName);
+    if (!names.containsKey(key)) {
+      return null;
+    }
+    return StringUtils.defaultIfEmpty(getLink(key), null);
+  }
+
+  /**
+   * See if the linked projects hierarchy of the given project is free of loops.
+   *
+   * @param projectName The name of the project
+   * @return true if the project is not part of a cycle and doesn't lead to one
+   */
+  public boolean isValid(String projectName) {
+    return getCycle(projectName) == null;
+  }
+
+  /**
+   * Get the cycle the given project is part of or leads to. Once the verdict of a project is known
+   * this is a single lookup.
+   *
+   * @param projectName The name of the project
+   * @return The projects in the cycle or null if there is no loop in the hierarchy of the project
+   */
+  public List<String> getCycle(String projectName) {
+    String key = projectKey(projectName);
+    if (key == null || !names.containsKey(key)) {
+      return null;
+    }
+    List<String> verdict = verdicts.get(key);
+    if (verdict == null) {
+      verdict = analyze(key);
+    }
+    return verdict.isEmpty() ? null : verdict;
+  }
+
+  /**
+   * Get the cycle the given project would be part of or would lead to with the given linked
+   * project, which might not be saved yet. When it's the linked project the graph knows, this is
+   * the cached verdict of {@link #getCycle(String)}.
+   *
+   * @param projectName The name of the project, which might not be part of the registry yet
+   * @param linkedProjectName The name of its linked project
+   * @return The projects in the cycle or null if there is no loop in the hierarchy of the project
+   */
+  public synchronized List<String> getCycle(String projectName, String linkedProjectName) {
+    String key = projectKey(projectName);
+    String linkedKey = projectKey(linkedProjectName);
+    if (StringUtils.isEmpty(linkedKey)) {
+      return null;
+    }
+    if (key != null && names.containsKey(key) && linkedKey.equals(projectKey(getLink(key)))) {
+      return getCycle(projectName);
+    }
+
+    // A link the graph doesn't know about: follow the chain of the linked project
+    //
+    List<String> path = new ArrayList<>();
+    Map<String, Integer> positions = new HashMap<>();
+    if (key != null) {
+      positions.put(key, path.size());
+      path.add(projectName);
+    }
+    String current = linkedKey;
+    while (current != null) {
+      Integer position = positions.get(current);
+      if (position != null) {
+        return Collections.unmodifiableList(new ArrayList<>(path.subList(position, path.size())));
+      }
+      if (!names.containsKey(current)) {
+        break;
+      }
+      positions.put(current, path.size());
+      path.add(names.get(current));
+      current = getSuccessor(current);
+    }
+    return null;
+  }
+
+  /**
+   * Follow the linked projects starting with the given project. Following stops at the end of the
+   * chain or when a project is encountered for the second time.
+   *
+   * @param projectName The name of the project to start with
+   * @return The names of the projects in the chain, starting with the given project
+   */
+  public synchronized List<String> getChain(String projectName) {
+    List<String> chain = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    String current = projectKey(projectName);
+    if (current != null && !names.containsKey(current)) {
+      chain.add(projectName);
+      return chain;
+    }
+    while (current != null && seen.add(current)) {
+      chain.add(names.get(current));
+      current = getSuccessor(current);
+    }
+    return chain;
+  }
+
+  /**
+   * Gets all the cycles in the registry. This follows the chains of all the projects.
+   *
+   * @return value of cycles
+   */
+  public synchronized List<List<String>> getCycles() {
+    analyzeAll();
+    return Collections.unmodifiableList(new ArrayList<>(cycles));
+  }
+
+  /**
+   * Gets the valid projects ordered so that a linked project always comes before the projects
+   * linking to it. This follows the chains of all the projects.
+   *
+   * @return value of topologicalOrder
+   */
+  public synchronized List<String> getTopologicalOrder() {
+    analyzeAll();
+    return Collections.unmodifiableList(new ArrayList<>(topologicalOrder));
+  }
+
+  /**
+   * Describe a cycle for error messages
+   *
+   * @param cycle The projects in the cycle
+   * @return A description like "a -> b -> a"
+   */
+  public static String describeCycle(List<String> cycle) {
+    if (cycle == null || cycle.isEmpty()) {
+      return "";
+    }
+    return String.join(" -> ", cycle) + " -> " + cycle.get(0);
+  }
+}
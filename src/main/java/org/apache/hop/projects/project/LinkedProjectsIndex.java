@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.projects.config.ProjectsConfig;
+import org.apache.hop.projects.config.ProjectsConfigSingleton;
+
+/**
+ * Keeps track of which projects reference a given project as their linked project. The index is
+ * built once, loading all the project configuration files in parallel, and is kept up to date
+ * incrementally: saving a project updates its entry and projects which are added, removed or moved
+ * in the projects configuration are picked up the next time the index is consulted.
+ *
+ * <p>Like {@link ProjectCache}, an entry is only trusted as long as the last modified time and the
+ * size of its configuration file didn't change. Checking every configuration file on every query
+ * doesn't scale with the number of projects though. All of them are only checked again when the
+ * projects configuration changed or when the {@link ProjectFileMonitor} reports a change to a
+ * configuration file. A query for the references of a project only checks the projects which
+ * currently reference it.
+ */
+public class LinkedProjectsIndex {
+
+  private static final LinkedProjectsIndex instance = new LinkedProjectsIndex();
+
+  /** Project name to its indexed entry */
+  private final Map<String, Entry> entries;
+
+  /** Resolved configuration filename to project name */
+  private final Map<String, String> projectNamesByConfigFile;
+
+  /** Linked project key (the lower case name) to the names of the projects referencing it */
+  private final Map<String, Set<String>> referencesByLinkedProject;
+
+  private long indexedVersion;
+  private boolean built;
+
+  /** Set when a configuration file changed: all the entries are checked the next time */
+  private volatile boolean revalidate;
+
+  private long modificationCount;
+  private long graphModificationCount;
+  private LinkedProjectsGraph graph;
+
+  private LinkedProjectsIndex() {
+    entries = new HashMap<>();
+    projectNamesByConfigFile = new HashMap<>();
+    referencesByLinkedProject = new HashMap<>();
+    indexedVersion = -1;
+    ProjectFileMonitor.getInstance().addListener(this::filesChanged);
+  }
+
+  public static LinkedProjectsIndex getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the names of the projects which have the given project as their linked project.
+   *
+   * @param projectName The name of the linked project
+   * @param variables The variables to resolve the project configuration filenames with
+   * @return The sorted names of the referencing projects, never null
+   */
+  public synchronized List<String> getReferences(String projectName, IVariables variables) {
+    refresh(variables);
+    String key = LinkedProjectsGraph.projectKey(projectName);
+    Set<String> references = referencesByLinkedProject.get(key);
+    if (references != null) {
+      reloadStale(new ArrayList<>(references), variables);
+      references = referencesByLinkedProject.get(key);
+    }
+    if (references == null) {
+      return Collections.emptyList();
+    }
+    List<String> list = new ArrayList<>(references);
+    list.removeIf(name -> key.equals(LinkedProjectsGraph.projectKey(name)));
+    return list;
+  }
+
+  /**
+   * Get the graph of the linked project relations of all the projects in the registry. The graph
+   * is only calculated again after the index changed. Linked project names containing variables
+   * are resolved with the variables which are passed when the graph is calculated.
+   *
+   * @param variables The variables to resolve filenames and linked project names with
+   * @return The linked projects graph
+   */
+  public synchronized LinkedProjectsGraph getGraph(IVariables variables) {
+    refresh(variables);
+    if (graph == null || graphModificationCount != modificationCount) {
+      Map<String, String> links = new HashMap<>();
+      for (Entry entry : entries.values()) {
+        links.put(entry.projectName, variables.resolve(entry.linkedProjectName));
+      }
+      graph = new LinkedProjectsGraph(links);
+      graphModificationCount = modificationCount;
+    }
+    return graph;
+  }
+
+  /**
+   * Called after a project was written to its configuration file.
+   *
+   * @param configFilename The resolved configuration filename of the project
+   * @param linkedProjectName The linked project name which was saved
+   */
+  public synchronized void projectSaved(String configFilename, String linkedProjectName) {
+    String projectName = projectNamesByConfigFile.get(configFilename);
+    if (projectName == null) {
+      // Not indexed yet: it will be picked up when the projects configuration changes
+      return;
+    }
+    Entry entry = entries.get(projectName);
+    if (entry != null) {
+      index(
+          new Entry(
+              projectName,
+              entry.projectHome,
+              entry.configFilename,
+              configFilename,
+              ProjectFileStamps.getFileStamp(configFilename),
+              linkedProjectName));
+    }
+  }
+
+  /** Forget everything, the index is rebuilt the next time it's consulted */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    projectNamesByConfigFile.clear();
+    referencesByLinkedProject.clear();
+    indexedVersion = -1;
+    built = false;
+    graph = null;
+  }
+
+  private void filesChanged(List<ProjectFileEvent> events) {
+    for (ProjectFileEvent event : events) {
+      if (event.getFileType() == ProjectFileEvent.FileType.CONFIG
+          || event.getKind() == ProjectFileEvent.Kind.OVERFLOW) {
+        revalidate = true;
+        return;
+      }
+    }
+  }
+
+  private void refresh(IVariables variables) {
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    if (built && config.getVersion() == indexedVersion && !revalidate) {
+      return;
+    }
+    revalidate = false;
+
+    // Forget about the projects which were removed from the projects configuration
+    //
+    Set<String> names = new HashSet<>();
+    for (ProjectConfig projectConfig : config.getProjectConfigurations()) {
+      names.add(projectConfig.getProjectName());
+    }
+    for (String name : new ArrayList<>(entries.keySet())) {
+      if (!names.contains(name)) {
+        unindex(name);
+      }
+    }
+
+    reload(config.getProjectConfigurations(), variables);
+
+    indexedVersion = config.getVersion();
+    built = true;
+  }
+
+  private void reloadStale(List<String> projectNames, IVariables variables) {
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    List<ProjectConfig> projectConfigs = new ArrayList<>();
+    for (String projectName : projectNames) {
+      ProjectConfig projectConfig = config.findProjectConfig(projectName);
+      if (projectConfig != null) {
+        projectConfigs.add(projectConfig);
+      }
+    }
+    reload(projectConfigs, variables);
+  }
+
+  /**
+   * Only (re-)load the projects which are new, which moved or of which the configuration file
+   * changed since the last time. The entries are only read while this happens.
+   */
+  private void reload(List<ProjectConfig> projectConfigs, IVariables variables) {
+    List<Entry> loaded =
+        projectConfigs.parallelStream()
+            .filter(this::isStale)
+            .map(projectConfig -> load(projectConfig, variables))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    for (Entry entry : loaded) {
+      index(entry);
+    }
+  }
+
+  private boolean isStale(ProjectConfig projectConfig) {
+    Entry entry = entries.get(projectConfig.getProjectName());
+    return entry == null
+        || !Objects.equals(entry.projectHome, projectConfig.getProjectHome())
+        || !Objects.equals(entry.configFilename, projectConfig.getConfigFilename())
+        || !entry.fileStamp.equals(ProjectFileStamps.getFileStamp(entry.actualConfigFilename));
+  }
+
+  private static Entry load(ProjectConfig projectConfig, IVariables variables) {
+    try {
+      String actualConfigFilename = projectConfig.getActualProjectConfigFilename(variables);
+
+      // Take the stamp before reading the file: a change in between gets picked up next time
+      //
+      String fileStamp = ProjectFileStamps.getFileStamp(actualConfigFilename);
+      Project project = ProjectCache.getInstance().loadProject(actualConfigFilename);
+      return new Entry(
+          projectConfig.getProjectName(),
+          projectConfig.getProjectHome(),
+          projectConfig.getConfigFilename(),
+          actualConfigFilename,
+          fileStamp,
+          project.getLinkedProjectName());
+    } catch (HopException e) {
+      LogChannel.GENERAL.logError(
+          "Unable to load project '" + projectConfig.getProjectName() + "' from its configuration",
+          e);
+      return null;
+    }
+  }
+
+  private void index(Entry entry) {
+    unindex(entry.projectName);
+    modificationCount++;
+    entries.put(entry.projectName, entry);
+    projectNamesByConfigFile.put(entry.actualConfigFilename, entry.projectName);
+    if (StringUtils.isNotEmpty(entry.linkedProjectName)) {
+      referencesByLinkedProject
+          .computeIfAbsent(
+              LinkedProjectsGraph.projectKey(entry.linkedProjectName), k -> new TreeSet<>())
+          .add(entry.projectName);
+    }
+  }
+
+  private void unindex(String projectName) {
+    Entry entry = entries.remove(projectName);
+    if (entry == null) {
+      return;
+    }
+    modificationCount++;
+    projectNamesByConfigFile.remove(entry.actualConfigFilename, projectName);
+    if (StringUtils.isNotEmpty(entry.linkedProjectName)) {
+      String key = LinkedProjectsGraph.projectKey(entry.linkedProjectName);
+      Set<String> references = referencesByLinkedProject.get(key);
+      if (references != null) {
+        references.remove(projectName);
+        if (references.isEmpty()) {
+          referencesByLinkedProject.remove(key);
+        }
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final String projectName;
+    private final String projectHome;
+    private final String configFilename;
+    private final String actualConfigFilename;
+
+    /** The last modified time and size of the configuration file when it was read */
+    private final String fileStamp;
+
+    private final String linkedProjectName;
+
+    private Entry(
+        String projectName,
+        String projectHome,
+        String configFilename,
+        String actualConfigFilename,
+        String fileStamp,
+        String linkedProjectName) {
+      this.projectName = projectName;
+      this.projectHome = projectHome;
+      this.configFilename = configFilename;
+      this.actualConfigFilename = actualConfigFilename;
+      this.fileStamp = fileStamp;
+      this.linkedProjectName = linkedProjectName;
+    }
+  }
+}
@@ -17,16 +17,21 @@
 
 package org.apache.hop.projects.project;
 
-import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hop.core.Const;
+import org.apache.hop.core.ProgressNullMonitorListener;
 import org.apache.hop.core.config.HopConfig;
 import org.apache.hop.core.config.plugin.ConfigPlugin;
 import org.apache.hop.core.config.plugin.IConfigOptions;
@@ -42,6 +47,12 @@ import org.apache.hop.core.vfs.HopVfs;
 import org.apache.hop.metadata.api.IHasHopMetadataProvider;
 import org.apache.hop.projects.config.ProjectsConfig;
 import org.apache.hop.projects.config.ProjectsConfigSingleton;
+import org.apache.hop.projects.environment.LifecycleEnvironment;
+import org.apache.hop.projects.export.ProjectArchiveExporter;
+import org.apache.hop.projects.export.ProjectArchiveImporter;
+import org.apache.hop.projects.export.ProjectExportManifest;
+import org.apache.hop.projects.export.ProjectExporter;
+import org.apache.hop.projects.search.ProjectSearchIndex;
 import org.apache.hop.projects.util.ProjectsUtil;
 import picocli.CommandLine;
 
@@ -137,6 +148,11 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
       description = "List the defined projects")
   private boolean listProjects;
 
+  @CommandLine.Option(
+      names = {"-plc", "--projects-linked-cycles"},
+      description = "Report all the loops in the linked projects hierarchy of the defined projects")
+  private boolean listLinkedProjectCycles;
+
   @CommandLine.Option(
       names = {"-xm", "--export-metadata"},
       description =
@@ -163,6 +179,97 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
       description = "List all files that use a given metadata item in this project")
   private String projectFilesForMetadataItem;
 
+  @CommandLine.Option(
+      names = {"-psi", "--project-search-index"},
+      description =
+          "List the files of this project which contain all the words of the given query according to the project search index. End the query with * to match the last word as a prefix.")
+  private String projectSearchIndexQuery;
+
+  @CommandLine.Option(
+      names = {"-pj", "--project-scan-parallelism"},
+      description =
+          "The number of threads to use when scanning the project files. The default is configured with --file-scan-parallelism")
+  private Integer projectScanParallelism;
+
+  @CommandLine.Option(
+      names = {"-pe", "--project-export"},
+      description =
+          "Export the project specified with -p to the given zip file, like the project export in the GUI does")
+  private String projectExportFilename;
+
+  @CommandLine.Option(
+      names = {"-pee", "--project-export-environment"},
+      description =
+          "The environment to enable before exporting the project, its variables are exported with -pev")
+  private String projectExportEnvironment;
+
+  @CommandLine.Option(
+      names = {"-pev", "--project-export-variables"},
+      description = "Include the project and environment variables in the export (variables.json)")
+  private boolean projectExportVariables;
+
+  @CommandLine.Option(
+      names = {"-pem", "--project-export-metadata"},
+      description = "Include the serialized metadata of the project in the export (metadata.json)")
+  private boolean projectExportMetadata;
+
+  @CommandLine.Option(
+      names = {"-pei", "--project-export-include"},
+      description =
+          "Only export the files matching these globs, relative to the project home. For example: **/*.hpl,**/*.hwf",
+      split = ",")
+  private String[] projectExportIncludes;
+
+  @CommandLine.Option(
+      names = {"-pex", "--project-export-exclude"},
+      description =
+          "Leave the files and folders matching these globs, relative to the project home, out of the export",
+      split = ",")
+  private String[] projectExportExcludes;
+
+  @CommandLine.Option(
+      names = {"-pet", "--project-export-threads"},
+      description =
+          "The number of threads compressing the exported files. The default is the number of processors")
+  private Integer projectExportThreads;
+
+  @CommandLine.Option(
+      names = {"-ped", "--project-export-delta"},
+      description =
+          "Only export the files changed since the export with this manifest file or zip archive. Removed files are listed in the manifest of the new export")
+  private String projectExportDelta;
+
+  @CommandLine.Option(
+      names = {"-pemf", "--project-export-manifest"},
+      description =
+          "Also write the manifest of the export to this file, it can be the base of the next delta export")
+  private String projectExportManifest;
+
+  @CommandLine.Option(
+      names = {"-pea", "--project-export-archive"},
+      description =
+          "Export several projects to this zip file, storing identical files only once. Select the projects with -peap, the projects they link to are added automatically")
+  private String projectExportArchive;
+
+  @CommandLine.Option(
+      names = {"-peap", "--project-export-archive-projects"},
+      description =
+          "The projects to export to the archive given with -pea, separated by a comma. The default is all projects",
+      split = ",")
+  private String[] projectExportArchiveProjects;
+
+  @CommandLine.Option(
+      names = {"-pia", "--project-import-archive"},
+      description =
+          "Write the files of the project specified with -p from the given archive, created with -pea, to the folder given with -ph")
+  private String projectImportArchive;
+
+  @CommandLine.Option(
+      names = {"-pil", "--project-import-linked"},
+      description =
+          "Also write the files of the linked projects when importing from an archive, the files of the project itself take precedence")
+  private boolean projectImportLinked;
+
   @Override
   public boolean handleOption(
       ILogChannel log, IHasHopMetadataProvider hasHopMetadataProvider, IVariables variables)
@@ -182,15 +289,33 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
       } else if (listProjects) {
         listProjects(log, config, variables);
         changed = true;
+      } else if (listLinkedProjectCycles) {
+        listLinkedProjectCycles(log, variables);
+        changed = true;
       } else if (projectTransformTypes) {
         listTransformTypes(log, config, variables, hasHopMetadataProvider);
         changed = true;
       } else if (projectActionTypes) {
         listActionTypes(log, config, variables, hasHopMetadataProvider);
         changed = true;
+      } else if (StringUtils.isNotEmpty(projectSearchIndexQuery)) {
+        listSearchIndexMatches(log, config, variables);
+        changed = true;
+      } else if (StringUtils.isNotEmpty(projectFilesForMetadataItem)) {
+        listMetadataItemUsages(log, config, variables, hasHopMetadataProvider);
+        changed = true;
       } else if (projectMetadataTypes) {
         listMetadataTypes(log, config, variables, hasHopMetadataProvider);
         changed = true;
+      } else if (StringUtils.isNotEmpty(projectExportFilename)) {
+        exportProject(log, config, variables, hasHopMetadataProvider);
+        changed = true;
+      } else if (StringUtils.isNotEmpty(projectExportArchive)) {
+        exportProjectArchive(log, config, variables);
+        changed = true;
+      } else if (StringUtils.isNotEmpty(projectImportArchive)) {
+        importProjectArchive(log, variables);
+        changed = true;
       } else if (StringUtils.isNotEmpty(metadataJsonFilename)) {
         exportMetadataToJson(log, config, variables, hasHopMetadataProvider);
         changed = true;
@@ -217,6 +342,29 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
     }
   }
 
+  private void listLinkedProjectCycles(ILogChannel log, IVariables variables) {
+    LinkedProjectsGraph graph = LinkedProjectsIndex.getInstance().getGraph(variables);
+    List<List<String>> cycles = graph.getCycles();
+    if (cycles.isEmpty()) {
+      log.logBasic("No loops found in the linked projects hierarchy");
+      return;
+    }
+    log.logBasic("Loops found in the linked projects hierarchy: " + cycles.size());
+    for (List<String> cycle : cycles) {
+      log.logBasic("  " + LinkedProjectsGraph.describeCycle(cycle));
+    }
+    for (String name : ProjectsConfigSingleton.getSnapshot().listProjectConfigNames()) {
+      if (graph.contains(name) && !graph.isValid(name)) {
+        log.logBasic(
+            "  "
+                + CONST_PROJECT
+                + name
+                + "' can't be activated because of loop "
+                + LinkedProjectsGraph.describeCycle(graph.getCycle(name)));
+      }
+    }
+  }
+
   private void logProjectDetails(ILogChannel log, ProjectConfig projectConfig, Project project)
       throws HopException {
     String projectHome = projectConfig.getProjectHome();
@@ -276,6 +424,7 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
     ProjectsConfigSingleton.saveConfig();
 
     String projectConfigFilename = projectConfig.getActualProjectConfigFilename(variables);
+    ProjectCache.getInstance().invalidate(projectConfigFilename);
 
     Project project = projectConfig.loadProject(variables);
 
@@ -452,6 +601,145 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
     }
   }
 
+  private void exportProject(
+      ILogChannel log,
+      ProjectsConfig config,
+      IVariables variables,
+      IHasHopMetadataProvider hasHopMetadataProvider)
+      throws Exception {
+    validateProjectNameSpecified();
+
+    ProjectConfig projectConfig = config.findProjectConfig(projectName);
+    if (projectConfig == null) {
+      throw new HopException(CONST_PROJECT + projectName + "' doesn't exist, it can't be exported");
+    }
+    List<String> configurationFiles = new ArrayList<>();
+    if (StringUtils.isNotEmpty(projectExportEnvironment)) {
+      LifecycleEnvironment environment = config.findEnvironment(projectExportEnvironment);
+      if (environment == null) {
+        throw new HopException("Environment '" + projectExportEnvironment + "' couldn't be found");
+      }
+      if (!projectName.equals(environment.getProjectName())) {
+        log.logBasic(
+            "Warning: environment '"
+                + projectExportEnvironment
+                + "' belongs to project '"
+                + environment.getProjectName()
+                + "'");
+      }
+      configurationFiles.addAll(environment.getConfigurationFiles());
+    }
+    Project project = projectConfig.loadProject(Variables.getADefaultVariableSpace());
+    ProjectsUtil.enableProject(
+        log,
+        projectName,
+        project,
+        variables,
+        configurationFiles,
+        projectExportEnvironment,
+        hasHopMetadataProvider);
+
+    String realFilename = variables.resolve(projectExportFilename);
+    String realProjectHome = variables.resolve(projectConfig.getProjectHome());
+    log.logBasic("Exporting project " + projectName + " to " + realFilename);
+
+    // This is the same export as the one in the GUI
+    //
+    ProjectExporter exporter =
+        new ProjectExporter(HopVfs.getFileObject(realProjectHome), realFilename);
+    exporter.setLog(log);
+    exporter.addHopConfigFile();
+    if (projectExportIncludes != null) {
+      for (String include : projectExportIncludes) {
+        exporter.addInclude(include);
+      }
+    }
+    if (projectExportExcludes != null) {
+      for (String exclude : projectExportExcludes) {
+        exporter.addExclude(exclude);
+      }
+    }
+    if (projectExportThreads != null) {
+      exporter.setParallelism(projectExportThreads);
+    }
+    if (projectExportVariables) {
+      exporter.setVariables(ProjectExporter.getExportedVariables(variables));
+    }
+    if (projectExportMetadata) {
+      exporter.setMetadataProvider(hasHopMetadataProvider.getMetadataProvider());
+    }
+    if (StringUtils.isNotEmpty(projectExportDelta)) {
+      exporter.setPreviousManifest(
+          ProjectExportManifest.load(variables.resolve(projectExportDelta)));
+    }
+    if (StringUtils.isNotEmpty(projectExportManifest)) {
+      exporter.setManifestFilename(variables.resolve(projectExportManifest));
+    }
+    exporter.export(new ProgressNullMonitorListener());
+  }
+
+  private void exportProjectArchive(ILogChannel log, ProjectsConfig config, IVariables variables)
+      throws Exception {
+    ProjectArchiveExporter exporter =
+        new ProjectArchiveExporter(variables.resolve(projectExportArchive));
+    exporter.setLog(log);
+    if (projectExportThreads != null) {
+      exporter.setParallelism(projectExportThreads);
+    }
+
+    // A project can only be materialized completely when the projects it links to are there too
+    //
+    Deque<String> pending =
+        new ArrayDeque<>(
+            projectExportArchiveProjects == null
+                ? config.listProjectConfigNames()
+                : Arrays.asList(projectExportArchiveProjects));
+    Set<String> added = new HashSet<>();
+    while (!pending.isEmpty()) {
+      String name = pending.removeFirst();
+      if (!added.add(name)) {
+        continue;
+      }
+      ProjectConfig projectConfig = config.findProjectConfig(name);
+      if (projectConfig == null) {
+        throw new HopException(CONST_PROJECT + name + "' doesn't exist, it can't be exported");
+      }
+      Project project = projectConfig.loadProject(variables);
+      String linkedProjectName =
+          StringUtils.isEmpty(project.getLinkedProjectName())
+              ? null
+              : variables.resolve(project.getLinkedProjectName());
+      exporter.addProject(
+          name,
+          HopVfs.getFileObject(variables.resolve(projectConfig.getProjectHome())),
+          linkedProjectName);
+      if (linkedProjectName != null) {
+        pending.add(linkedProjectName);
+      }
+    }
+    log.logBasic(
+        "Exporting projects "
+            + String.join(", ", exporter.getProjectNames())
+            + " to "
+            + variables.resolve(projectExportArchive));
+    exporter.export(new ProgressNullMonitorListener());
+  }
+
+  private void importProjectArchive(ILogChannel log, IVariables variables) throws Exception {
+    validateProjectNameSpecified();
+    validateProjectHomeSpecified();
+
+    ProjectArchiveImporter importer =
+        new ProjectArchiveImporter(variables.resolve(projectImportArchive));
+    importer.setLog(log);
+    importer.setIncludingLinkedProjects(projectImportLinked);
+    if (projectExportThreads != null) {
+      importer.setParallelism(projectExportThreads);
+    }
+    importer.importProject(
+        projectName, variables.resolve(projectHome), new ProgressNullMonitorListener());
+  }
+
   public void listActionTypes(
       ILogChannel log,
       ProjectsConfig config,
@@ -463,7 +751,8 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
     ProjectsUtil.enableProject(
         log, projectName, project, variables, new ArrayList<>(), null, hasHopMetadataProvider);
     try {
-      List<String> actionTypes = project.getActionTypes(variables);
+      List<String> actionTypes =
+          project.getActionTypes(variables, log, Const.NVL(projectScanParallelism, 0));
       if (actionTypes.isEmpty()) {
         log.logBasic("No action types found for project " + projectName);
       } else {
@@ -490,7 +779,8 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
         log, projectName, project, variables, new ArrayList<>(), null, hasHopMetadataProvider);
     log.logBasic("Enabled project " + projectName);
     try {
-      List<String> transformTypes = project.getTransformTypes(variables);
+      List<String> transformTypes =
+          project.getTransformTypes(variables, log, Const.NVL(projectScanParallelism, 0));
       if (transformTypes.isEmpty()) {
         log.logBasic("No transform types found for project " + projectName);
       } else {
@@ -519,53 +809,129 @@ public class ManageProjectsOptionPlugin implements IConfigOptions {
       ProjectsConfig config,
       IVariables variables,
       IHasHopMetadataProvider hasHopMetadataProvider)
-      throws HopException,
-          InvocationTargetException,
-          NoSuchMethodException,
-          IllegalAccessException,
-          IOException {
+      throws HopException {
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     Project project = projectConfig.loadProject(variables);
     ProjectsUtil.enableProject(
         log, projectName, project, variables, new ArrayList<>(), null, hasHopMetadataProvider);
 
-    // list pipelines and transforms where the provided metadata item was found.
     List<String> metadataTypeNames = project.getMetadataTypes();
-    if (!Utils.isEmpty(projectFilesForMetadataItem)) {
-      List<String> hplUsageResults =
-          project.getPipelinesForMetadataItem(variables, projectFilesForMetadataItem);
-      if (!Utils.isEmpty(hplUsageResults)) {
-        log.logBasic(
-            "metadata item '"
-                + projectFilesForMetadataItem
-                + "' was found in the following pipelines: ");
-        for (String hplUsageResult : hplUsageResults) {
-          log.logBasic("   " + hplUsageResult);
-        }
+    if (metadataTypeNames.isEmpty()) {
+      log.logBasic("This project doesn't contain any metadata types");
+    } else {
+      log.logBasic("This project uses " + metadataTypeNames.size() + " metadata types");
+      for (String metadataTypeName : metadataTypeNames) {
+        log.logBasic("   " + metadataTypeName);
       }
+    }
+  }
 
-      // list workflows and actions where the provided metadata item was found.
-      List<String> hwfUsageResults =
-          project.getWorkflowsForMetadataItem(variables, projectFilesForMetadataItem);
-      if (!Utils.isEmpty(hwfUsageResults)) {
-        log.logBasic(
-            "metadata item '"
-                + projectFilesForMetadataItem
-                + "' was found in the following workflows: ");
-        for (String hwfUsageResult : hwfUsageResults) {
-          log.logBasic("   " + hwfUsageResult);
-        }
+  /**
+   * List the pipelines and workflows in this project which use the metadata item given with the
+   * -plmi option.
+   *
+   * @param log
+   * @param config
+   * @param variables
+   * @param hasHopMetadataProvider
+   * @throws Exception
+   */
+  public void listMetadataItemUsages(
+      ILogChannel log,
+      ProjectsConfig config,
+      IVariables variables,
+      IHasHopMetadataProvider hasHopMetadataProvider)
+      throws Exception {
+    validateProjectNameSpecified();
+
+    ProjectConfig projectConfig = config.findProjectConfig(projectName);
+    if (projectConfig == null) {
+      throw new HopException(CONST_PROJECT + projectName + "' doesn't exist");
+    }
+    Project project = projectConfig.loadProject(variables);
+    ProjectsUtil.enableProject(
+        log, projectName, project, variables, new ArrayList<>(), null, hasHopMetadataProvider);
+
+    // The project index is opened once for both pipelines and workflows
+    //
+    Map<ProjectFileScanner.FileType, List<String>> usageResults =
+        project.getMetadataItemUsages(variables, projectFilesForMetadataItem);
+
+    // list pipelines and transforms where the provided metadata item was found.
+    List<String> hplUsageResults = usageResults.get(ProjectFileScanner.FileType.PIPELINE);
+    if (!Utils.isEmpty(hplUsageResults)) {
+      log.logBasic(
+          "metadata item '"
+              + projectFilesForMetadataItem
+              + "' was found in the following pipelines: ");
+      for (String hplUsageResult : hplUsageResults) {
+        log.logBasic("   " + hplUsageResult);
       }
     }
 
-    if (projectFilesForMetadataItem.isEmpty()) {
-      if (metadataTypeNames.isEmpty()) {
-        log.logBasic("This project doesn't contain any metadata types");
-      } else {
-        log.logBasic("This project uses " + metadataTypeNames.size() + " metadata types");
-        for (String metadataTypeName : metadataTypeNames) {
-          log.logBasic("   " + metadataTypeName);
-        }
+    // list workflows and actions where the provided metadata item was found.
+    List<String> hwfUsageResults = usageResults.get(ProjectFileScanner.FileType.WORKFLOW);
+    if (!Utils.isEmpty(hwfUsageResults)) {
+      log.logBasic(
+          "metadata item '"
+              + projectFilesForMetadataItem
+              + "' was found in the following workflows: ");
+      for (String hwfUsageResult : hwfUsageResults) {
+        log.logBasic("   " + hwfUsageResult);
+      }
+    }
+
+    if (Utils.isEmpty(hplUsageResults) && Utils.isEmpty(hwfUsageResults)) {
+      log.logBasic(
+          "metadata item '" + projectFilesForMetadataItem + "' isn't used in project " + projectName);
+    }
+  }
+
+  /**
+   * List the files of the project which match the query given with the -psi option in the project
+   * search index.
+   *
+   * @param log
+   * @param config
+   * @param variables
+   * @throws Exception
+   */
+  public void listSearchIndexMatches(ILogChannel log, ProjectsConfig config, IVariables variables)
+      throws Exception {
+    validateProjectNameSpecified();
+
+    ProjectConfig projectConfig = config.findProjectConfig(projectName);
+    if (projectConfig == null) {
+      throw new HopException(CONST_PROJECT + projectName + "' doesn't exist");
+    }
+    long startTime = System.currentTimeMillis();
+    ProjectSearchIndex index = ProjectSearchIndex.open(projectConfig, variables, log);
+    long queryTime = System.currentTimeMillis();
+    Set<String> filenames = index.find(projectSearchIndexQuery);
+    long endTime = System.currentTimeMillis();
+
+    log.logBasic(
+        "The search index of project "
+            + projectName
+            + " contains "
+            + index.getTermCount()
+            + " terms in "
+            + index.getFileCount()
+            + " files (updated in "
+            + (queryTime - startTime)
+            + "ms)");
+    if (filenames.isEmpty()) {
+      log.logBasic("No files match '" + projectSearchIndexQuery + "'");
+    } else {
+      log.logBasic(
+          filenames.size()
+              + " file(s) match '"
+              + projectSearchIndexQuery
+              + "' ("
+              + (endTime - queryTime)
+              + "ms)");
+      for (String filename : filenames) {
+        log.logBasic("   " + filename);
       }
     }
   }
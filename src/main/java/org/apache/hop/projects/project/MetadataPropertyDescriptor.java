@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hop.metadata.api.HopMetadataProperty;
+import org.apache.hop.metadata.api.HopMetadataPropertyType;
+
+/**
+ * The {@link HopMetadataProperty} annotated properties of a class, including the ones declared in
+ * its superclasses. The introspection is done once per class: the descriptors are cached.
+ */
+public class MetadataPropertyDescriptor {
+
+  private static final Map<Class<?>, MetadataPropertyDescriptor> descriptors =
+      new ConcurrentHashMap<>();
+
+  private final List<Property> properties;
+
+  private MetadataPropertyDescriptor(Class<?> describedClass) {
+    List<Property> list = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    for (Class<?> current = describedClass;
+        current != null && current != Object.class;
+        current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        HopMetadataProperty annotation = field.getAnnotation(HopMetadataProperty.class);
+        // A field hidden by a subclass field with the same name is not serialized
+        //
+        if (annotation == null
+            || Modifier.isStatic(field.getModifiers())
+            || !names.add(field.getName())) {
+          continue;
+        }
+        list.add(new Property(field, annotation));
+      }
+    }
+    this.properties = Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Get the descriptor of the given class
+   *
+   * @param clazz The class to describe
+   * @return The cached descriptor
+   */
+  public static MetadataPropertyDescriptor getDescriptor(Class<?> clazz) {
+    MetadataPropertyDescriptor descriptor = descriptors.get(clazz);
+    if (descriptor == null) {
+      descriptor = new MetadataPropertyDescriptor(clazz);
+      MetadataPropertyDescriptor existing = descriptors.putIfAbsent(clazz, descriptor);
+      if (existing != null) {
+        descriptor = existing;
+      }
+    }
+    return descriptor;
+  }
+
+  /**
+   * Gets the annotated properties, the ones of the class itself first
+   *
+   * @return value of properties
+   */
+  public List<Property> getProperties() {
+    return properties;
+  }
+
+  /** A single annotated property */
+  public static class Property {
+    private final String name;
+    private final String key;
+    private final HopMetadataPropertyType metadataPropertyType;
+    private final Class<?> nestedClass;
+
+    private Property(Field field, HopMetadataProperty annotation) {
+      this.name = field.getName();
+      this.key = StringUtils.isEmpty(annotation.key()) ? field.getName() : annotation.key();
+      this.metadataPropertyType = annotation.hopMetadataPropertyType();
+      this.nestedClass = findNestedClass(field);
+    }
+
+    private static Class<?> findNestedClass(Field field) {
+      Class<?> type = field.getType();
+      if (Collection.class.isAssignableFrom(type)) {
+        Type genericType = field.getGenericType();
+        if (!(genericType instanceof ParameterizedType)) {
+          return null;
+        }
+        Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+        if (arguments.length != 1 || !(arguments[0] instanceof Class)) {
+          return null;
+        }
+        type = (Class<?>) arguments[0];
+      }
+      if (type.isPrimitive()
+          || type.isEnum()
+          || type.isArray()
+          || type.getName().startsWith("java.")) {
+        return null;
+      }
+      return type;
+    }
+
+    /**
+     * Gets the name of the field
+     *
+     * @return value of name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the serialization key of the property
+     *
+     * @return value of key
+     */
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * Gets metadataPropertyType
+     *
+     * @return value of metadataPropertyType
+     */
+    public HopMetadataPropertyType getMetadataPropertyType() {
+      return metadataPropertyType;
+    }
+
+    /**
+     * Gets the class of the nested object or of the collection elements, null for simple values
+     *
+     * @return value of nestedClass
+     */
+    public Class<?> getNestedClass() {
+      return nestedClass;
+    }
+  }
+}
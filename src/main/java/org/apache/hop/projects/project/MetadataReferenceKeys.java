@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.plugins.ActionPluginType;
+import org.apache.hop.core.plugins.IPlugin;
+import org.apache.hop.core.plugins.IPluginType;
+import org.apache.hop.core.plugins.PluginRegistry;
+import org.apache.hop.core.plugins.TransformPluginType;
+import org.apache.hop.metadata.api.HopMetadataProperty;
+import org.apache.hop.metadata.api.HopMetadataPropertyType;
+
+/**
+ * Knows which XML elements of a transform or action reference a metadata item. For every plugin
+ * the class is inspected once: all the fields annotated with {@link HopMetadataProperty} which
+ * have a metadata property type, including inherited fields and fields of nested objects, are
+ * mapped from their serialization key to that type. See {@link MetadataPropertyDescriptor}.
+ */
+public class MetadataReferenceKeys {
+
+  private static final MetadataReferenceKeys instance = new MetadataReferenceKeys();
+
+  private static final int MAX_NESTING_DEPTH = 5;
+
+  private final Map<String, Map<String, String>> keysByPlugin;
+  private final Map<Class<?>, Map<String, String>> keysByClass;
+
+  private MetadataReferenceKeys() {
+    keysByPlugin = new ConcurrentHashMap<>();
+    keysByClass = new ConcurrentHashMap<>();
+  }
+
+  public static MetadataReferenceKeys getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the keys referencing metadata for the given transform or action plugin
+   *
+   * @param fileType PIPELINE for transforms, WORKFLOW for actions
+   * @param pluginId The ID of the transform or action plugin
+   * @return The metadata property type name for every key which references metadata
+   */
+  public Map<String, String> getKeys(ProjectFileScanner.FileType fileType, String pluginId) {
+    if (StringUtils.isEmpty(pluginId)) {
+      return Collections.emptyMap();
+    }
+    String cacheKey = fileType + ":" + pluginId;
+    Map<String, String> keys = keysByPlugin.get(cacheKey);
+    if (keys == null) {
+      keys = loadPluginKeys(fileType, pluginId);
+      keysByPlugin.putIfAbsent(cacheKey, keys);
+    }
+    return keys;
+  }
+
+  private Map<String, String> loadPluginKeys(
+      ProjectFileScanner.FileType fileType, String pluginId) {
+    try {
+      Class<? extends IPluginType> pluginType =
+          fileType == ProjectFileScanner.FileType.PIPELINE
+              ? TransformPluginType.class
+              : ActionPluginType.class;
+      PluginRegistry registry = PluginRegistry.getInstance();
+      IPlugin plugin = registry.findPluginWithId(pluginType, pluginId);
+      if (plugin == null) {
+        return Collections.emptyMap();
+      }
+      Object object = registry.loadClass(plugin);
+      return getKeys(object.getClass());
+    } catch (Exception e) {
+      LogChannel.GENERAL.logError(
+          "Unable to inspect plugin '" + pluginId + "' for metadata references", e);
+      return Collections.emptyMap();
+    }
+  }
+
+  /**
+   * Get the keys referencing metadata for the given class
+   *
+   * @param clazz The class to inspect
+   * @return The metadata property type name for every key which references metadata
+   */
+  public Map<String, String> getKeys(Class<?> clazz) {
+    Map<String, String> keys = keysByClass.get(clazz);
+    if (keys == null) {
+      Map<String, String> map = new HashMap<>();
+      collectKeys(clazz, map, new HashSet<>(), 0);
+      keys = Collections.unmodifiableMap(map);
+      keysByClass.putIfAbsent(clazz, keys);
+    }
+    return keys;
+  }
+
+  private static void collectKeys(
+      Class<?> clazz, Map<String, String> keys, Set<Class<?>> visited, int depth) {
+    if (depth > MAX_NESTING_DEPTH || !visited.add(clazz)) {
+      return;
+    }
+    for (MetadataPropertyDescriptor.Property property :
+        MetadataPropertyDescriptor.getDescriptor(clazz).getProperties()) {
+      if (property.getMetadataPropertyType() != HopMetadataPropertyType.NONE) {
+        keys.putIfAbsent(property.getKey(), property.getMetadataPropertyType().name());
+      }
+      if (property.getNestedClass() != null) {
+        collectKeys(property.getNestedClass(), keys, visited, depth + 1);
+      }
+    }
+  }
+}
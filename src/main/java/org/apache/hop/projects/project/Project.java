@@ -19,57 +19,70 @@ package org.apache.hop.projects.project;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.hop.core.Const;
-import org.apache.hop.core.config.DescribedVariablesConfigFile;
 import org.apache.hop.core.config.IConfigFile;
 import org.apache.hop.core.config.plugin.ConfigFile;
 import org.apache.hop.core.exception.HopException;
-import org.apache.hop.core.exception.HopFileException;
 import org.apache.hop.core.json.HopJson;
+import org.apache.hop.core.logging.ILogChannel;
 import org.apache.hop.core.logging.LogChannel;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.variables.DescribedVariable;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.core.variables.Variables;
 import org.apache.hop.core.vfs.HopVfs;
-import org.apache.hop.metadata.api.HopMetadata;
-import org.apache.hop.metadata.api.HopMetadataProperty;
-import org.apache.hop.metadata.api.HopMetadataPropertyType;
 import org.apache.hop.metadata.api.IHopMetadata;
 import org.apache.hop.metadata.api.IHopMetadataSerializer;
 import org.apache.hop.metadata.serializer.multi.MultiMetadataProvider;
-import org.apache.hop.pipeline.PipelineMeta;
-import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.projects.config.ProjectsConfig;
 import org.apache.hop.projects.config.ProjectsConfigSingleton;
 import org.apache.hop.projects.environment.LifecycleEnvironment;
 import org.apache.hop.projects.util.Defaults;
 import org.apache.hop.projects.util.ProjectsUtil;
-import org.apache.hop.workflow.WorkflowMeta;
-import org.apache.hop.workflow.action.ActionMeta;
+import org.apache.hop.projects.var.DescribedVariablesCache;
 
 public class Project extends ConfigFile implements IConfigFile {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The reader and writer for project configuration files. These are immutable and thread-safe so
+   * we only need to configure them once.
+   */
+  private static final class JsonHolder {
+    private static final ObjectReader READER;
+    private static final ObjectWriter WRITER;
+
+    static {
+      ObjectMapper objectMapper = HopJson.newMapper();
+      READER = objectMapper.readerFor(Project.class);
+
+      ObjectMapper writeMapper = HopJson.newMapper();
+      writeMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+      writeMapper.enable(SerializationFeature.INDENT_OUTPUT);
+      WRITER = writeMapper.writerFor(Project.class);
+    }
+  }
+
   @JsonIgnore private String configFilename;
 
   private String description;
@@ -90,14 +103,6 @@ public class Project extends ConfigFile implements IConfigFile {
 
   private MultiMetadataProvider metadataProvider;
 
-  private List<Path> pipelinePaths;
-
-  private List<Path> workflowPaths;
-
-  private Map<PipelineMeta, List<TransformMeta>> pipelineTransformsMap;
-
-  private Map<WorkflowMeta, List<ActionMeta>> workflowActionsMap;
-
   public Project() {
     super();
     metadataBaseFolder = "${" + ProjectsUtil.VARIABLE_PROJECT_HOME + "}/metadata";
@@ -111,6 +116,51 @@ public class Project extends ConfigFile implements IConfigFile {
     this.configFilename = configFilename;
   }
 
+  /**
+   * Copy the settings of another project. The config map is copied as well so that changes to the
+   * copy don't affect the original.
+   *
+   * @param project The project to copy
+   */
+  public Project(Project project) {
+    this(project.configFilename);
+    this.description = project.description;
+    this.company = project.company;
+    this.department = project.department;
+    this.metadataBaseFolder = project.metadataBaseFolder;
+    this.unitTestsBasePath = project.unitTestsBasePath;
+    this.dataSetsCsvFolder = project.dataSetsCsvFolder;
+    this.enforcingExecutionInHome = project.enforcingExecutionInHome;
+    this.linkedProjectName = project.linkedProjectName;
+    this.configMap = new HashMap<>();
+    for (Map.Entry<String, Object> entry : project.configMap.entrySet()) {
+      this.configMap.put(entry.getKey(), copyConfigValue(entry.getValue()));
+    }
+  }
+
+  private static Object copyConfigValue(Object value) {
+    if (value instanceof DescribedVariable) {
+      DescribedVariable variable = (DescribedVariable) value;
+      return new DescribedVariable(
+          variable.getName(), variable.getValue(), variable.getDescription());
+    }
+    if (value instanceof List) {
+      List<Object> list = new ArrayList<>();
+      for (Object element : (List<?>) value) {
+        list.add(copyConfigValue(element));
+      }
+      return list;
+    }
+    if (value instanceof Map) {
+      Map<Object, Object> map = new HashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put(entry.getKey(), copyConfigValue(entry.getValue()));
+      }
+      return map;
+    }
+    return value;
+  }
+
   @Override
   public void saveToFile() throws HopException {
     try {
@@ -125,39 +175,50 @@ public class Project extends ConfigFile implements IConfigFile {
         file.getParent().createFolder();
       }
 
-      ObjectMapper objectMapper = HopJson.newMapper();
-      objectMapper.setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
-      objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
-
-      OutputStream outputStream = HopVfs.getOutputStream(file, false);
-      objectMapper.writeValue(outputStream, this);
+      try (OutputStream outputStream =
+          new BufferedOutputStream(HopVfs.getOutputStream(file, false), BUFFER_SIZE)) {
+        JsonHolder.WRITER.writeValue(outputStream, this);
+      }
+      LinkedProjectsIndex.getInstance().projectSaved(configFilename, linkedProjectName);
     } catch (Exception e) {
       throw new HopException(
           "Error saving project configuration to file '" + configFilename + "'", e);
+    } finally {
+      ProjectCache.getInstance().invalidate(configFilename);
+      LinkedProjectsGraph.invalidateRegistryGraph();
     }
   }
 
   @Override
   public void readFromFile() throws HopException {
-    ObjectMapper objectMapper = HopJson.newMapper();
-    try (InputStream inputStream = HopVfs.getInputStream(configFilename)) {
-      Project project = objectMapper.readValue(inputStream, Project.class);
-
-      this.description = project.description;
-      this.company = project.company;
-      this.department = project.department;
-      this.metadataBaseFolder = project.metadataBaseFolder;
-      this.unitTestsBasePath = project.unitTestsBasePath;
-      this.dataSetsCsvFolder = project.dataSetsCsvFolder;
-      this.enforcingExecutionInHome = project.enforcingExecutionInHome;
-      this.configMap = project.configMap;
-      this.linkedProjectName = project.linkedProjectName;
+    try (InputStream inputStream =
+            new BufferedInputStream(HopVfs.getInputStream(configFilename), BUFFER_SIZE);
+        JsonParser parser = JsonHolder.READER.getFactory().createParser(inputStream)) {
+
+      // Start from the defaults so that settings missing in the file get their default value.
+      // The parsed values are then written straight into this instance.
+      //
+      resetToDefaults();
+      JsonHolder.READER.withValueToUpdate(this).readValue(parser);
     } catch (Exception e) {
       throw new HopException(
-          "Error saving project configuration to file '" + configFilename + "'", e);
+          "Error reading project configuration from file '" + configFilename + "'", e);
     }
   }
 
+  private void resetToDefaults() {
+    Project defaults = new Project();
+    this.description = defaults.description;
+    this.company = defaults.company;
+    this.department = defaults.department;
+    this.metadataBaseFolder = defaults.metadataBaseFolder;
+    this.unitTestsBasePath = defaults.unitTestsBasePath;
+    this.dataSetsCsvFolder = defaults.dataSetsCsvFolder;
+    this.enforcingExecutionInHome = defaults.enforcingExecutionInHome;
+    this.configMap = defaults.configMap;
+    this.linkedProjectName = defaults.linkedProjectName;
+  }
+
   public void modifyVariables(
       IVariables variables,
       ProjectConfig projectConfig,
@@ -169,45 +230,133 @@ public class Project extends ConfigFile implements IConfigFile {
       variables = Variables.getADefaultVariableSpace();
     }
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ActivationPlan plan =
+        getActivationPlan(variables, projectConfig, configurationFiles, environmentName);
+    plan.applyTo(variables);
+  }
+
+  /**
+   * Get the plan which activates this project in the given environment. A previously compiled plan
+   * is re-used as long as it's still valid for the given variables.
+   *
+   * @param variables The variables the plan is going to be applied to
+   * @param projectConfig The configuration of this project
+   * @param configurationFiles The configuration files of the environment
+   * @param environmentName The name of the environment, can be null
+   * @return The activation plan
+   * @throws HopException In case the project chain is invalid or the configuration is missing
+   */
+  public ActivationPlan getActivationPlan(
+      IVariables variables,
+      ProjectConfig projectConfig,
+      List<String> configurationFiles,
+      String environmentName)
+      throws HopException {
+
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     if (config == null) {
       throw new HopException("No project configuration found");
     }
 
-    // See if we don't have an infinite loop in the project-parent-parent-... hierarchy...
+    ActivationPlanCache cache = ActivationPlanCache.getInstance();
+    String fingerprint =
+        calculateFingerprint(config, projectConfig, configurationFiles, environmentName);
+    ActivationPlan plan = cache.get(projectConfig.getProjectName(), environmentName);
+    boolean valid = plan != null && plan.isValid(fingerprint, variables);
+
+    // See if we don't have an infinite loop in the project-parent-parent-... hierarchy. The
+    // verdict is cached per project in the registry graph, so this is a lookup.
     //
     verifyProjectsChain(projectConfig.getProjectName(), variables);
 
+    if (valid) {
+      cache.registerHit();
+      return plan;
+    }
+    cache.registerMiss();
+
+    // Calculate the plan on a copy of the variables so that nothing changes until it's applied
+    //
+    Variables work = new Variables();
+    work.copyFrom(variables);
+    ActivationPlan.Builder builder = new ActivationPlan.Builder(fingerprint, variables, work);
+    compileActivationPlan(builder, config, projectConfig, configurationFiles, environmentName);
+    plan = builder.build();
+    cache.put(projectConfig.getProjectName(), environmentName, plan);
+    return plan;
+  }
+
+  private String calculateFingerprint(
+      ProjectsConfig config,
+      ProjectConfig projectConfig,
+      List<String> configurationFiles,
+      String environmentName) {
+    StringBuilder fingerprint = new StringBuilder();
+    fingerprint.append(config.getVersion());
+    appendFingerprint(fingerprint, projectConfig.getProjectName());
+    appendFingerprint(fingerprint, projectConfig.getProjectHome());
+    appendFingerprint(fingerprint, environmentName);
+    appendFingerprint(fingerprint, linkedProjectName);
+    appendFingerprint(fingerprint, metadataBaseFolder);
+    appendFingerprint(fingerprint, unitTestsBasePath);
+    appendFingerprint(fingerprint, dataSetsCsvFolder);
+    for (String configurationFile : configurationFiles) {
+      appendFingerprint(fingerprint, configurationFile);
+    }
+    for (DescribedVariable variable : getDescribedVariables()) {
+      appendFingerprint(fingerprint, variable.getName());
+      appendFingerprint(fingerprint, variable.getValue());
+    }
+    return fingerprint.toString();
+  }
+
+  private static void appendFingerprint(StringBuilder fingerprint, String value) {
+    fingerprint.append('\u0000').append(value == null ? "\u0001" : value);
+  }
+
+  private void compileActivationPlan(
+      ActivationPlan.Builder builder,
+      ProjectsConfig config,
+      ProjectConfig projectConfig,
+      List<String> configurationFiles,
+      String environmentName) {
+
+    IVariables variables = builder.getVariables();
+
     // If there is a linked project we want to pick up the variables defined in the project
     // definition as well
     //
-    Project linkedProject = null;
     String linkedProjectMetadataFolder = null;
-    String realLinkedProjectName = variables.resolve(linkedProjectName);
+    String realLinkedProjectName = builder.resolve(linkedProjectName);
 
     if (StringUtils.isNotEmpty(realLinkedProjectName)) {
-      ProjectConfig linkedProjectConfig =
-          ProjectsConfigSingleton.getConfig().findProjectConfig(realLinkedProjectName);
+      ProjectConfig linkedProjectConfig = config.findProjectConfig(realLinkedProjectName);
       if (linkedProjectConfig != null) {
         try {
-          linkedProject = linkedProjectConfig.loadProject(variables);
-          linkedProjectMetadataFolder = linkedProject.getMetadataBaseFolder().replace(ProjectsUtil.VARIABLE_PROJECT_HOME, ProjectsUtil.VARIABLE_LINKED_PROJECT_HOME);
+          builder.addUsedVariables(linkedProjectConfig.getProjectHome());
+          builder.addUsedVariables(linkedProjectConfig.getConfigFilename());
+          builder.addFile(linkedProjectConfig.getActualProjectConfigFilename(variables));
+          Project linkedProject = linkedProjectConfig.loadProject(variables);
+          linkedProjectMetadataFolder =
+              linkedProject
+                  .getMetadataBaseFolder()
+                  .replace(
+                      ProjectsUtil.VARIABLE_PROJECT_HOME,
+                      ProjectsUtil.VARIABLE_LINKED_PROJECT_HOME);
 
           LifecycleEnvironment currEnv = config.findEnvironment(environmentName);
           LifecycleEnvironment linkedProjectEnv =
-              config.getLifecycleEnvironments().stream()
-                  .filter(e -> e.getName().equals(currEnv.getLinkedProjectEnv()))
-                  .findFirst()
-                  .orElse(null);
-
+              currEnv == null ? null : config.findEnvironment(currEnv.getLinkedProjectEnv());
 
           // Set the LINKED_PROJECT_NAME variable to the root of the linked project name
-          variables.setVariable(
+          builder.setVariable(
               ProjectsUtil.VARIABLE_LINKED_PROJECT_HOME,
               Const.NVL(linkedProjectConfig.getProjectHome(), ""));
 
           // Set the environment name of the linked project
-          updateVariablesFromEnvironment(variables, linkedProjectEnv.getConfigurationFiles(), true);
+          if (linkedProjectEnv != null) {
+            updateVariablesFromEnvironment(builder, linkedProjectEnv.getConfigurationFiles(), true);
+          }
 
         } catch (HopException he) {
           LogChannel.GENERAL.logError(
@@ -219,54 +368,51 @@ public class Project extends ConfigFile implements IConfigFile {
 
     // Set the name of the active environment
     //
-    variables.setVariable(
+    builder.setVariable(
         Defaults.VARIABLE_HOP_PROJECT_NAME, Const.NVL(projectConfig.getProjectName(), ""));
-    variables.setVariable(Defaults.VARIABLE_HOP_ENVIRONMENT_NAME, Const.NVL(environmentName, ""));
+    builder.setVariable(Defaults.VARIABLE_HOP_ENVIRONMENT_NAME, Const.NVL(environmentName, ""));
 
     // To allow circular logic where an environment file is relative to the project home
     //
     if (StringUtils.isNotEmpty(projectConfig.getProjectHome())) {
-      String realValue = variables.resolve(projectConfig.getProjectHome());
-      variables.setVariable(ProjectsUtil.VARIABLE_PROJECT_HOME, realValue);
+      String realValue = builder.resolve(projectConfig.getProjectHome());
+      builder.setVariable(ProjectsUtil.VARIABLE_PROJECT_HOME, realValue);
     }
 
-    updateVariablesFromEnvironment(variables, configurationFiles, true);
+    updateVariablesFromEnvironment(builder, configurationFiles, true);
 
     if (StringUtils.isNotEmpty(metadataBaseFolder)) {
-      String realMetadataBaseFolder = variables.resolve(metadataBaseFolder);
+      String realMetadataBaseFolder = builder.resolve(metadataBaseFolder);
 
       // If we have more than one metadata base folder to read metadata from, we can specify it
       // using comma separated values...
       //
       if (!Utils.isEmpty(linkedProjectMetadataFolder)) {
-          realMetadataBaseFolder = variables.resolve(linkedProjectMetadataFolder) + "," + realMetadataBaseFolder;
+        realMetadataBaseFolder =
+            builder.resolve(linkedProjectMetadataFolder) + "," + realMetadataBaseFolder;
       }
-      variables.setVariable(Const.HOP_METADATA_FOLDER, realMetadataBaseFolder);
+      builder.setVariable(Const.HOP_METADATA_FOLDER, realMetadataBaseFolder);
     }
 
     if (StringUtils.isNotEmpty(unitTestsBasePath)) {
-      String realValue = variables.resolve(unitTestsBasePath);
-      variables.setVariable(ProjectsUtil.VARIABLE_HOP_UNIT_TESTS_FOLDER, realValue);
+      String realValue = builder.resolve(unitTestsBasePath);
+      builder.setVariable(ProjectsUtil.VARIABLE_HOP_UNIT_TESTS_FOLDER, realValue);
     }
     if (StringUtils.isNotEmpty(dataSetsCsvFolder)) {
-      String realValue = variables.resolve(dataSetsCsvFolder);
-      variables.setVariable(ProjectsUtil.VARIABLE_HOP_DATASETS_FOLDER, realValue);
+      String realValue = builder.resolve(dataSetsCsvFolder);
+      builder.setVariable(ProjectsUtil.VARIABLE_HOP_DATASETS_FOLDER, realValue);
     }
     for (DescribedVariable variable : getDescribedVariables()) {
       if (variable.getName() != null) {
-        variables.setVariable(variable.getName(), variable.getValue());
+        builder.setVariable(variable.getName(), variable.getValue());
       }
     }
   }
 
   private static void updateVariablesFromEnvironment(
-      IVariables variables, List<String> configurationFiles) throws HopFileException {
-    updateVariablesFromEnvironment(variables, configurationFiles, false);
-  }
+      ActivationPlan.Builder builder, List<String> configurationFiles, boolean isLinkedProject) {
+    IVariables variables = builder.getVariables();
 
-  private static void updateVariablesFromEnvironment(
-      IVariables variables, List<String> configurationFiles, boolean isLinkedProject)
-      throws HopFileException {
     // Apply the described variables from the various configuration files in the given order...
     //
     for (String configurationFile : configurationFiles) {
@@ -275,23 +421,24 @@ public class Project extends ConfigFile implements IConfigFile {
         // if is linked project, replace the project home with the linked project home to get the
         // right path to configuration file
         configurationFile =
-                configurationFile.replace(
+            configurationFile.replace(
                 ProjectsUtil.VARIABLE_PROJECT_HOME, ProjectsUtil.VARIABLE_LINKED_PROJECT_HOME);
       }
 
-      String realConfigurationFile = variables.resolve(configurationFile);
-
-      FileObject file = HopVfs.getFileObject(realConfigurationFile);
-      try {
-        if (file.exists()) {
-          ConfigFile configFile = new DescribedVariablesConfigFile(realConfigurationFile);
+      String realConfigurationFile = builder.resolve(configurationFile);
 
-          configFile.readFromFile();
+      // Record the file before reading it: a change in between simply invalidates the plan
+      //
+      builder.addFile(realConfigurationFile);
 
+      try {
+        List<DescribedVariable> describedVariables =
+            DescribedVariablesCache.getInstance().getDescribedVariables(realConfigurationFile);
+        if (describedVariables != null) {
           // Apply the variable values...
           //
-          for (DescribedVariable describedVariable : configFile.getDescribedVariables()) {
-            variables.setVariable(describedVariable.getName(), describedVariable.getValue());
+          for (DescribedVariable describedVariable : describedVariables) {
+            builder.setVariable(describedVariable.getName(), describedVariable.getValue());
           }
 
         } else {
@@ -311,7 +458,10 @@ public class Project extends ConfigFile implements IConfigFile {
   }
 
   /**
-   * Let's check to see if there isn't an infinite loop in the project definition
+   * Let's check to see if there isn't an infinite loop in the project definition. The chain of
+   * linked projects is looked up in the {@link LinkedProjectsGraph} of the registry which caches
+   * the verdict per project: as long as the linked project is the one which was saved this is a
+   * single lookup. Project names are compared case-insensitively, the way they are looked up.
    *
    * @throws HopException
    */
@@ -323,47 +473,25 @@ public class Project extends ConfigFile implements IConfigFile {
       return;
     }
 
-    if (linkedProjectName.equals(projectName)) {
+    String realLinkedProjectName = variables.resolve(linkedProjectName);
+    if (StringUtils.isEmpty(realLinkedProjectName)) {
+      return;
+    }
+
+    if (LinkedProjectsGraph.projectKey(realLinkedProjectName)
+        .equals(LinkedProjectsGraph.projectKey(projectName))) {
       throw new HopException(
           "Parent project '" + linkedProjectName + "' can not be the same as the project itself");
     }
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
-
-    String realLinkedProjectName = variables.resolve(linkedProjectName);
-    List<String> projectsList = new ArrayList<>();
-    while (StringUtils.isNotEmpty(realLinkedProjectName)) {
-      projectsList.add(realLinkedProjectName);
-      ProjectConfig projectConfig = config.findProjectConfig(realLinkedProjectName);
-      if (projectConfig != null) {
-        Project linkedProject = projectConfig.loadProject(variables);
-        if (linkedProject == null) {
-          // Can't be loaded, break out of the loop
-          realLinkedProjectName = null;
-        } else {
-          // See if this project has a parent...
-          //
-          if (StringUtils.isEmpty(linkedProject.linkedProjectName)) {
-            // We're done
-            realLinkedProjectName = null;
-          } else {
-            realLinkedProjectName = variables.resolve(linkedProject.linkedProjectName);
-            if (StringUtils.isNotEmpty(realLinkedProjectName)) {
-              // See if we've had this one before...
-              //
-              if (projectsList.contains(realLinkedProjectName)) {
-                throw new HopException(
-                    "There is a loop in the linked projects hierarchy: project "
-                        + realLinkedProjectName
-                        + " references itself");
-              }
-            }
-          }
-        }
-      } else {
-        // Project not found: config error, stop looking
-        realLinkedProjectName = null;
-      }
+    LinkedProjectsGraph graph = LinkedProjectsGraph.getRegistryGraph(variables);
+    List<String> cycle = graph.getCycle(projectName, realLinkedProjectName);
+    if (cycle != null) {
+      throw new HopException(
+          "There is a loop in the linked projects hierarchy of project '"
+              + projectName
+              + "': "
+              + LinkedProjectsGraph.describeCycle(cycle));
     }
   }
 
@@ -392,43 +520,39 @@ public class Project extends ConfigFile implements IConfigFile {
   }
 
   /**
-   * Build a map of all of the pipelines in the project.
+   * Get the inventory index of this project. The index is stored in the project home and only the
+   * files which changed since the last time are read again, see {@link ProjectInventoryIndex}.
    *
-   * @throws IOException
-   */
-  private void buildPipelineMap(IVariables variables) throws IOException, HopFileException {
-    pipelineTransformsMap = new HashMap<>();
-    pipelinePaths = new ArrayList<>();
-    File projectFolder =
-        new File(String.valueOf(HopVfs.getFileObject(configFilename).getParent().getPath()));
-    if (projectFolder.isDirectory()) {
-      try (Stream<Path> walk = Files.walk(projectFolder.toPath())) {
-        pipelinePaths =
-            walk.filter(p -> !Files.isDirectory(p))
-                .filter(f -> f.getFileName().toString().toLowerCase().endsWith("hpl"))
-                .collect(Collectors.toList());
-      }
-    }
+   * @param log The log channel to report progress to, can be null
+   * @param parallelism The number of threads to use, 0 or less for the configured default
+   * @return The up to date inventory index
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public ProjectInventoryIndex getInventoryIndex(ILogChannel log, int parallelism)
+      throws HopException {
+    return ProjectInventoryIndex.open(getProjectFolder(), log, parallelism);
   }
 
   /**
-   * Build a map of all of the workflows in the project.
+   * Get the summaries of the pipelines and/or workflows in the project folder from the inventory
+   * index.
    *
-   * @throws IOException
-   */
-  private void buildWorkflowMap() throws IOException, HopFileException {
-    workflowActionsMap = new HashMap<>();
-    workflowPaths = new ArrayList<>();
-    File projectFolder =
-        new File(String.valueOf(HopVfs.getFileObject(configFilename).getParent().getPath()));
-    if (projectFolder.isDirectory()) {
-      try (Stream<Path> walk = Files.walk(projectFolder.toPath())) {
-        workflowPaths =
-            walk.filter(p -> !Files.isDirectory(p))
-                .filter(f -> f.getFileName().toString().toLowerCase().endsWith("hwf"))
-                .collect(Collectors.toList());
-      }
-    }
+   * @param log The log channel to report progress to, can be null
+   * @param parallelism The number of threads to use, 0 or less for the configured default
+   * @param pipelines Include the pipelines
+   * @param workflows Include the workflows
+   * @return The summaries of the files which could be read
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public List<HopFileSummary> getFileSummaries(
+      ILogChannel log, int parallelism, boolean pipelines, boolean workflows)
+      throws HopException {
+    return getInventoryIndex(log, parallelism).getSummaries(pipelines, workflows);
+  }
+
+  private Path getProjectFolder() throws HopException {
+    return new File(String.valueOf(HopVfs.getFileObject(configFilename).getParent().getPath()))
+        .toPath();
   }
 
   /**
@@ -436,33 +560,24 @@ public class Project extends ConfigFile implements IConfigFile {
    *
    * @param variables
    * @return
-   * @throws IOException
-   * @throws HopFileException
+   * @throws HopException
    */
-  public List<String> getTransformTypes(IVariables variables) throws IOException, HopFileException {
-    // build a map of all pipelines and transforms in the project.
-    buildPipelineMap(variables);
-    for (Path pipelinePath : pipelinePaths) {
-      try {
-        PipelineMeta pipelineMeta =
-            new PipelineMeta(pipelinePath.toAbsolutePath().toString(), metadataProvider, variables);
-        List<TransformMeta> transformMetas = pipelineMeta.getTransforms();
-        pipelineTransformsMap.put(pipelineMeta, transformMetas);
-      } catch (Exception e) {
-        e.printStackTrace();
-      }
-    }
+  public List<String> getTransformTypes(IVariables variables) throws HopException {
+    return getTransformTypes(variables, null, 0);
+  }
 
-    List<String> transformTypes = new ArrayList<>();
-    for (PipelineMeta pipelineMeta : pipelineTransformsMap.keySet()) {
-      for (TransformMeta transformMeta : pipelineMeta.getTransforms()) {
-        if (!transformTypes.contains(transformMeta.getTypeId())) {
-          transformTypes.add(transformMeta.getPluginId());
-        }
-      }
-    }
-    Collections.sort(transformTypes);
-    return transformTypes;
+  /**
+   * Return a sorted list of all of the transform types that are used in the current project
+   *
+   * @param variables The variables of the project
+   * @param log The log channel to report progress to, can be null
+   * @param parallelism The number of threads to use, 0 or less for the configured default
+   * @return The sorted transform plugin IDs
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public List<String> getTransformTypes(IVariables variables, ILogChannel log, int parallelism)
+      throws HopException {
+    return getInventoryIndex(log, parallelism).getTransformTypes();
   }
 
   /**
@@ -470,175 +585,88 @@ public class Project extends ConfigFile implements IConfigFile {
    *
    * @param variables
    * @return
-   * @throws IOException
-   * @throws HopFileException
+   * @throws HopException
    */
-  public List<String> getActionTypes(IVariables variables) throws HopException, IOException {
-    buildWorkflowMap();
-    for (Path workflowPath : workflowPaths) {
-      try {
-        WorkflowMeta workflowMeta =
-            new WorkflowMeta(variables, workflowPath.toAbsolutePath().toString(), metadataProvider);
-        List<ActionMeta> actionMetas = workflowMeta.getActions();
-        workflowActionsMap.put(workflowMeta, actionMetas);
-      } catch (Exception e) {
-        System.err.println("error getting workflow actions");
-        e.printStackTrace();
-      }
-    }
+  public List<String> getActionTypes(IVariables variables) throws HopException {
+    return getActionTypes(variables, null, 0);
+  }
 
-    List<String> actionTypes = new ArrayList<>();
-    for (WorkflowMeta workflowMeta : workflowActionsMap.keySet()) {
-      for (ActionMeta actionMeta : workflowMeta.getActions()) {
-        if (!actionTypes.contains(actionMeta.getAction().getPluginId())) {
-          actionTypes.add(actionMeta.getAction().getPluginId());
-        }
-      }
-    }
-    Collections.sort(actionTypes);
-    return actionTypes;
+  /**
+   * Return a sorted list of all of the action types that are used in the current project
+   *
+   * @param variables The variables of the project
+   * @param log The log channel to report progress to, can be null
+   * @param parallelism The number of threads to use, 0 or less for the configured default
+   * @return The sorted action plugin IDs
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public List<String> getActionTypes(IVariables variables, ILogChannel log, int parallelism)
+      throws HopException {
+    return getInventoryIndex(log, parallelism).getActionTypes();
   }
 
+  /**
+   * Find the transforms in the pipelines of this project which reference the given metadata item.
+   * This is a lookup in the inventory index, see {@link ProjectInventoryIndex#getMetadataUsages}.
+   *
+   * @param variables The variables of the project
+   * @param metadataItemName The name of the metadata item
+   * @return A description of every usage: filename -> transform -> name (type)
+   * @throws HopException In case the project folder can't be scanned
+   */
   public List<String> getPipelinesForMetadataItem(IVariables variables, String metadataItemName)
-      throws HopException,
-          NoSuchMethodException,
-          InvocationTargetException,
-          IllegalAccessException,
-          IOException {
-
-    List<String> resultStrings = new ArrayList<>();
-    Map<HopMetadataPropertyType, String> metadataItems = new HashMap();
-
-    // get the metadata item(s) with the provided metadataItemName
-    List<Class<IHopMetadata>> metadataClasses = metadataProvider.getMetadataClasses();
-
-    // walk over all metadata classes, build a list of available metadata types for the provided
-    // metadata item.
-    for (Class<IHopMetadata> metadataClass : metadataClasses) {
-      IHopMetadataSerializer<IHopMetadata> metadataSerializer =
-          metadataProvider.getSerializer(metadataClass);
-
-      List<String> names = metadataSerializer.listObjectNames();
-
-      // add the available HopMetadataPropertyTypes from @HopMetadata and add to metadataItems
-      if (names.contains(metadataItemName)) {
-        if (metadataClass.isAnnotationPresent(HopMetadata.class)) {
-          HopMetadata annotation = metadataClass.getAnnotation(HopMetadata.class);
-          HopMetadataPropertyType hopMetadataPropertyType = annotation.hopMetadataPropertyType();
-          metadataItems.put(hopMetadataPropertyType, metadataItemName);
-        }
-      }
-    }
-
-    // build the map of transforms per pipeline if we don't have it available
-    if (pipelineTransformsMap == null || pipelineTransformsMap.size() == 0) {
-      getTransformTypes(variables);
-    }
-
-    // walk over all transforms in all pipelines, find occurrences of this metadata item.
-    for (PipelineMeta pipelineMeta : pipelineTransformsMap.keySet()) {
-      for (TransformMeta transformMeta : pipelineTransformsMap.get(pipelineMeta)) {
-
-        // walk over the fields in a transform and check their @HopMetadataProperty annotations for
-        // HopMetadataPropertyType
-        Field[] fields = transformMeta.getTransform().getClass().getDeclaredFields();
-        for (Field field : fields) {
-          if (field.isAnnotationPresent(HopMetadataProperty.class)) {
-            HopMetadataProperty annotation = field.getAnnotation(HopMetadataProperty.class);
-            HopMetadataPropertyType hopMetadataPropertyType = annotation.hopMetadataPropertyType();
-            if (metadataItems.keySet().contains(hopMetadataPropertyType)) {
-              Method method =
-                  transformMeta
-                      .getTransform()
-                      .getClass()
-                      .getMethod("get" + StringUtils.capitalize(field.getName()));
-              String resultStr = (String) method.invoke(transformMeta.getTransform());
-              resultStrings.add(
-                  pipelineMeta.getFilename()
-                      + " -> "
-                      + transformMeta.getName()
-                      + " -> "
-                      + resultStr
-                      + " ("
-                      + hopMetadataPropertyType
-                      + ")");
-            }
-          }
-        }
-      }
-    }
-    return resultStrings;
+      throws HopException {
+    return getMetadataItemUsages(variables, metadataItemName)
+        .get(ProjectFileScanner.FileType.PIPELINE);
   }
 
+  /**
+   * Find the actions in the workflows of this project which reference the given metadata item.
+   * This is a lookup in the inventory index, see {@link ProjectInventoryIndex#getMetadataUsages}.
+   *
+   * @param variables The variables of the project
+   * @param metadataItemName The name of the metadata item
+   * @return A description of every usage: filename -> action -> name (type)
+   * @throws HopException In case the project folder can't be scanned
+   */
   public List<String> getWorkflowsForMetadataItem(IVariables variables, String metadataItemName)
-      throws HopException,
-          NoSuchMethodException,
-          InvocationTargetException,
-          IllegalAccessException,
-          IOException {
-
-    List<String> resultStrings = new ArrayList<>();
-    Map<HopMetadataPropertyType, String> metadataItems = new HashMap();
-
-    // get the metadata item(s) with the provided metadataItemName
-    List<Class<IHopMetadata>> metadataClasses = metadataProvider.getMetadataClasses();
-
-    // walk over all metadata classes, build a list of available metadata types for the provided
-    // metadata item.
-    for (Class<IHopMetadata> metadataClass : metadataClasses) {
-      IHopMetadataSerializer<IHopMetadata> metadataSerializer =
-          metadataProvider.getSerializer(metadataClass);
-
-      List<String> names = metadataSerializer.listObjectNames();
-
-      // add the available HopMetadataPropertyTypes from @HopMetadata and add to metadataItems
-      if (names.contains(metadataItemName)) {
-        if (metadataClass.isAnnotationPresent(HopMetadata.class)) {
-          HopMetadata annotation = metadataClass.getAnnotation(HopMetadata.class);
-          HopMetadataPropertyType hopMetadataPropertyType = annotation.hopMetadataPropertyType();
-          metadataItems.put(hopMetadataPropertyType, metadataItemName);
-        }
-      }
-    }
+      throws HopException {
+    return getMetadataItemUsages(variables, metadataItemName)
+        .get(ProjectFileScanner.FileType.WORKFLOW);
+  }
 
-    // build the map of actions per workflow if we don't have it available
-    if (workflowActionsMap == null || workflowActionsMap.size() == 0) {
-      getActionTypes(variables);
+  /**
+   * Find the transforms and actions in the pipelines and workflows of this project which reference
+   * the given metadata item. The inventory index is only opened once for both file types.
+   *
+   * @param variables The variables of the project
+   * @param metadataItemName The name of the metadata item
+   * @return For both pipelines and workflows a description of every usage: filename -> transform
+   *     or action -> name (type)
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public Map<ProjectFileScanner.FileType, List<String>> getMetadataItemUsages(
+      IVariables variables, String metadataItemName) throws HopException {
+    Map<ProjectFileScanner.FileType, List<String>> usages =
+        new EnumMap<>(ProjectFileScanner.FileType.class);
+    for (ProjectFileScanner.FileType fileType : ProjectFileScanner.FileType.values()) {
+      usages.put(fileType, new ArrayList<>());
     }
-
-    // walk over all transforms in all pipelines, find occurrences of this metadata item.
-    for (WorkflowMeta workflowMeta : workflowActionsMap.keySet()) {
-      for (ActionMeta actionMeta : workflowActionsMap.get(workflowMeta)) {
-
-        // walk over the fields in a transform and check their @HopMetadataProperty annotations for
-        // HopMetadataPropertyType
-        Field[] fields = actionMeta.getAction().getClass().getDeclaredFields();
-        for (Field field : fields) {
-          if (field.isAnnotationPresent(HopMetadataProperty.class)) {
-            HopMetadataProperty annotation = field.getAnnotation(HopMetadataProperty.class);
-            HopMetadataPropertyType hopMetadataPropertyType = annotation.hopMetadataPropertyType();
-            if (metadataItems.keySet().contains(hopMetadataPropertyType)) {
-              Method method =
-                  actionMeta
-                      .getAction()
-                      .getClass()
-                      .getMethod("get" + StringUtils.capitalize(field.getName()));
-              String resultStr = (String) method.invoke(actionMeta.getAction());
-              resultStrings.add(
-                  workflowMeta.getFilename()
-                      + " -> "
-                      + actionMeta.getName()
-                      + " -> "
-                      + resultStr
-                      + " ("
-                      + hopMetadataPropertyType
-                      + ")");
-            }
-          }
-        }
-      }
+    for (ProjectInventoryIndex.MetadataUsage usage :
+        getInventoryIndex(null, 0).getMetadataUsages(metadataItemName)) {
+      usages
+          .get(usage.getFileType())
+          .add(
+              usage.getFilename()
+                  + " -> "
+                  + usage.getItemName()
+                  + " -> "
+                  + usage.getMetadataName()
+                  + " ("
+                  + usage.getMetadataType()
+                  + ")");
     }
-    return resultStrings;
+    return usages;
   }
 
   /**
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * Keeps the parsed project configuration files in memory. An entry is keyed by the resolved
+ * configuration filename and is only considered valid as long as the last modified time and the
+ * size of the file didn't change. Callers always receive a copy of the cached project so they are
+ * free to modify it.
+ */
+public class ProjectCache {
+
+  private static final ProjectCache instance = new ProjectCache();
+
+  private final Map<String, Entry> entries;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  private ProjectCache() {
+    entries = new ConcurrentHashMap<>();
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+  }
+
+  public static ProjectCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Load the project stored in the given configuration file. If the file didn't change since it
+   * was last read, the cached version is used.
+   *
+   * @param configFilename The resolved, absolute project configuration filename
+   * @return A copy of the project. An empty project is returned if the file doesn't exist.
+   * @throws HopException In case the file can't be read
+   */
+  public Project loadProject(String configFilename) throws HopException {
+    try {
+      FileObject file = HopVfs.getFileObject(configFilename);
+      if (!file.exists()) {
+        entries.remove(configFilename);
+        return new Project(configFilename);
+      }
+      FileContent content = file.getContent();
+      long lastModified = content.getLastModifiedTime();
+      long size = content.getSize();
+
+      Entry entry = entries.get(configFilename);
+      if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+        hits.incrementAndGet();
+        return new Project(entry.project);
+      }
+      misses.incrementAndGet();
+
+      Project project = new Project(configFilename);
+      project.readFromFile();
+      entries.put(configFilename, new Entry(lastModified, size, project));
+      return new Project(project);
+    } catch (HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException(
+          "Error checking config filename '" + configFilename + "' existence while loading project",
+          e);
+    }
+  }
+
+  /**
+   * Forget about the cached version of the given project configuration file.
+   *
+   * @param configFilename The resolved, absolute project configuration filename
+   */
+  public void invalidate(String configFilename) {
+    if (StringUtils.isNotEmpty(configFilename)) {
+      entries.remove(configFilename);
+    }
+  }
+
+  /** Forget about all cached projects */
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  /**
+   * Gets the number of loads served from memory
+   *
+   * @return value of hits
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of loads which needed to read the configuration file
+   *
+   * @return value of misses
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the number of cached projects
+   *
+   * @return value of size
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  private static final class Entry {
+    private final long lastModified;
+    private final long size;
+    private final Project project;
+
+    private Entry(long lastModified, long size, Project project) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.project = project;
+    }
+  }
+}
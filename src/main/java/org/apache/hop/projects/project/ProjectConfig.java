@@ -30,6 +30,10 @@ public class ProjectConfig {
   protected String projectHome;
   protected String configFilename;
 
+  // Set on the copies held by a read-only projects configuration snapshot
+  //
+  private transient boolean readOnly;
+
   public ProjectConfig() {
     super();
   }
@@ -41,6 +45,25 @@ public class ProjectConfig {
     this.configFilename = configFilename;
   }
 
+  /**
+   * Create a copy of this project configuration which can't be modified. Any attempt to do so
+   * throws an {@link UnsupportedOperationException}.
+   *
+   * @return A new read-only project configuration
+   */
+  public ProjectConfig createReadOnlyCopy() {
+    ProjectConfig copy = new ProjectConfig(projectName, projectHome, configFilename);
+    copy.readOnly = true;
+    return copy;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException(
+          "Project configuration '" + projectName + "' is part of a read-only snapshot");
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -100,17 +123,7 @@ public class ProjectConfig {
               + confFile
               + "'");
     }
-    Project project = new Project(configFilename);
-    try {
-      if (HopVfs.getFileObject(configFilename).exists()) {
-        project.readFromFile();
-      }
-    } catch (Exception e) {
-      throw new HopException(
-          "Error checking config filename '" + configFilename + "' existence while loading project",
-          e);
-    }
-    return project;
+    return ProjectCache.getInstance().loadProject(configFilename);
   }
 
   /**
@@ -126,6 +139,7 @@ public class ProjectConfig {
    * @param projectName The projectName to set
    */
   public void setProjectName(String projectName) {
+    checkWritable();
     this.projectName = projectName;
   }
 
@@ -142,6 +156,7 @@ public class ProjectConfig {
    * @param projectHome The projectHome to set
    */
   public void setProjectHome(String projectHome) {
+    checkWritable();
     this.projectHome = projectHome;
   }
 
@@ -158,6 +173,7 @@ public class ProjectConfig {
    * @param configFilename The configFilename to set
    */
   public void setConfigFilename(String configFilename) {
+    checkWritable();
     this.configFilename = configFilename;
   }
 }
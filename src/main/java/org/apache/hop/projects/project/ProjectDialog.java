@@ -568,7 +568,7 @@ public class ProjectDialog extends Dialog {
             CONST_PROJECT + projectName + "' cannot be set as a linked project of itself");
       }
 
-      ProjectsConfig prjsCfg = ProjectsConfigSingleton.getConfig();
+      ProjectsConfig prjsCfg = ProjectsConfigSingleton.getSnapshot();
       List<String> prjs = prjsCfg.listProjectConfigNames();
 
       // Check if project name is unique otherwise force the user to change it!
@@ -680,7 +680,7 @@ public class ProjectDialog extends Dialog {
     try {
       wLinkedProject.setText(Const.NVL(project.getLinkedProjectName(), ""));
 
-      List<String> names = ProjectsConfigSingleton.getConfig().listProjectConfigNames();
+      List<String> names = ProjectsConfigSingleton.getSnapshot().listProjectConfigNames();
       if (projectConfig.getProjectName() != null) {
         names.remove(projectConfig.getProjectName());
       }
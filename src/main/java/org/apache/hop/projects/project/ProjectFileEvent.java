@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+/** A change to a file of the active project, see {@link ProjectFileMonitor}. */
+public class ProjectFileEvent {
+
+  /** What kind of file changed */
+  public enum FileType {
+    PIPELINE,
+    WORKFLOW,
+    METADATA,
+    CONFIG,
+    OTHER
+  }
+
+  /** What happened to the file */
+  public enum Kind {
+    CREATED,
+    MODIFIED,
+    DELETED,
+    /** Changes were lost: everything in the folder of the event should be considered changed */
+    OVERFLOW
+  }
+
+  private final String projectName;
+  private final String filename;
+  private final FileType fileType;
+  private final Kind kind;
+
+  public ProjectFileEvent(String projectName, String filename, FileType fileType, Kind kind) {
+    this.projectName = projectName;
+    this.filename = filename;
+    this.fileType = fileType;
+    this.kind = kind;
+  }
+
+  /**
+   * Gets the name of the project which was active when the change was detected
+   *
+   * @return value of projectName
+   */
+  public String getProjectName() {
+    return projectName;
+  }
+
+  /**
+   * Gets the absolute filename or the URI for files which are not on the local file system
+   *
+   * @return value of filename
+   */
+  public String getFilename() {
+    return filename;
+  }
+
+  /**
+   * Gets fileType
+   *
+   * @return value of fileType
+   */
+  public FileType getFileType() {
+    return fileType;
+  }
+
+  /**
+   * Gets kind
+   *
+   * @return value of kind
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  @Override
+  public String toString() {
+    return kind + " " + fileType + " " + filename;
+  }
+}
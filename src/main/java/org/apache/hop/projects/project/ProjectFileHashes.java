@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.hop.core.logging.ILogChannel;
+
+/**
+ * The content hashes of the files of a project, shared by everything which needs to know whether
+ * a file changed. The hashes of the pipelines and workflows come from the {@link
+ * ProjectInventoryIndex}, the hashes of other files are kept in the project home in {@value
+ * ProjectIndexStore#INDEX_FOLDER}/{@value #INDEX_FILENAME}. A hash is only used as long as the last
+ * modified time and size of its file are unchanged.
+ */
+public class ProjectFileHashes {
+
+  public static final String INDEX_FILENAME = "hashes.json";
+
+  private static final int INDEX_VERSION = 1;
+
+  private final Path indexFile;
+  private final Map<String, ProjectIndexStore.FileStamp> inventoryEntries;
+  private final Map<String, ProjectIndexStore.FileStamp> entries;
+  private volatile boolean changed;
+
+  private ProjectFileHashes(Path indexFile) {
+    this.indexFile = indexFile;
+    this.inventoryEntries = new ConcurrentHashMap<>();
+    this.entries = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Load the hashes of the given project folder
+   *
+   * @param projectFolder The home folder of the project or null if it isn't on the local file
+   *     system, in which case the hashes are only kept in memory
+   * @param log The log channel to report a damaged index to
+   * @return The hashes, empty if there are none yet
+   */
+  public static ProjectFileHashes load(Path projectFolder, ILogChannel log) {
+    if (projectFolder == null) {
+      return new ProjectFileHashes(null);
+    }
+    ProjectFileHashes hashes =
+        new ProjectFileHashes(ProjectIndexStore.getIndexFile(projectFolder, INDEX_FILENAME));
+    for (Map.Entry<String, ProjectInventoryIndex.FileEntry> entry :
+        ProjectInventoryIndex.loadEntries(projectFolder, log).entrySet()) {
+      // Only the stamp is needed, not the summary
+      //
+      ProjectIndexStore.FileStamp stamp = entry.getValue();
+      hashes.inventoryEntries.put(
+          entry.getKey(),
+          new ProjectIndexStore.FileStamp(
+              stamp.getLastModified(), stamp.getSize(), stamp.getHash()));
+    }
+    hashes.entries.putAll(
+        ProjectIndexStore.load(
+            hashes.indexFile, INDEX_VERSION, ProjectIndexStore.FileStamp.class, log));
+    return hashes;
+  }
+
+  /**
+   * Get the known hash of a file
+   *
+   * @param key The path of the file relative to the project folder using / as separator, or the
+   *     absolute filename of a file outside of it
+   * @param lastModified The current last modified time of the file
+   * @param size The current size of the file
+   * @return The hash or null if it's not known for this version of the file
+   */
+  public String getHash(String key, long lastModified, long size) {
+    ProjectIndexStore.FileStamp entry = entries.get(key);
+    if (entry == null || !entry.matches(lastModified, size)) {
+      entry = inventoryEntries.get(key);
+    }
+    if (entry == null || !entry.matches(lastModified, size)) {
+      return null;
+    }
+    return entry.getHash();
+  }
+
+  /**
+   * Remember the hash of a file
+   *
+   * @param key The path of the file relative to the project folder using / as separator, or the
+   *     absolute filename of a file outside of it
+   * @param lastModified The last modified time of the hashed file
+   * @param size The size of the hashed file
+   * @param hash The hex encoded SHA-256 hash of the content
+   */
+  public void putHash(String key, long lastModified, long size, String hash) {
+    ProjectIndexStore.FileStamp previous =
+        entries.put(key, new ProjectIndexStore.FileStamp(lastModified, size, hash));
+    if (previous == null
+        || !previous.matches(lastModified, size)
+        || !hash.equals(previous.getHash())) {
+      changed = true;
+    }
+  }
+
+  /**
+   * Save the hashes if anything changed
+   *
+   * @param log The log channel to report errors to
+   */
+  public void save(ILogChannel log) {
+    if (indexFile == null || !changed) {
+      return;
+    }
+    ProjectIndexStore.save(indexFile, INDEX_VERSION, entries, log);
+    changed = false;
+  }
+
+  /**
+   * Create a digest for the algorithm of the hashes
+   *
+   * @return A new digest
+   * @throws NoSuchAlgorithmException In case the algorithm isn't available
+   */
+  public static MessageDigest newDigest() throws NoSuchAlgorithmException {
+    return MessageDigest.getInstance(ProjectIndexStore.HASH_ALGORITHM);
+  }
+
+  /**
+   * Calculate the hash of some content
+   *
+   * @param content The content to hash
+   * @return The hex encoded hash
+   * @throws NoSuchAlgorithmException In case the algorithm isn't available
+   */
+  public static String hash(byte[] content) throws NoSuchAlgorithmException {
+    return HexFormat.of().formatHex(newDigest().digest(content));
+  }
+}
@@ -0,0 +1,540 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * Watches the home folder of the active project, and of the project it is linked to, for changes.
+ * Local folders are watched with a {@link WatchService}, folders on other file systems are polled
+ * for modification times. Changes are collected for a short while and handed to the listeners in
+ * batches of {@link ProjectFileEvent}s, one per changed file.
+ *
+ * <p>The monitor is started when a project is enabled, see {@link
+ * org.apache.hop.projects.util.ProjectsUtil#enableProject}, and stopped when another project is
+ * enabled. Listeners are called from the monitor thread.
+ */
+public class ProjectFileMonitor {
+
+  private static final ProjectFileMonitor instance = new ProjectFileMonitor();
+
+  /** How long to wait for more changes before publishing a batch */
+  private static final long COALESCE_MS = 500L;
+
+  /** The longest a change is held back when changes keep coming */
+  private static final long MAX_BATCH_DELAY_MS = 2000L;
+
+  /** How often folders on other file systems are polled */
+  private static final long POLL_INTERVAL_MS = 10000L;
+
+  private static final String EXTENSION_JSON = ".json";
+
+  /** Receives batches of changes to the files of the active project */
+  @FunctionalInterface
+  public interface IProjectFileListener {
+    void filesChanged(List<ProjectFileEvent> events);
+  }
+
+  private final List<IProjectFileListener> listeners;
+  private Session session;
+
+  private ProjectFileMonitor() {
+    listeners = new CopyOnWriteArrayList<>();
+  }
+
+  public static ProjectFileMonitor getInstance() {
+    return instance;
+  }
+
+  public void addListener(IProjectFileListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(IProjectFileListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Start watching the given folders, stopping whatever was watched before. The folders are
+   * resolved, registered and listed on the monitor threads so this returns right away.
+   *
+   * @param projectName The name of the project
+   * @param folders The project home folders to watch, including the linked project home
+   * @param metadataFolders The metadata folders, to recognize metadata files
+   * @param configurationFiles The environment configuration files, to recognize them
+   */
+  public synchronized void start(
+      String projectName,
+      List<String> folders,
+      List<String> metadataFolders,
+      List<String> configurationFiles) {
+    stop();
+    session = new Session(projectName, folders, metadataFolders, configurationFiles);
+    session.start();
+  }
+
+  /** Stop watching */
+  public synchronized void stop() {
+    if (session != null) {
+      session.close();
+      session = null;
+    }
+  }
+
+  /**
+   * See if a project is being watched
+   *
+   * @return The name of the watched project or null
+   */
+  public synchronized String getProjectName() {
+    return session == null ? null : session.projectName;
+  }
+
+  private void publish(List<ProjectFileEvent> events) {
+    for (IProjectFileListener listener : listeners) {
+      try {
+        listener.filesChanged(events);
+      } catch (Exception e) {
+        LogChannel.GENERAL.logError("Error handling project file changes", e);
+      }
+    }
+  }
+
+  /** Everything watched for a single project activation */
+  private final class Session {
+    private final String projectName;
+    private final List<String> folders;
+    private final List<String> metadataFolders;
+    private final List<String> configurationFiles;
+
+    private final List<Path> localFolders;
+    private final List<FileObject> remoteFolders;
+    private final Map<WatchKey, Path> watchedFolders;
+    private final Map<String, Long> remoteModificationTimes;
+    private final Map<String, ProjectFileEvent.Kind> pending;
+    private final List<Thread> threads;
+
+    private volatile WatchService watchService;
+    private volatile boolean running;
+    private long batchStart;
+
+    private Session(
+        String projectName,
+        List<String> folders,
+        List<String> metadataFolders,
+        List<String> configurationFiles) {
+      this.projectName = projectName;
+      this.folders = new ArrayList<>(folders);
+      this.metadataFolders = new ArrayList<>();
+      this.configurationFiles = new ArrayList<>();
+      this.localFolders = new ArrayList<>();
+      this.remoteFolders = new ArrayList<>();
+      this.watchedFolders = new HashMap<>();
+      this.remoteModificationTimes = new HashMap<>();
+      this.pending = new LinkedHashMap<>();
+      this.threads = new ArrayList<>();
+      for (String folder : metadataFolders) {
+        this.metadataFolders.add(normalize(folder));
+      }
+      for (String configurationFile : configurationFiles) {
+        this.configurationFiles.add(normalize(configurationFile));
+      }
+    }
+
+    private void start() {
+      running = true;
+      startThread(this::monitor, "watch");
+    }
+
+    /**
+     * Resolve, register and list the folders before watching them. A walk of a large home or a
+     * listing over the network takes too long to do while the project is being enabled.
+     */
+    private void monitor() {
+      for (String folder : folders) {
+        watch(folder);
+      }
+      boolean watching = !localFolders.isEmpty() && registerLocalFolders();
+      if (!remoteFolders.isEmpty()) {
+        startThread(this::pollRemoteFolders, "poll");
+      }
+      if (watching) {
+        watchLocalFolders();
+      }
+    }
+
+    private void watch(String folder) {
+      watch(folder, false);
+    }
+
+    private void watch(String folder, boolean poll) {
+      try {
+        FileObject fileObject = HopVfs.getFileObject(folder);
+        if (!fileObject.exists() || !fileObject.isFolder()) {
+          return;
+        }
+        if (!poll && "file".equals(fileObject.getName().getScheme())) {
+          localFolders.add(Paths.get(fileObject.getURL().toURI()).toAbsolutePath().normalize());
+        } else {
+          remoteFolders.add(fileObject);
+        }
+      } catch (Exception e) {
+        LogChannel.GENERAL.logError("Unable to monitor project folder '" + folder + "'", e);
+      }
+    }
+
+    /**
+     * Register the local folders with a watch service, falling back to polling them
+     *
+     * @return true if the local folders are watched
+     */
+    private boolean registerLocalFolders() {
+      try {
+        watchService = FileSystems.getDefault().newWatchService();
+        if (!running) {
+          // Stopped before the watch service was visible to close()
+          closeWatchService();
+          return false;
+        }
+        for (Path folder : localFolders) {
+          registerAll(folder);
+        }
+        return running;
+      } catch (IOException | ClosedWatchServiceException e) {
+        closeWatchService();
+        if (!running) {
+          return false;
+        }
+        LogChannel.GENERAL.logError(
+            "Unable to watch the folders of project '" + projectName + "', polling them", e);
+        synchronized (watchedFolders) {
+          watchedFolders.clear();
+        }
+        for (Path folder : localFolders) {
+          watch(folder.toUri().toString(), true);
+        }
+        localFolders.clear();
+        return false;
+      }
+    }
+
+    private void startThread(Runnable runnable, String type) {
+      synchronized (threads) {
+        if (!running) {
+          return;
+        }
+        Thread thread = new Thread(runnable, "project-file-monitor-" + type + "-" + projectName);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+      }
+    }
+
+    private void registerAll(Path start) throws IOException {
+      WatchService service = watchService;
+      if (service == null) {
+        throw new ClosedWatchServiceException();
+      }
+      Files.walkFileTree(
+          start,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+              if (!running) {
+                return FileVisitResult.TERMINATE;
+              }
+              if (isIgnored(dir)) {
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+              WatchKey key =
+                  dir.register(
+                      service,
+                      StandardWatchEventKinds.ENTRY_CREATE,
+                      StandardWatchEventKinds.ENTRY_MODIFY,
+                      StandardWatchEventKinds.ENTRY_DELETE);
+              synchronized (watchedFolders) {
+                watchedFolders.put(key, dir);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    }
+
+    private void watchLocalFolders() {
+      WatchService service = watchService;
+      if (service == null) {
+        return;
+      }
+      try {
+        while (running) {
+          WatchKey key = service.poll(COALESCE_MS, TimeUnit.MILLISECONDS);
+          if (key != null) {
+            handleWatchKey(key);
+          }
+          if (key == null || isBatchDue()) {
+            flush();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ClosedWatchServiceException e) {
+        // Stopped
+      }
+    }
+
+    private void handleWatchKey(WatchKey key) {
+      Path folder;
+      synchronized (watchedFolders) {
+        folder = watchedFolders.get(key);
+      }
+      if (folder == null) {
+        key.cancel();
+        return;
+      }
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          addPending(folder.toString(), ProjectFileEvent.Kind.OVERFLOW);
+          continue;
+        }
+        Path path = folder.resolve((Path) event.context());
+        if (isIgnored(path)) {
+          continue;
+        }
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+          if (Files.isDirectory(path)) {
+            try {
+              registerAll(path);
+            } catch (IOException e) {
+              LogChannel.GENERAL.logError("Unable to watch new folder '" + path + "'", e);
+            }
+            continue;
+          }
+          addPending(path.toString(), ProjectFileEvent.Kind.CREATED);
+        } else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+          if (!Files.isDirectory(path)) {
+            addPending(path.toString(), ProjectFileEvent.Kind.MODIFIED);
+          }
+        } else {
+          addPending(path.toString(), ProjectFileEvent.Kind.DELETED);
+        }
+      }
+      if (!key.reset()) {
+        synchronized (watchedFolders) {
+          watchedFolders.remove(key);
+        }
+      }
+    }
+
+    private void pollRemoteFolders() {
+      pollRemoteFolders(false);
+      try {
+        while (running) {
+          Thread.sleep(POLL_INTERVAL_MS);
+          if (running) {
+            pollRemoteFolders(true);
+            flush();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void pollRemoteFolders(boolean report) {
+      Map<String, Long> seen = new HashMap<>();
+      for (FileObject folder : remoteFolders) {
+        try {
+          folder.refresh();
+          FileObject[] files = folder.findFiles(Selectors.SELECT_FILES);
+          if (files == null) {
+            continue;
+          }
+          for (FileObject file : files) {
+            String uri = file.getName().getURI();
+            if (isIgnored(uri)) {
+              continue;
+            }
+            file.refresh();
+            seen.put(uri, file.getContent().getLastModifiedTime());
+          }
+        } catch (Exception e) {
+          LogChannel.GENERAL.logError("Unable to poll project folder '" + folder + "'", e);
+          return;
+        }
+      }
+      if (report) {
+        for (Map.Entry<String, Long> entry : seen.entrySet()) {
+          Long previous = remoteModificationTimes.get(entry.getKey());
+          if (previous == null) {
+            addPending(entry.getKey(), ProjectFileEvent.Kind.CREATED);
+          } else if (!previous.equals(entry.getValue())) {
+            addPending(entry.getKey(), ProjectFileEvent.Kind.MODIFIED);
+          }
+        }
+        for (String uri : remoteModificationTimes.keySet()) {
+          if (!seen.containsKey(uri)) {
+            addPending(uri, ProjectFileEvent.Kind.DELETED);
+          }
+        }
+      }
+      remoteModificationTimes.clear();
+      remoteModificationTimes.putAll(seen);
+    }
+
+    private boolean isBatchDue() {
+      synchronized (pending) {
+        return !pending.isEmpty() && System.currentTimeMillis() - batchStart >= MAX_BATCH_DELAY_MS;
+      }
+    }
+
+    /** Merge a change with the ones already waiting to be published for the same file */
+    private void addPending(String filename, ProjectFileEvent.Kind kind) {
+      synchronized (pending) {
+        if (pending.isEmpty()) {
+          batchStart = System.currentTimeMillis();
+        }
+        ProjectFileEvent.Kind previous = pending.get(filename);
+        if (previous == ProjectFileEvent.Kind.CREATED && kind == ProjectFileEvent.Kind.DELETED) {
+          pending.remove(filename);
+        } else if (previous == ProjectFileEvent.Kind.CREATED
+            && kind == ProjectFileEvent.Kind.MODIFIED) {
+          // Still a new file
+        } else if (previous == ProjectFileEvent.Kind.DELETED
+            && kind == ProjectFileEvent.Kind.CREATED) {
+          pending.put(filename, ProjectFileEvent.Kind.MODIFIED);
+        } else {
+          pending.put(filename, kind);
+        }
+      }
+    }
+
+    private void flush() {
+      List<ProjectFileEvent> events = new ArrayList<>();
+      synchronized (pending) {
+        for (Map.Entry<String, ProjectFileEvent.Kind> entry : pending.entrySet()) {
+          events.add(
+              new ProjectFileEvent(
+                  projectName, entry.getKey(), getFileType(entry.getKey()), entry.getValue()));
+        }
+        pending.clear();
+      }
+      if (!events.isEmpty() && running) {
+        publish(events);
+      }
+    }
+
+    private ProjectFileEvent.FileType getFileType(String filename) {
+      String normalized = normalize(filename);
+      String lowerCase = normalized.toLowerCase(Locale.ROOT);
+      if (lowerCase.endsWith(ProjectFileScanner.EXTENSION_PIPELINE)) {
+        return ProjectFileEvent.FileType.PIPELINE;
+      }
+      if (lowerCase.endsWith(ProjectFileScanner.EXTENSION_WORKFLOW)) {
+        return ProjectFileEvent.FileType.WORKFLOW;
+      }
+      if (configurationFiles.contains(normalized)) {
+        return ProjectFileEvent.FileType.CONFIG;
+      }
+      if (lowerCase.endsWith(EXTENSION_JSON)) {
+        for (String metadataFolder : metadataFolders) {
+          if (normalized.startsWith(metadataFolder)) {
+            return ProjectFileEvent.FileType.METADATA;
+          }
+        }
+        return ProjectFileEvent.FileType.CONFIG;
+      }
+      return ProjectFileEvent.FileType.OTHER;
+    }
+
+    private void close() {
+      running = false;
+      closeWatchService();
+      synchronized (threads) {
+        for (Thread thread : threads) {
+          thread.interrupt();
+        }
+        threads.clear();
+      }
+    }
+
+    private void closeWatchService() {
+      WatchService service = watchService;
+      watchService = null;
+      if (service != null) {
+        try {
+          service.close();
+        } catch (IOException e) {
+          // Nothing left to do
+        }
+      }
+    }
+  }
+
+  /** The project indexes are written in the project home: don't report those changes */
+  private static boolean isIgnored(Path path) {
+    for (Path element : path) {
+      String name = element.toString();
+      if (".git".equals(name)) {
+        return true;
+      }
+    }
+    return path.toString().replace('\\', '/').contains(ProjectIndexStore.INDEX_FOLDER);
+  }
+
+  private static boolean isIgnored(String uri) {
+    return uri.contains("/.git/") || uri.contains(ProjectIndexStore.INDEX_FOLDER);
+  }
+
+  /** Local filenames are compared as absolute paths, everything else as URI */
+  private static String normalize(String filename) {
+    try {
+      FileObject fileObject = HopVfs.getFileObject(filename);
+      if ("file".equals(fileObject.getName().getScheme())) {
+        return Paths.get(fileObject.getURL().toURI()).toAbsolutePath().normalize().toString();
+      }
+      return fileObject.getName().getURI();
+    } catch (Exception e) {
+      return filename;
+    }
+  }
+}
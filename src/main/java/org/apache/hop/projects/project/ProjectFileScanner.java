@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.projects.config.ProjectsConfig;
+import org.apache.hop.projects.config.ProjectsConfigSingleton;
+
+/**
+ * Walks the folder of a project once and hands every pipeline and workflow file to a pool of
+ * parser threads. The queue in front of the pool is bounded: when the parsers can't keep up, the
+ * walking thread parses the file itself which throttles the walk. Progress is logged at regular
+ * intervals.
+ */
+public class ProjectFileScanner {
+
+  public static final String EXTENSION_PIPELINE = ".hpl";
+  public static final String EXTENSION_WORKFLOW = ".hwf";
+
+  private static final long PROGRESS_INTERVAL_MS = 5000L;
+
+  public enum FileType {
+    PIPELINE,
+    WORKFLOW
+  }
+
+  /** Handles a single file found during the scan. This is called from multiple threads. */
+  @FunctionalInterface
+  public interface IFileHandler {
+    void handleFile(Path path, FileType fileType) throws Exception;
+  }
+
+  private final int parallelism;
+  private final ILogChannel log;
+  private final boolean pipelines;
+  private final boolean workflows;
+
+  private final AtomicLong filesFound;
+  private final AtomicLong filesProcessed;
+  private final AtomicLong filesFailed;
+  private volatile long lastProgressTime;
+
+  /**
+   * @param parallelism The number of parser threads, 0 or less to use the configured default
+   * @param log The log channel to report progress and errors to, can be null
+   * @param pipelines Include pipeline files
+   * @param workflows Include workflow files
+   */
+  public ProjectFileScanner(
+      int parallelism, ILogChannel log, boolean pipelines, boolean workflows) {
+    this.parallelism = parallelism > 0 ? parallelism : getDefaultParallelism();
+    this.log = log == null ? LogChannel.GENERAL : log;
+    this.pipelines = pipelines;
+    this.workflows = workflows;
+    this.filesFound = new AtomicLong();
+    this.filesProcessed = new AtomicLong();
+    this.filesFailed = new AtomicLong();
+  }
+
+  /**
+   * The parallelism configured in the projects configuration or the number of available processors
+   *
+   * @return The default number of parser threads
+   */
+  public static int getDefaultParallelism() {
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    if (config != null && config.getFileScanParallelism() > 0) {
+      return config.getFileScanParallelism();
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Get the type of the given file based on its extension
+   *
+   * @param path The file to look at
+   * @return The file type or null if it's not a pipeline or workflow
+   */
+  public static FileType getFileType(Path path) {
+    Path fileName = path.getFileName();
+    if (fileName == null) {
+      return null;
+    }
+    String name = fileName.toString().toLowerCase(Locale.ROOT);
+    if (name.endsWith(EXTENSION_PIPELINE)) {
+      return FileType.PIPELINE;
+    }
+    if (name.endsWith(EXTENSION_WORKFLOW)) {
+      return FileType.WORKFLOW;
+    }
+    return null;
+  }
+
+  /**
+   * Scan the given folder. This method returns when all the files are handled.
+   *
+   * @param folder The folder to walk
+   * @param handler The handler to pass every pipeline and/or workflow file to
+   * @throws HopException In case the folder can't be walked
+   */
+  public void scan(Path folder, IFileHandler handler) throws HopException {
+    if (!Files.isDirectory(folder)) {
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    lastProgressTime = startTime;
+
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            parallelism,
+            parallelism,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(parallelism * 4),
+            new ScannerThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    try (Stream<Path> walk = Files.walk(folder)) {
+      walk.forEach(
+          path -> {
+            FileType fileType = getFileType(path);
+            if (fileType == null
+                || (fileType == FileType.PIPELINE && !pipelines)
+                || (fileType == FileType.WORKFLOW && !workflows)
+                || !Files.isRegularFile(path)) {
+              return;
+            }
+            filesFound.incrementAndGet();
+            executor.execute(() -> handle(path, fileType, handler));
+          });
+    } catch (IOException | RuntimeException e) {
+      executor.shutdownNow();
+      throw new HopException("Error scanning project folder '" + folder + "'", e);
+    }
+
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        logProgress();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new HopException("Scanning project folder '" + folder + "' was interrupted", e);
+    }
+
+    log.logBasic(
+        "Scanned "
+            + filesProcessed.get()
+            + " file(s) in "
+            + (System.currentTimeMillis() - startTime)
+            + "ms using "
+            + parallelism
+            + " thread(s)"
+            + (filesFailed.get() > 0 ? ", " + filesFailed.get() + " file(s) had errors" : ""));
+  }
+
+  private void handle(Path path, FileType fileType, IFileHandler handler) {
+    try {
+      handler.handleFile(path, fileType);
+    } catch (Exception e) {
+      filesFailed.incrementAndGet();
+      log.logError("Error reading file '" + path + "'", e);
+    }
+    filesProcessed.incrementAndGet();
+
+    long now = System.currentTimeMillis();
+    if (now - lastProgressTime >= PROGRESS_INTERVAL_MS) {
+      lastProgressTime = now;
+      logProgress();
+    }
+  }
+
+  private void logProgress() {
+    log.logBasic(
+        "Scanning project files: processed "
+            + filesProcessed.get()
+            + " of "
+            + filesFound.get()
+            + " file(s) found so far");
+  }
+
+  /**
+   * Gets parallelism
+   *
+   * @return value of parallelism
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Gets the number of files found during the last scan
+   *
+   * @return value of filesFound
+   */
+  public long getFilesFound() {
+    return filesFound.get();
+  }
+
+  /**
+   * Gets the number of files handled during the last scan
+   *
+   * @return value of filesProcessed
+   */
+  public long getFilesProcessed() {
+    return filesProcessed.get();
+  }
+
+  /**
+   * Gets the number of files which couldn't be handled during the last scan
+   *
+   * @return value of filesFailed
+   */
+  public long getFilesFailed() {
+    return filesFailed.get();
+  }
+
+  private static final class ScannerThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "project-file-scanner-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
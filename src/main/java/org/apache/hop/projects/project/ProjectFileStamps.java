@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * Stamps of files which were read: the last modified time and the size of a file, combined in a
+ * string. As long as the stamp of a file stays the same, whatever was read from it is considered
+ * to be up to date.
+ */
+public final class ProjectFileStamps {
+
+  /** The stamp of a file which doesn't exist or can't be checked */
+  public static final String FILE_MISSING = "-";
+
+  private ProjectFileStamps() {
+    // Static methods only
+  }
+
+  /**
+   * Get the current stamp of a file
+   *
+   * @param filename The resolved filename
+   * @return The stamp of the file or {@link #FILE_MISSING}
+   */
+  public static String getFileStamp(String filename) {
+    try {
+      FileObject file = HopVfs.getFileObject(filename);
+      if (!file.exists()) {
+        return FILE_MISSING;
+      }
+      FileContent content = file.getContent();
+      return content.getLastModifiedTime() + "/" + content.getSize();
+    } catch (Exception e) {
+      return FILE_MISSING;
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.hop.core.json.HopJson;
+import org.apache.hop.core.logging.ILogChannel;
+
+/**
+ * Reads and writes the JSON files kept in the project home in {@value #INDEX_FOLDER}. Every file
+ * holds a version and the entries of the files of the project, keyed by their path. All of them
+ * are caches: a file which is missing, damaged or of another version is read as empty and a file
+ * which can't be written is reported but otherwise ignored.
+ */
+public final class ProjectIndexStore {
+
+  public static final String INDEX_FOLDER = ".hop/index";
+  public static final String HASH_ALGORITHM = "SHA-256";
+
+  private ProjectIndexStore() {
+    // Static methods only
+  }
+
+  /**
+   * Get the location of an index file of a project
+   *
+   * @param projectFolder The home folder of the project
+   * @param filename The name of the index file
+   * @return The index file
+   */
+  public static Path getIndexFile(Path projectFolder, String filename) {
+    return projectFolder.resolve(INDEX_FOLDER).resolve(filename);
+  }
+
+  /**
+   * Read the entries of an index file
+   *
+   * @param indexFile The index file to read
+   * @param version The version the file should have
+   * @param entryClass The class of the entries
+   * @param log The log channel to report a damaged file to
+   * @param <T> The type of the entries
+   * @return The entries by path, empty if the file is missing, damaged or of another version
+   */
+  public static <T extends FileStamp> Map<String, T> load(
+      Path indexFile, int version, Class<T> entryClass, ILogChannel log) {
+    Map<String, T> entries = new HashMap<>();
+    if (!Files.isRegularFile(indexFile)) {
+      return entries;
+    }
+    try (InputStream inputStream = Files.newInputStream(indexFile)) {
+      ObjectMapper mapper = HopJson.newMapper();
+      JavaType type =
+          mapper.getTypeFactory().constructParametricType(IndexFile.class, entryClass);
+      IndexFile<T> file = mapper.readValue(inputStream, type);
+      if (file.getVersion() == version && file.getFiles() != null) {
+        for (Map.Entry<String, T> entry : file.getFiles().entrySet()) {
+          if (entry.getValue() != null) {
+            entries.put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+    } catch (Exception e) {
+      // A damaged index is simply rebuilt
+      log.logError("Error reading project index file '" + indexFile + "', rebuilding it", e);
+      entries.clear();
+    }
+    return entries;
+  }
+
+  /**
+   * Write the entries of an index file. The file is replaced atomically so readers never see a
+   * partially written index.
+   *
+   * @param indexFile The index file to write
+   * @param version The version of the file
+   * @param entries The entries by path
+   * @param log The log channel to report errors to
+   */
+  public static void save(
+      Path indexFile, int version, Map<String, ? extends FileStamp> entries, ILogChannel log) {
+    try {
+      Files.createDirectories(indexFile.getParent());
+      IndexFile<FileStamp> file = new IndexFile<>();
+      file.setVersion(version);
+      file.setFiles(new TreeMap<String, FileStamp>(entries));
+
+      // A unique temporary file: other processes might be saving at the same time
+      //
+      String filename = indexFile.getFileName().toString();
+      Path tempFile = Files.createTempFile(indexFile.getParent(), filename, ".tmp");
+      try {
+        try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+          HopJson.newMapper().writeValue(outputStream, file);
+        }
+        Files.move(
+            tempFile,
+            indexFile,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (Exception e) {
+      // The index is only a cache: a read-only project home doesn't prevent queries
+      log.logError("Unable to save project index file '" + indexFile + "'", e);
+    }
+  }
+
+  /** The last modified time, size and content hash of a file when it was indexed */
+  public static class FileStamp {
+    private long lastModified;
+    private long size;
+    private String hash;
+
+    public FileStamp() {
+      // For Jackson
+    }
+
+    public FileStamp(long lastModified, long size, String hash) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.hash = hash;
+    }
+
+    /**
+     * See if the file still has the last modified time and size it had when it was indexed
+     *
+     * @param lastModified The current last modified time of the file
+     * @param size The current size of the file
+     * @return true if the entry is still valid for the file
+     */
+    public boolean matches(long lastModified, long size) {
+      return this.lastModified == lastModified && this.size == size;
+    }
+
+    /**
+     * Gets lastModified
+     *
+     * @return value of lastModified
+     */
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * @param lastModified The lastModified to set
+     */
+    public void setLastModified(long lastModified) {
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Gets size
+     *
+     * @return value of size
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * @param size The size to set
+     */
+    public void setSize(long size) {
+      this.size = size;
+    }
+
+    /**
+     * Gets the hex encoded SHA-256 hash of the file content
+     *
+     * @return value of hash
+     */
+    public String getHash() {
+      return hash;
+    }
+
+    /**
+     * @param hash The hash to set
+     */
+    public void setHash(String hash) {
+      this.hash = hash;
+    }
+  }
+
+  /**
+   * The layout of an index file
+   *
+   * @param <T> The type of the entries
+   */
+  public static class IndexFile<T extends FileStamp> {
+    private int version;
+    private Map<String, T> files;
+
+    /**
+     * Gets version
+     *
+     * @return value of version
+     */
+    public int getVersion() {
+      return version;
+    }
+
+    /**
+     * @param version The version to set
+     */
+    public void setVersion(int version) {
+      this.version = version;
+    }
+
+    /**
+     * Gets files
+     *
+     * @return value of files
+     */
+    public Map<String, T> getFiles() {
+      return files;
+    }
+
+    /**
+     * @param files The files to set
+     */
+    public void setFiles(Map<String, T> files) {
+      this.files = files;
+    }
+  }
+}
@@ -0,0 +1,505 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.project;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.projects.util.ProjectsUtil;
+
+/**
+ * An inventory of the pipelines and workflows of a project which is kept on disk in the project
+ * home, in {@value ProjectIndexStore#INDEX_FOLDER}/{@value #INDEX_FILENAME}. For every file the
+ * last modified time, the size, a SHA-256 hash of the content and the summary of the file are
+ * stored. When the index is refreshed only new and changed files are read again.
+ *
+ * <p>The summaries include the metadata items referenced by every transform and action, see {@link
+ * MetadataReferenceKeys}. A reverse index from the metadata item name to the files referencing it
+ * is kept up to date with the entries.
+ */
+public class ProjectInventoryIndex {
+
+  public static final String INDEX_FILENAME = "inventory.json";
+
+  private static final int INDEX_VERSION = 2;
+
+  private final Path projectFolder;
+  private final Path indexFile;
+  private final Map<String, FileEntry> entries;
+  private final Map<String, Set<String>> filesByMetadataName;
+
+  private ProjectInventoryIndex(Path projectFolder) {
+    this.projectFolder = projectFolder;
+    this.indexFile = ProjectIndexStore.getIndexFile(projectFolder, INDEX_FILENAME);
+    this.entries = new ConcurrentHashMap<>();
+    this.filesByMetadataName = new HashMap<>();
+  }
+
+  /**
+   * Load the index of the given project folder, bring it up to date and save it if anything
+   * changed.
+   *
+   * @param projectFolder The home folder of the project
+   * @param log The log channel to report to, can be null
+   * @param parallelism The number of threads to read changed files with, 0 or less for the default
+   * @return The up to date index
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public static ProjectInventoryIndex open(Path projectFolder, ILogChannel log, int parallelism)
+      throws HopException {
+    ILogChannel logChannel = log == null ? LogChannel.GENERAL : log;
+    ProjectInventoryIndex index = new ProjectInventoryIndex(projectFolder);
+    index.load(logChannel);
+    if (index.refresh(logChannel, parallelism)) {
+      index.save(logChannel);
+    }
+    return index;
+  }
+
+  /**
+   * Read the entries of the index of the given project folder as they were saved, without
+   * bringing them up to date
+   *
+   * @param projectFolder The home folder of the project
+   * @param log The log channel to report a damaged index to
+   * @return The entries by the path relative to the project home
+   */
+  static Map<String, FileEntry> loadEntries(Path projectFolder, ILogChannel log) {
+    Map<String, FileEntry> entries =
+        ProjectIndexStore.load(
+            ProjectIndexStore.getIndexFile(projectFolder, INDEX_FILENAME),
+            INDEX_VERSION,
+            FileEntry.class,
+            log);
+    entries.values().removeIf(entry -> entry.getSummary() == null);
+    return entries;
+  }
+
+  private void load(ILogChannel log) {
+    for (Map.Entry<String, FileEntry> entry : loadEntries(projectFolder, log).entrySet()) {
+      putEntry(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Bring the index up to date with the files in the project folder
+   *
+   * @param log The log channel to report to
+   * @param parallelism The number of threads to read changed files with, 0 or less for the default
+   * @return true if anything changed
+   * @throws HopException In case the project folder can't be scanned
+   */
+  private boolean refresh(ILogChannel log, int parallelism) throws HopException {
+    Set<String> seen = ConcurrentHashMap.newKeySet();
+    AtomicBoolean changed = new AtomicBoolean(false);
+
+    ProjectFileScanner scanner = new ProjectFileScanner(parallelism, log, true, true);
+    scanner.scan(
+        projectFolder,
+        (path, fileType) -> {
+          String relativePath = getRelativePath(path);
+          seen.add(relativePath);
+
+          BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+          long lastModified = attributes.lastModifiedTime().toMillis();
+          long size = attributes.size();
+          FileEntry entry = entries.get(relativePath);
+          if (entry != null && entry.matches(lastModified, size)) {
+            entry.getSummary().setFilename(path.toString());
+            return;
+          }
+
+          try {
+            MessageDigest digest = ProjectFileHashes.newDigest();
+            HopFileSummary summary =
+                HopFileSummaryReader.read(
+                    path, fileType, digest, MetadataReferenceKeys.getInstance()::getKeys);
+            String hash = HexFormat.of().formatHex(digest.digest());
+            putEntry(relativePath, new FileEntry(lastModified, size, hash, summary));
+          } catch (Exception e) {
+            // Don't keep a stale summary around
+            removeEntry(relativePath);
+            throw e;
+          } finally {
+            changed.set(true);
+          }
+        });
+
+    for (String relativePath : new ArrayList<>(entries.keySet())) {
+      if (!seen.contains(relativePath)) {
+        removeEntry(relativePath);
+        changed.set(true);
+      }
+    }
+    return changed.get();
+  }
+
+  private void putEntry(String relativePath, FileEntry entry) {
+    synchronized (filesByMetadataName) {
+      FileEntry previous = entries.put(relativePath, entry);
+      if (previous != null) {
+        unindexMetadataReferences(relativePath, previous);
+      }
+      for (HopFileSummary.Item item : entry.getSummary().getItems()) {
+        for (HopFileSummary.MetadataReference reference : item.getMetadataReferences()) {
+          filesByMetadataName
+              .computeIfAbsent(reference.getName(), name -> new HashSet<>())
+              .add(relativePath);
+        }
+      }
+    }
+  }
+
+  private void removeEntry(String relativePath) {
+    synchronized (filesByMetadataName) {
+      FileEntry previous = entries.remove(relativePath);
+      if (previous != null) {
+        unindexMetadataReferences(relativePath, previous);
+      }
+    }
+  }
+
+  private void unindexMetadataReferences(String relativePath, FileEntry entry) {
+    for (HopFileSummary.Item item : entry.getSummary().getItems()) {
+      for (HopFileSummary.MetadataReference reference : item.getMetadataReferences()) {
+        Set<String> files = filesByMetadataName.get(reference.getName());
+        if (files != null) {
+          files.remove(relativePath);
+          if (files.isEmpty()) {
+            filesByMetadataName.remove(reference.getName());
+          }
+        }
+      }
+    }
+  }
+
+  private void save(ILogChannel log) {
+    ProjectIndexStore.save(indexFile, INDEX_VERSION, entries, log);
+  }
+
+  private String getRelativePath(Path path) {
+    return projectFolder.relativize(path).toString().replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Get the summaries of the indexed files, sorted by filename
+   *
+   * @param pipelines Include the pipelines
+   * @param workflows Include the workflows
+   * @return The summaries
+   */
+  public List<HopFileSummary> getSummaries(boolean pipelines, boolean workflows) {
+    List<HopFileSummary> summaries = new ArrayList<>();
+    for (FileEntry entry : entries.values()) {
+      HopFileSummary summary = entry.getSummary();
+      if ((pipelines && summary.getFileType() == ProjectFileScanner.FileType.PIPELINE)
+          || (workflows && summary.getFileType() == ProjectFileScanner.FileType.WORKFLOW)) {
+        summaries.add(summary);
+      }
+    }
+    summaries.sort(Comparator.comparing(HopFileSummary::getFilename));
+    return summaries;
+  }
+
+  /**
+   * Get the plugin IDs of all the transforms used in the project
+   *
+   * @return The sorted transform plugin IDs
+   */
+  public List<String> getTransformTypes() {
+    return getTypes(ProjectFileScanner.FileType.PIPELINE);
+  }
+
+  /**
+   * Get the plugin IDs of all the actions used in the project
+   *
+   * @return The sorted action plugin IDs
+   */
+  public List<String> getActionTypes() {
+    return getTypes(ProjectFileScanner.FileType.WORKFLOW);
+  }
+
+  private List<String> getTypes(ProjectFileScanner.FileType fileType) {
+    Set<String> types = new TreeSet<>();
+    for (FileEntry entry : entries.values()) {
+      if (entry.getSummary().getFileType() == fileType) {
+        types.addAll(entry.getSummary().getTypes());
+      }
+    }
+    return new ArrayList<>(types);
+  }
+
+  /**
+   * Get the files which reference the connection with the given name
+   *
+   * @param connectionName The name of the connection
+   * @return The sorted filenames
+   */
+  public List<String> getFilesUsingConnection(String connectionName) {
+    Set<String> filenames = new TreeSet<>();
+    for (FileEntry entry : entries.values()) {
+      if (entry.getSummary().getConnections().contains(connectionName)) {
+        filenames.add(entry.getSummary().getFilename());
+      }
+    }
+    return new ArrayList<>(filenames);
+  }
+
+  /**
+   * Get the files which use the variable with the given name
+   *
+   * @param variableName The name of the variable, without ${}
+   * @return The sorted filenames
+   */
+  public List<String> getFilesUsingVariable(String variableName) {
+    Set<String> filenames = new TreeSet<>();
+    for (FileEntry entry : entries.values()) {
+      if (entry.getSummary().getVariables().contains(variableName)) {
+        filenames.add(entry.getSummary().getFilename());
+      }
+    }
+    return new ArrayList<>(filenames);
+  }
+
+  /**
+   * Get the files which reference the given file, for example to execute it as a sub-pipeline
+   *
+   * @param filename The absolute filename or the filename relative to the project home
+   * @return The sorted filenames of the referencing files
+   */
+  public List<String> getFilesReferencing(String filename) {
+    Path target = projectFolder.resolve(filename).normalize();
+    String projectHome = "${" + ProjectsUtil.VARIABLE_PROJECT_HOME + "}";
+    Set<String> filenames = new TreeSet<>();
+    for (FileEntry entry : entries.values()) {
+      for (String reference : entry.getSummary().getReferencedFiles()) {
+        String referenced = reference.replace(projectHome, projectFolder.toString());
+        try {
+          if (projectFolder.resolve(referenced).normalize().equals(target)) {
+            filenames.add(entry.getSummary().getFilename());
+            break;
+          }
+        } catch (Exception e) {
+          // Not a valid path, for example because of other variables: not a match
+        }
+      }
+    }
+    return new ArrayList<>(filenames);
+  }
+
+  /**
+   * Get all the places where the metadata item with the given name is referenced, sorted by
+   * filename. The metadata type isn't known up front: items of different types can share a name.
+   *
+   * @param metadataName The name of the metadata item
+   * @return The usages of the metadata item
+   */
+  public List<MetadataUsage> getMetadataUsages(String metadataName) {
+    Set<String> relativePaths;
+    synchronized (filesByMetadataName) {
+      relativePaths = new TreeSet<>(filesByMetadataName.getOrDefault(metadataName, Set.of()));
+    }
+    List<MetadataUsage> usages = new ArrayList<>();
+    for (String relativePath : relativePaths) {
+      FileEntry entry = entries.get(relativePath);
+      if (entry == null) {
+        continue;
+      }
+      HopFileSummary summary = entry.getSummary();
+      for (HopFileSummary.Item item : summary.getItems()) {
+        for (HopFileSummary.MetadataReference reference : item.getMetadataReferences()) {
+          if (metadataName.equals(reference.getName())) {
+            usages.add(new MetadataUsage(summary, item, reference));
+          }
+        }
+      }
+    }
+    return usages;
+  }
+
+  /**
+   * Get the index entry of the given file
+   *
+   * @param relativePath The path of the file relative to the project home, using / as separator
+   * @return The entry or null if the file isn't indexed
+   */
+  public FileEntry getEntry(String relativePath) {
+    return entries.get(relativePath);
+  }
+
+  /**
+   * Gets the indexed files with their entry, keyed by the path relative to the project home
+   *
+   * @return A sorted copy of the entries
+   */
+  public Map<String, FileEntry> getEntries() {
+    return new TreeMap<>(entries);
+  }
+
+  /**
+   * Gets projectFolder
+   *
+   * @return value of projectFolder
+   */
+  public Path getProjectFolder() {
+    return projectFolder;
+  }
+
+  /**
+   * Gets indexFile
+   *
+   * @return value of indexFile
+   */
+  public Path getIndexFile() {
+    return indexFile;
+  }
+
+  /** The information kept about a single file */
+  public static class FileEntry extends ProjectIndexStore.FileStamp {
+    private HopFileSummary summary;
+
+    public FileEntry() {
+      // For Jackson
+    }
+
+    public FileEntry(long lastModified, long size, String hash, HopFileSummary summary) {
+      super(lastModified, size, hash);
+      this.summary = summary;
+    }
+
+    /**
+     * Gets summary
+     *
+     * @return value of summary
+     */
+    public HopFileSummary getSummary() {
+      return summary;
+    }
+
+    /**
+     * @param summary The summary to set
+     */
+    public void setSummary(HopFileSummary summary) {
+      this.summary = summary;
+    }
+  }
+
+  /** A transform or action property which references a metadata item */
+  public static class MetadataUsage {
+    private final String filename;
+    private final ProjectFileScanner.FileType fileType;
+    private final String itemName;
+    private final String itemType;
+    private final String property;
+    private final String metadataType;
+    private final String metadataName;
+
+    public MetadataUsage(
+        HopFileSummary summary,
+        HopFileSummary.Item item,
+        HopFileSummary.MetadataReference reference) {
+      this.filename = summary.getFilename();
+      this.fileType = summary.getFileType();
+      this.itemName = item.getName();
+      this.itemType = item.getType();
+      this.property = reference.getProperty();
+      this.metadataType = reference.getMetadataType();
+      this.metadataName = reference.getName();
+    }
+
+    /**
+     * Gets the filename of the pipeline or workflow
+     *
+     * @return value of filename
+     */
+    public String getFilename() {
+      return filename;
+    }
+
+    /**
+     * Gets fileType
+     *
+     * @return value of fileType
+     */
+    public ProjectFileScanner.FileType getFileType() {
+      return fileType;
+    }
+
+    /**
+     * Gets the name of the transform or action
+     *
+     * @return value of itemName
+     */
+    public String getItemName() {
+      return itemName;
+    }
+
+    /**
+     * Gets the plugin ID of the transform or action
+     *
+     * @return value of itemType
+     */
+    public String getItemType() {
+      return itemType;
+    }
+
+    /**
+     * Gets the key of the property holding the reference
+     *
+     * @return value of property
+     */
+    public String getProperty() {
+      return property;
+    }
+
+    /**
+     * Gets the metadata property type, for example RDBMS_CONNECTION
+     *
+     * @return value of metadataType
+     */
+    public String getMetadataType() {
+      return metadataType;
+    }
+
+    /**
+     * Gets metadataName
+     *
+     * @return value of metadataName
+     */
+    public String getMetadataName() {
+      return metadataName;
+    }
+  }
+}
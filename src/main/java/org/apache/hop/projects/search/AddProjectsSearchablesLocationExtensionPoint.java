@@ -46,7 +46,7 @@ public class AddProjectsSearchablesLocationExtensionPoint
       return;
     }
     ProjectConfig projectConfig =
-        ProjectsConfigSingleton.getConfig().findProjectConfig(projectName);
+        ProjectsConfigSingleton.getSnapshot().findProjectConfig(projectName);
     if (projectConfig == null) {
       return;
     }
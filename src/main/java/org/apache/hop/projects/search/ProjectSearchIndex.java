@@ -0,0 +1,524 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.search;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hop.core.Const;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.projects.config.ProjectsConfigSingleton;
+import org.apache.hop.projects.environment.LifecycleEnvironment;
+import org.apache.hop.projects.project.ProjectConfig;
+import org.apache.hop.projects.project.ProjectFileHashes;
+import org.apache.hop.projects.project.ProjectIndexStore;
+
+/**
+ * An inverted index over the searchable content of a project: the names and properties of the
+ * transforms and actions in the pipelines and workflows, the metadata objects and the described
+ * variables of the environment configuration files. Metadata folders outside of the project home,
+ * like the one of a linked project, are indexed as well. It is stored in the project home in
+ * {@value ProjectIndexStore#INDEX_FOLDER}/{@value #INDEX_FILENAME}.
+ *
+ * <p>Every file is split into lower case terms of letters, digits and underscores. When the index
+ * is opened the hashes of the files with a different modification time or size are looked up in
+ * the {@link ProjectFileHashes}, and only the files with a different content are tokenized again.
+ */
+public class ProjectSearchIndex {
+
+  public static final String INDEX_FILENAME = "search.json";
+  public static final String PREFIX_WILDCARD = "*";
+
+  private static final int INDEX_VERSION = 1;
+
+  private static final String EXTENSION_PIPELINE = ".hpl";
+  private static final String EXTENSION_WORKFLOW = ".hwf";
+  private static final String EXTENSION_JSON = ".json";
+
+  private static final class FactoryHolder {
+    private static final XMLInputFactory XML_FACTORY;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    static {
+      XML_FACTORY = XMLInputFactory.newFactory();
+      XML_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XML_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      XML_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+      XML_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+  }
+
+  private final Path projectFolder;
+  private final Path indexFolder;
+  private final Path indexFile;
+  private final Map<String, FileEntry> entries;
+  private final NavigableMap<String, Set<String>> filesByTerm;
+
+  private ProjectSearchIndex(Path projectFolder) {
+    this.projectFolder = projectFolder;
+    this.indexFolder = projectFolder.resolve(ProjectIndexStore.INDEX_FOLDER);
+    this.indexFile = indexFolder.resolve(INDEX_FILENAME);
+    this.entries = new ConcurrentHashMap<>();
+    this.filesByTerm = new TreeMap<>();
+  }
+
+  /**
+   * Load the search index of the given project folder, bring it up to date and save it if
+   * anything changed.
+   *
+   * @param projectFolder The home folder of the project
+   * @param extraFiles Files outside of the project home to index, like environment configuration
+   *     files
+   * @param log The log channel to report to, can be null
+   * @return The up to date index
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public static ProjectSearchIndex open(Path projectFolder, List<Path> extraFiles, ILogChannel log)
+      throws HopException {
+    ILogChannel logChannel = log == null ? LogChannel.GENERAL : log;
+    ProjectSearchIndex index = new ProjectSearchIndex(projectFolder);
+    index.load(logChannel);
+    if (index.refresh(extraFiles, logChannel)) {
+      index.save(logChannel);
+    }
+    return index;
+  }
+
+  /**
+   * Open the search index of the given project, including the configuration files of its
+   * environments and the metadata folders of the active project which are outside of its home.
+   *
+   * @param projectConfig The project to open the index of
+   * @param variables The variables to resolve the project home and configuration files with and to
+   *     get the metadata folders from
+   * @param log The log channel to report to, can be null
+   * @return The up to date index
+   * @throws HopException In case the project folder can't be scanned
+   */
+  public static ProjectSearchIndex open(
+      ProjectConfig projectConfig, IVariables variables, ILogChannel log) throws HopException {
+    Path projectFolder =
+        Paths.get(variables.resolve(projectConfig.getProjectHome())).toAbsolutePath().normalize();
+    List<Path> configurationFiles = new ArrayList<>();
+    for (LifecycleEnvironment environment :
+        ProjectsConfigSingleton.getSnapshot()
+            .findEnvironmentsOfProject(projectConfig.getProjectName())) {
+      for (String configurationFile : environment.getConfigurationFiles()) {
+        try {
+          configurationFiles.add(
+              Paths.get(variables.resolve(configurationFile)).toAbsolutePath().normalize());
+        } catch (Exception e) {
+          // Not a local file, it's not indexed
+        }
+      }
+    }
+    List<Path> extraFiles = new ArrayList<>(configurationFiles);
+    String metadataFolders = variables.getVariable(Const.HOP_METADATA_FOLDER);
+    if (StringUtils.isNotEmpty(metadataFolders)) {
+      for (String metadataFolder : metadataFolders.split(",")) {
+        addMetadataFiles(extraFiles, projectFolder, metadataFolder.trim());
+      }
+    }
+    return open(projectFolder, extraFiles, log);
+  }
+
+  /** Add the metadata files of a folder outside of the project home, which isn't walked */
+  private static void addMetadataFiles(List<Path> files, Path projectFolder, String folder) {
+    if (StringUtils.isEmpty(folder)) {
+      return;
+    }
+    try {
+      Path metadataFolder = Paths.get(folder).toAbsolutePath().normalize();
+      if (metadataFolder.startsWith(projectFolder) || !Files.isDirectory(metadataFolder)) {
+        return;
+      }
+      try (Stream<Path> walk = Files.walk(metadataFolder)) {
+        walk.filter(ProjectSearchIndex::isIndexed).filter(Files::isRegularFile).forEach(files::add);
+      }
+    } catch (Exception e) {
+      // Not a local folder, its metadata isn't indexed
+    }
+  }
+
+  private void load(ILogChannel log) {
+    Map<String, FileEntry> loaded =
+        ProjectIndexStore.load(indexFile, INDEX_VERSION, FileEntry.class, log);
+    for (Map.Entry<String, FileEntry> entry : loaded.entrySet()) {
+      if (entry.getValue().getTerms() != null) {
+        putEntry(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private boolean refresh(List<Path> extraFiles, ILogChannel log) throws HopException {
+    List<Path> files = new ArrayList<>();
+    if (Files.isDirectory(projectFolder)) {
+      try (Stream<Path> walk = Files.walk(projectFolder)) {
+        files.addAll(
+            walk.filter(path -> !path.startsWith(indexFolder) && isIndexed(path))
+                .filter(Files::isRegularFile)
+                .collect(Collectors.toList()));
+      } catch (Exception e) {
+        throw new HopException("Error scanning project folder '" + projectFolder + "'", e);
+      }
+    }
+    if (extraFiles != null) {
+      for (Path extraFile : extraFiles) {
+        if (Files.isRegularFile(extraFile)) {
+          files.add(extraFile);
+        }
+      }
+    }
+
+    ProjectFileHashes hashes = ProjectFileHashes.load(projectFolder, log);
+    Set<String> seen = ConcurrentHashMap.newKeySet();
+    AtomicBoolean changed = new AtomicBoolean(false);
+    files.parallelStream()
+        .forEach(
+            path -> {
+              String key = getKey(path);
+              seen.add(key);
+              try {
+                if (refreshFile(key, path, hashes)) {
+                  changed.set(true);
+                }
+              } catch (Exception e) {
+                log.logError("Error indexing file '" + path + "' for searching", e);
+                removeEntry(key);
+                changed.set(true);
+              }
+            });
+
+    for (String key : new ArrayList<>(entries.keySet())) {
+      if (!seen.contains(key)) {
+        removeEntry(key);
+        changed.set(true);
+      }
+    }
+    hashes.save(log);
+    return changed.get();
+  }
+
+  private boolean refreshFile(String key, Path path, ProjectFileHashes hashes) throws Exception {
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    long size = attributes.size();
+    FileEntry entry = entries.get(key);
+    if (entry != null && entry.matches(lastModified, size)) {
+      return false;
+    }
+
+    byte[] content = null;
+    String hash = hashes.getHash(key, lastModified, size);
+    if (hash == null) {
+      content = Files.readAllBytes(path);
+      hash = ProjectFileHashes.hash(content);
+      hashes.putHash(key, lastModified, size, hash);
+    }
+    if (entry != null && hash.equals(entry.getHash())) {
+      // Touched but not changed: the terms are still correct
+      //
+      entry.setLastModified(lastModified);
+      entry.setSize(size);
+      return true;
+    }
+
+    if (content == null) {
+      content = Files.readAllBytes(path);
+    }
+    Set<String> terms = new TreeSet<>();
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    addTerms(name, terms);
+    if (name.endsWith(EXTENSION_JSON)) {
+      collectJsonTerms(content, terms);
+    } else {
+      collectXmlTerms(content, terms);
+    }
+    putEntry(key, new FileEntry(lastModified, size, hash, new ArrayList<>(terms)));
+    return true;
+  }
+
+  private static void collectXmlTerms(byte[] content, Set<String> terms) throws Exception {
+    XMLStreamReader reader =
+        FactoryHolder.XML_FACTORY.createXMLStreamReader(new ByteArrayInputStream(content));
+    try {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              addTerms(reader.getAttributeValue(i), terms);
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+            addTerms(reader.getText(), terms);
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static void collectJsonTerms(byte[] content, Set<String> terms) throws Exception {
+    try (JsonParser parser = FactoryHolder.JSON_FACTORY.createParser(content)) {
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        if (token == JsonToken.VALUE_STRING || token.isNumeric()) {
+          addTerms(parser.getText(), terms);
+        }
+      }
+    }
+  }
+
+  /**
+   * Split the given text into lower case terms of letters, digits and underscores
+   *
+   * @param text The text to split
+   * @param terms The collection to add the terms to, in the order in which they appear
+   */
+  public static void addTerms(String text, Collection<String> terms) {
+    if (text == null) {
+      return;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean termChar = i < text.length() && isTermChar(text.charAt(i));
+      if (termChar && start < 0) {
+        start = i;
+      } else if (!termChar && start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+  }
+
+  private static boolean isTermChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  private static boolean isIndexed(Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    return name.endsWith(EXTENSION_PIPELINE)
+        || name.endsWith(EXTENSION_WORKFLOW)
+        || name.endsWith(EXTENSION_JSON);
+  }
+
+  private void putEntry(String key, FileEntry entry) {
+    synchronized (filesByTerm) {
+      FileEntry previous = entries.put(key, entry);
+      if (previous != null) {
+        unindexTerms(key, previous);
+      }
+      for (String term : entry.getTerms()) {
+        filesByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(key);
+      }
+    }
+  }
+
+  private void removeEntry(String key) {
+    synchronized (filesByTerm) {
+      FileEntry previous = entries.remove(key);
+      if (previous != null) {
+        unindexTerms(key, previous);
+      }
+    }
+  }
+
+  private void unindexTerms(String key, FileEntry entry) {
+    for (String term : entry.getTerms()) {
+      Set<String> files = filesByTerm.get(term);
+      if (files != null) {
+        files.remove(key);
+        if (files.isEmpty()) {
+          filesByTerm.remove(term);
+        }
+      }
+    }
+  }
+
+  private void save(ILogChannel log) {
+    ProjectIndexStore.save(indexFile, INDEX_VERSION, entries, log);
+  }
+
+  /** Files in the project home are kept relative to it so the project can be moved */
+  private String getKey(Path path) {
+    if (path.startsWith(projectFolder)) {
+      return projectFolder.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+    return path.toAbsolutePath().toString();
+  }
+
+  private String getFilename(String key) {
+    return projectFolder.resolve(key).toAbsolutePath().normalize().toString();
+  }
+
+  /**
+   * Find the files containing the given term
+   *
+   * @param term The term to look for, case insensitive
+   * @return The sorted absolute filenames
+   */
+  public Set<String> findTerm(String term) {
+    Set<String> filenames = new TreeSet<>();
+    synchronized (filesByTerm) {
+      for (String key : filesByTerm.getOrDefault(term.toLowerCase(Locale.ROOT), Set.of())) {
+        filenames.add(getFilename(key));
+      }
+    }
+    return filenames;
+  }
+
+  /**
+   * Find the files containing a term starting with the given prefix
+   *
+   * @param prefix The start of the terms to look for, case insensitive
+   * @return The sorted absolute filenames
+   */
+  public Set<String> findPrefix(String prefix) {
+    String from = prefix.toLowerCase(Locale.ROOT);
+    Set<String> filenames = new TreeSet<>();
+    synchronized (filesByTerm) {
+      for (Set<String> keys :
+          filesByTerm.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+        for (String key : keys) {
+          filenames.add(getFilename(key));
+        }
+      }
+    }
+    return filenames;
+  }
+
+  /**
+   * Find the files matching a query. The query is split into terms the same way as the content of
+   * the files and a file has to contain all of them. A query ending with {@value #PREFIX_WILDCARD}
+   * matches the last term as a prefix.
+   *
+   * @param query The query
+   * @return The sorted absolute filenames of the matching files
+   */
+  public Set<String> find(String query) {
+    boolean prefix = query.trim().endsWith(PREFIX_WILDCARD);
+    List<String> queryTerms = new ArrayList<>();
+    addTerms(query, queryTerms);
+    if (queryTerms.isEmpty()) {
+      return Collections.emptySet();
+    }
+    Set<String> result = null;
+    for (int i = 0; i < queryTerms.size(); i++) {
+      String term = queryTerms.get(i);
+      Set<String> files =
+          prefix && i == queryTerms.size() - 1 ? findPrefix(term) : findTerm(term);
+      if (result == null) {
+        result = files;
+      } else {
+        result.retainAll(files);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the number of indexed files
+   *
+   * @return The number of files
+   */
+  public int getFileCount() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the number of distinct terms
+   *
+   * @return The number of terms
+   */
+  public int getTermCount() {
+    synchronized (filesByTerm) {
+      return filesByTerm.size();
+    }
+  }
+
+  /**
+   * Gets indexFile
+   *
+   * @return value of indexFile
+   */
+  public Path getIndexFile() {
+    return indexFile;
+  }
+
+  /** The information kept about a single file */
+  public static class FileEntry extends ProjectIndexStore.FileStamp {
+    private List<String> terms;
+
+    public FileEntry() {
+      // For Jackson
+    }
+
+    public FileEntry(long lastModified, long size, String hash, List<String> terms) {
+      super(lastModified, size, hash);
+      this.terms = terms;
+    }
+
+    /**
+     * Gets the sorted terms found in the file
+     *
+     * @return value of terms
+     */
+    public List<String> getTerms() {
+      return terms;
+    }
+
+    /**
+     * @param terms The terms to set
+     */
+    public void setTerms(List<String> terms) {
+      this.terms = terms;
+    }
+  }
+}
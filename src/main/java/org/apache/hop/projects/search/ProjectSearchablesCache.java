@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.search.ISearchable;
+import org.apache.hop.core.vfs.HopVfs;
+import org.apache.hop.projects.config.ProjectsConfig;
+import org.apache.hop.projects.config.ProjectsConfigSingleton;
+import org.apache.hop.projects.project.ProjectFileEvent;
+import org.apache.hop.projects.project.ProjectFileMonitor;
+
+/**
+ * Keeps the searchables loaded from the files of a project so that searching the same project
+ * again doesn't parse every pipeline, workflow, metadata object and configuration file again. An
+ * entry is only used as long as the modification time and size of its file didn't change. The
+ * loaded pipelines and workflows depend on the variables and metadata of the active environment,
+ * so the entries of a project are dropped every time it's activated. The number of entries is
+ * limited by {@link ProjectsConfig#getSearchCacheSize()}, the least recently used entries are
+ * evicted first.
+ */
+public class ProjectSearchablesCache {
+
+  private static final ProjectSearchablesCache instance = new ProjectSearchablesCache();
+
+  private final LinkedHashMap<String, Entry> entries;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  private ProjectSearchablesCache() {
+    entries = new LinkedHashMap<>(256, 0.75f, true);
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+    ProjectFileMonitor.getInstance().addListener(this::filesChanged);
+  }
+
+  public static ProjectSearchablesCache getInstance() {
+    return instance;
+  }
+
+  /** Loads the searchables of a single file */
+  @FunctionalInterface
+  public interface IFileSearchablesLoader {
+    List<ISearchable> load() throws Exception;
+  }
+
+  /**
+   * Get the searchables of the given file from the cache or load them if the file changed since
+   * they were cached.
+   *
+   * @param projectName The name of the project the file belongs to
+   * @param key The key of the searchables, unique within the project
+   * @param file The file the searchables are loaded from
+   * @param loader Loads the searchables when they're not cached
+   * @return The searchables
+   * @throws Exception In case the searchables can't be loaded
+   */
+  public List<ISearchable> getSearchables(
+      String projectName, String key, FileObject file, IFileSearchablesLoader loader)
+      throws Exception {
+    int maxSize = getMaxSize();
+    if (maxSize <= 0) {
+      return loader.load();
+    }
+
+    String cacheKey = projectName + "\u0000" + key;
+    long lastModified;
+    long size;
+    try {
+      file.refresh();
+      FileContent content = file.getContent();
+      lastModified = content.getLastModifiedTime();
+      size = content.getSize();
+    } catch (Exception e) {
+      // Without a modification time there is no way to tell if the entry is still valid
+      //
+      invalidate(cacheKey);
+      return loader.load();
+    }
+
+    synchronized (entries) {
+      Entry entry = entries.get(cacheKey);
+      if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+        hits.incrementAndGet();
+        return entry.searchables;
+      }
+    }
+    misses.incrementAndGet();
+
+    List<ISearchable> searchables = loader.load();
+    synchronized (entries) {
+      entries.put(cacheKey, new Entry(lastModified, size, List.copyOf(searchables)));
+      evict(maxSize);
+    }
+    return searchables;
+  }
+
+  private void evict(int maxSize) {
+    Iterator<String> iterator = entries.keySet().iterator();
+    while (entries.size() > maxSize && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  private void invalidate(String cacheKey) {
+    synchronized (entries) {
+      entries.remove(cacheKey);
+    }
+  }
+
+  /**
+   * Forget the cached searchables of the given project
+   *
+   * @param projectName The name of the project
+   */
+  public void invalidateProject(String projectName) {
+    String prefix = projectName + "\u0000";
+    synchronized (entries) {
+      entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+  }
+
+  /**
+   * Drop the entries of changed files right away instead of waiting for the next lookup. This
+   * frees the memory of deleted files which would otherwise stay until they are evicted.
+   */
+  private void filesChanged(List<ProjectFileEvent> events) {
+    for (ProjectFileEvent event : events) {
+      String prefix = event.getProjectName() + "\u0000";
+      switch (event.getFileType()) {
+        case PIPELINE:
+        case WORKFLOW:
+          try {
+            invalidate(prefix + HopVfs.getFileObject(event.getFilename()).getName().getURI());
+          } catch (Exception e) {
+            invalidateProject(event.getProjectName());
+          }
+          break;
+        case METADATA:
+          String name = FilenameUtils.getBaseName(event.getFilename());
+          String type =
+              FilenameUtils.getName(FilenameUtils.getPathNoEndSeparator(event.getFilename()));
+          invalidate(prefix + type + "/" + name);
+          break;
+        default:
+          if (event.getKind() == ProjectFileEvent.Kind.OVERFLOW) {
+            invalidateProject(event.getProjectName());
+          }
+          break;
+      }
+    }
+  }
+
+  /** Forget all cached searchables */
+  public void invalidateAll() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private static int getMaxSize() {
+    return ProjectsConfigSingleton.getSnapshot().getSearchCacheSize();
+  }
+
+  /**
+   * Gets the number of cached entries
+   *
+   * @return The number of entries
+   */
+  public int getSize() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Gets the number of lookups answered from the cache
+   *
+   * @return value of hits
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of lookups which had to load the searchables
+   *
+   * @return value of misses
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private static final class Entry {
+    private final long lastModified;
+    private final long size;
+    private final List<ISearchable> searchables;
+
+    private Entry(long lastModified, long size, List<ISearchable> searchables) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.searchables = searchables;
+    }
+  }
+}
@@ -17,11 +17,27 @@
 
 package org.apache.hop.projects.search;
 
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.Const;
 import org.apache.hop.core.config.DescribedVariablesConfigFile;
 import org.apache.hop.core.config.HopConfig;
 import org.apache.hop.core.exception.HopException;
@@ -30,6 +46,7 @@ import org.apache.hop.core.search.ISearchable;
 import org.apache.hop.core.variables.DescribedVariable;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.core.vfs.HopVfs;
+import org.apache.hop.metadata.api.HopMetadata;
 import org.apache.hop.metadata.api.IHopMetadata;
 import org.apache.hop.metadata.api.IHopMetadataProvider;
 import org.apache.hop.metadata.api.IHopMetadataSerializer;
@@ -44,21 +61,104 @@ import org.apache.hop.ui.hopgui.search.HopGuiPipelineSearchable;
 import org.apache.hop.ui.hopgui.search.HopGuiWorkflowSearchable;
 import org.apache.hop.workflow.WorkflowMeta;
 
-// TODO: implement lazy loading of the searchables.
-//
-public class ProjectSearchablesIterator implements Iterator<ISearchable> {
+/**
+ * Iterates over the searchables of a project: its pipelines, workflows, metadata objects and
+ * described variables. The files and metadata object names are listed up front but every
+ * searchable is only loaded when the iteration reaches it. The iterator itself doesn't hold on to
+ * the searchables it handed out, but the ones loaded from files are kept in the {@link
+ * ProjectSearchablesCache}, up to its configured size, until the file changes or the project is
+ * activated again.
+ *
+ * <p>With a parallelism above 1 the searchables are loaded ahead of the consumer into a bounded
+ * queue, on a pool of daemon threads shared by all searches and limited to the number of
+ * processors. The loader threads wait when the queue is full. The searchables are then returned in
+ * the order in which they finished loading. A consumer which stops iterating early has to call
+ * {@link #close()} to release the loader threads. A consumer which doesn't take anything for
+ * {@value #ABANDON_TIMEOUT_MS} ms is considered gone: the loading stops and {@link #hasNext()}
+ * fails rather than silently returning an incomplete result.
+ */
+public class ProjectSearchablesIterator implements Iterator<ISearchable>, AutoCloseable {
+
+  private static final int PREFETCH_PER_THREAD = 4;
+  private static final long OFFER_TIMEOUT_MS = 1000L;
+  private static final long ABANDON_TIMEOUT_MS = 300000L;
+  private static final long KEEP_ALIVE_MS = 60000L;
+
+  private static final Object END_OF_SEARCHABLES = new Object();
+
+  private static final String METADATA_FILE_EXTENSION = ".json";
+
+  private static final class ExecutorHolder {
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private static ThreadPoolExecutor createExecutor() {
+      int threads = Runtime.getRuntime().availableProcessors();
+      AtomicInteger counter = new AtomicInteger();
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(
+              threads,
+              threads,
+              KEEP_ALIVE_MS,
+              TimeUnit.MILLISECONDS,
+              new LinkedBlockingQueue<>(),
+              runnable -> {
+                Thread thread =
+                    new Thread(runnable, "project-search-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+
+  /** Loads one or more searchables when the iteration reaches them */
+  @FunctionalInterface
+  private interface ISearchablesLoader {
+    List<ISearchable> load() throws Exception;
+  }
 
   private ProjectConfig projectConfig;
-  private List<ISearchable> searchables;
-  private Iterator<ISearchable> iterator;
+  private Deque<ISearchablesLoader> loaders;
+  private Iterator<ISearchable> loaded;
+  private ISearchable nextSearchable;
+
+  // Used when loading in parallel
+  //
+  private BlockingQueue<Object> prefetched;
+  private volatile boolean closed;
+  private volatile boolean abandoned;
+  private volatile long lastTakeTime;
+  private boolean finished;
 
   public ProjectSearchablesIterator(
       IHopMetadataProvider metadataProvider, IVariables variables, ProjectConfig projectConfig)
       throws HopException {
+    this(metadataProvider, variables, projectConfig, 0, null);
+  }
+
+  /**
+   * @param metadataProvider The metadata to search
+   * @param variables The variables to load the pipelines and workflows with
+   * @param projectConfig The project to search
+   * @param parallelism The number of threads to load the searchables with ahead of the consumer, 0
+   *     or 1 to load them one by one in the thread calling {@link #hasNext()}
+   * @param candidateFiles The absolute filenames of the pipelines, workflows and metadata files
+   *     to load, see {@link ProjectSearchIndex}. Use null to load everything.
+   * @throws HopException In case the searchables of the project can't be listed
+   */
+  public ProjectSearchablesIterator(
+      IHopMetadataProvider metadataProvider,
+      IVariables variables,
+      ProjectConfig projectConfig,
+      int parallelism,
+      Set<String> candidateFiles)
+      throws HopException {
     this.projectConfig = projectConfig;
-    this.searchables = new ArrayList<>();
+    this.loaders = new ArrayDeque<>();
+    this.loaded = Collections.emptyIterator();
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     try {
       List<String> configurationFiles = new ArrayList<>();
@@ -69,85 +169,335 @@ public class ProjectSearchablesIterator implements Iterator<ISearchable> {
       }
 
       // Find all the pipelines and workflows in the project homefolder...
+      // The searchables loaded from files are cached until the file changes.
       //
+      String projectName = projectConfig.getProjectName();
+      ProjectSearchablesCache cache = ProjectSearchablesCache.getInstance();
       FileObject homeFolderFile = HopVfs.getFileObject(projectConfig.getProjectHome());
       Collection<FileObject> pipelineFiles = HopVfs.findFiles(homeFolderFile, "hpl", true);
       for (FileObject pipelineFile : pipelineFiles) {
-        String pipelineFilePath = pipelineFile.getName().getURI();
-        try {
-          PipelineMeta pipelineMeta =
-              new PipelineMeta(pipelineFilePath, metadataProvider, variables);
-          searchables.add(new HopGuiPipelineSearchable("Project pipeline file", pipelineMeta));
-        } catch (Exception e) {
-          // There was an error loading the XML file...
-          LogChannel.GENERAL.logError("Error loading pipeline metadata: " + pipelineFilePath, e);
+        if (!isCandidate(pipelineFile, candidateFiles)) {
+          continue;
         }
+        String pipelineFilePath = pipelineFile.getName().getURI();
+        loaders.add(
+            () ->
+                cache.getSearchables(
+                    projectName,
+                    pipelineFilePath,
+                    pipelineFile,
+                    () -> {
+                      try {
+                        PipelineMeta pipelineMeta =
+                            new PipelineMeta(pipelineFilePath, metadataProvider, variables);
+                        return List.of(
+                            new HopGuiPipelineSearchable("Project pipeline file", pipelineMeta));
+                      } catch (Exception e) {
+                        // There was an error loading the XML file...
+                        throw new HopException(
+                            "Error loading pipeline metadata: " + pipelineFilePath, e);
+                      }
+                    }));
       }
 
       Collection<FileObject> workflowFiles = HopVfs.findFiles(homeFolderFile, "hwf", true);
       for (FileObject workflowFile : workflowFiles) {
-        String workflowFilePath = workflowFile.getName().getURI();
-        try {
-          WorkflowMeta workflowMeta =
-              new WorkflowMeta(variables, workflowFilePath, metadataProvider);
-          searchables.add(new HopGuiWorkflowSearchable("Project workflow file", workflowMeta));
-        } catch (Exception e) {
-          // There was an error loading the XML file...
-          LogChannel.GENERAL.logError("Error loading workflow metadata: " + workflowFilePath, e);
+        if (!isCandidate(workflowFile, candidateFiles)) {
+          continue;
         }
+        String workflowFilePath = workflowFile.getName().getURI();
+        loaders.add(
+            () ->
+                cache.getSearchables(
+                    projectName,
+                    workflowFilePath,
+                    workflowFile,
+                    () -> {
+                      try {
+                        WorkflowMeta workflowMeta =
+                            new WorkflowMeta(variables, workflowFilePath, metadataProvider);
+                        return List.of(
+                            new HopGuiWorkflowSearchable("Project workflow file", workflowMeta));
+                      } catch (Exception e) {
+                        // There was an error loading the XML file...
+                        throw new HopException(
+                            "Error loading workflow metadata: " + workflowFilePath, e);
+                      }
+                    }));
       }
 
-      // Add the available metadata objects
+      // Add the available metadata objects.
+      // Metadata objects are stored in files named after the object. The search index covers the
+      // metadata folders of the project, linked project included. Objects which can't be traced
+      // back to a single file are always searched.
       //
+      List<String> metadataFolders = getMetadataFolders(variables);
       for (Class<IHopMetadata> metadataClass : metadataProvider.getMetadataClasses()) {
         IHopMetadataSerializer<IHopMetadata> serializer =
             metadataProvider.getSerializer(metadataClass);
+        HopMetadata annotation = metadataClass.getAnnotation(HopMetadata.class);
         for (final String metadataName : serializer.listObjectNames()) {
-          IHopMetadata hopMetadata = serializer.load(metadataName);
-          HopGuiMetadataSearchable searchable =
-              new HopGuiMetadataSearchable(
-                  metadataProvider, serializer, hopMetadata, serializer.getManagedClass());
-          searchables.add(searchable);
+          FileObject metadataFile =
+              annotation == null
+                  ? null
+                  : findMetadataFile(metadataFolders, annotation.key(), metadataName);
+          if (metadataFile != null && !isCandidate(metadataFile, candidateFiles)) {
+            continue;
+          }
+          ISearchablesLoader loader =
+              () -> {
+                IHopMetadata hopMetadata = serializer.load(metadataName);
+                return List.of(
+                    new HopGuiMetadataSearchable(
+                        metadataProvider, serializer, hopMetadata, serializer.getManagedClass()));
+              };
+          if (metadataFile == null) {
+            loaders.add(loader);
+          } else {
+            String key = annotation.key() + "/" + metadataName;
+            loaders.add(() -> cache.getSearchables(projectName, key, metadataFile, loader::load));
+          }
         }
       }
 
       // the described variables in HopConfig...
       //
-      List<DescribedVariable> describedVariables = HopConfig.getInstance().getDescribedVariables();
-      for (DescribedVariable describedVariable : describedVariables) {
-        searchables.add(new HopGuiDescribedVariableSearchable(describedVariable, null));
-      }
+      loaders.add(
+          () -> {
+            List<ISearchable> searchables = new ArrayList<>();
+            for (DescribedVariable describedVariable :
+                HopConfig.getInstance().getDescribedVariables()) {
+              searchables.add(new HopGuiDescribedVariableSearchable(describedVariable, null));
+            }
+            return searchables;
+          });
 
       // Now the described variables in the configuration files...
       //
       for (String configurationFile : configurationFiles) {
         String realConfigurationFile = variables.resolve(configurationFile);
+        if (!HopVfs.fileExists(realConfigurationFile)) {
+          continue;
+        }
+        FileObject configFileObject = HopVfs.getFileObject(realConfigurationFile);
+        loaders.add(
+            () ->
+                cache.getSearchables(
+                    projectName,
+                    realConfigurationFile,
+                    configFileObject,
+                    () -> {
+                      List<ISearchable> searchables = new ArrayList<>();
+                      DescribedVariablesConfigFile configFile =
+                          new DescribedVariablesConfigFile(realConfigurationFile);
+                      configFile.readFromFile();
+                      for (DescribedVariable describedVariable :
+                          configFile.getDescribedVariables()) {
+                        searchables.add(
+                            new HopGuiDescribedVariableSearchable(
+                                describedVariable, configurationFile));
+                      }
+                      return searchables;
+                    }));
+      }
+    } catch (Exception e) {
+      throw new HopException(
+          "Error loading list of project '" + projectConfig.getProjectName() + "' searchables", e);
+    }
+
+    int threads = Math.min(parallelism, ExecutorHolder.EXECUTOR.getMaximumPoolSize());
+    if (threads > 1 && loaders.size() > 1) {
+      startPrefetching(Math.min(threads, loaders.size()));
+    }
+  }
 
-        if (HopVfs.fileExists(realConfigurationFile)) {
-          DescribedVariablesConfigFile configFile =
-              new DescribedVariablesConfigFile(realConfigurationFile);
-          configFile.readFromFile();
-          for (DescribedVariable describedVariable : configFile.getDescribedVariables()) {
-            searchables.add(
-                new HopGuiDescribedVariableSearchable(describedVariable, configurationFile));
+  private static List<String> getMetadataFolders(IVariables variables) {
+    List<String> folders = new ArrayList<>();
+    String metadataFolder = variables.getVariable(Const.HOP_METADATA_FOLDER);
+    if (StringUtils.isNotEmpty(metadataFolder)) {
+      for (String folder : metadataFolder.split(",")) {
+        if (StringUtils.isNotEmpty(folder.trim())) {
+          folders.add(folder.trim());
+        }
+      }
+    }
+    return folders;
+  }
+
+  /**
+   * Find the file a metadata object is stored in. Only a single file is tracked: objects found in
+   * more than one metadata folder aren't cached.
+   */
+  private static FileObject findMetadataFile(
+      List<String> metadataFolders, String metadataKey, String metadataName) {
+    FileObject found = null;
+    for (String folder : metadataFolders) {
+      try {
+        FileObject file =
+            HopVfs.getFileObject(
+                folder + "/" + metadataKey + "/" + metadataName + METADATA_FILE_EXTENSION);
+        if (file.exists()) {
+          if (found != null) {
+            return null;
           }
+          found = file;
         }
+      } catch (Exception e) {
+        // Not a file we can track
+        return null;
       }
+    }
+    return found;
+  }
 
-      iterator = searchables.iterator();
+  private static boolean isCandidate(FileObject file, Set<String> candidateFiles) {
+    if (candidateFiles == null) {
+      return true;
+    }
+    try {
+      return candidateFiles.contains(
+          Paths.get(HopVfs.getFilename(file)).toAbsolutePath().normalize().toString());
     } catch (Exception e) {
-      throw new HopException(
-          "Error loading list of project '" + projectConfig.getProjectName() + "' searchables", e);
+      // Not a local file: the index doesn't know about it, load it to be safe
+      return true;
+    }
+  }
+
+  private void startPrefetching(int parallelism) {
+    Queue<ISearchablesLoader> pending = new ConcurrentLinkedQueue<>(loaders);
+    loaders.clear();
+    prefetched = new ArrayBlockingQueue<>(parallelism * PREFETCH_PER_THREAD);
+    lastTakeTime = System.currentTimeMillis();
+
+    AtomicInteger running = new AtomicInteger(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      ExecutorHolder.EXECUTOR.execute(() -> prefetch(pending, running));
+    }
+  }
+
+  private void prefetch(Queue<ISearchablesLoader> pending, AtomicInteger running) {
+    try {
+      ISearchablesLoader loader;
+      while (!closed && (loader = pending.poll()) != null) {
+        for (ISearchable searchable : load(loader)) {
+          if (!offer(searchable)) {
+            return;
+          }
+        }
+      }
+    } finally {
+      if (running.decrementAndGet() == 0) {
+        offer(END_OF_SEARCHABLES);
+      }
+    }
+  }
+
+  /** Wait for room in the queue as long as the consumer is still around */
+  private boolean offer(Object object) {
+    try {
+      while (!closed) {
+        if (prefetched.offer(object, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+        if (!closed && System.currentTimeMillis() - lastTakeTime > ABANDON_TIMEOUT_MS) {
+          LogChannel.GENERAL.logError(
+              "The searchables of project '"
+                  + projectConfig.getProjectName()
+                  + "' weren't consumed for "
+                  + ABANDON_TIMEOUT_MS
+                  + " ms, they're no longer loaded");
+          abandoned = true;
+          closed = true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      closed = true;
+    }
+    return false;
+  }
+
+  private List<ISearchable> load(ISearchablesLoader loader) {
+    try {
+      return loader.load();
+    } catch (Exception e) {
+      // An iterator can't throw checked exceptions: report and continue with the next one
+      //
+      LogChannel.GENERAL.logError(
+          "Error loading searchables of project '" + projectConfig.getProjectName() + "'", e);
+      return List.of();
     }
   }
 
   @Override
   public boolean hasNext() {
-    return iterator.hasNext();
+    if (prefetched != null) {
+      return hasNextPrefetched();
+    }
+    while (nextSearchable == null) {
+      if (loaded.hasNext()) {
+        nextSearchable = loaded.next();
+      } else if (loaders.isEmpty()) {
+        return false;
+      } else {
+        // Forget the loader: whatever it loaded is only referenced by the caller
+        //
+        loaded = load(loaders.poll()).iterator();
+      }
+    }
+    return true;
+  }
+
+  private boolean hasNextPrefetched() {
+    if (nextSearchable != null) {
+      return true;
+    }
+    if (abandoned) {
+      throw new IllegalStateException(
+          "The search of project '"
+              + projectConfig.getProjectName()
+              + "' was abandoned after "
+              + ABANDON_TIMEOUT_MS
+              + " ms without progress, the results are incomplete");
+    }
+    if (finished || closed) {
+      return false;
+    }
+    try {
+      Object object = prefetched.take();
+      lastTakeTime = System.currentTimeMillis();
+      if (object == END_OF_SEARCHABLES) {
+        finished = true;
+        return false;
+      }
+      nextSearchable = (ISearchable) object;
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      return false;
+    }
   }
 
   @Override
   public ISearchable next() {
-    return iterator.next();
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    ISearchable searchable = nextSearchable;
+    nextSearchable = null;
+    return searchable;
+  }
+
+  /** Stop loading searchables ahead of the consumer */
+  @Override
+  public void close() {
+    closed = true;
+    loaders.clear();
+    loaded = Collections.emptyIterator();
+    nextSearchable = null;
+    if (prefetched != null) {
+      prefetched.clear();
+    }
   }
 }
@@ -18,19 +18,51 @@
 package org.apache.hop.projects.search;
 
 import java.util.Iterator;
+import java.util.Set;
+import org.apache.commons.lang.StringUtils;
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.LogChannel;
 import org.apache.hop.core.search.ISearchable;
 import org.apache.hop.core.search.ISearchablesLocation;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.metadata.api.IHopMetadataProvider;
+import org.apache.hop.projects.config.ProjectsConfig;
+import org.apache.hop.projects.config.ProjectsConfigSingleton;
 import org.apache.hop.projects.project.ProjectConfig;
 
 public class ProjectsSearchablesLocation implements ISearchablesLocation {
 
   private ProjectConfig projectConfig;
+  private String indexQuery;
 
   public ProjectsSearchablesLocation(ProjectConfig projectConfig) {
+    this(projectConfig, null);
+  }
+
+  /**
+   * @param projectConfig The project to search in
+   * @param indexQuery Only load the files matching this query in the project search index, see
+   *     {@link ProjectSearchIndex#find(String)}. Everything is loaded when it's empty.
+   */
+  public ProjectsSearchablesLocation(ProjectConfig projectConfig, String indexQuery) {
     this.projectConfig = projectConfig;
+    this.indexQuery = indexQuery;
+  }
+
+  /**
+   * Gets indexQuery
+   *
+   * @return value of indexQuery
+   */
+  public String getIndexQuery() {
+    return indexQuery;
+  }
+
+  /**
+   * @param indexQuery The indexQuery to set
+   */
+  public void setIndexQuery(String indexQuery) {
+    this.indexQuery = indexQuery;
   }
 
   @Override
@@ -41,6 +73,26 @@ public class ProjectsSearchablesLocation implements ISearchablesLocation {
   @Override
   public Iterator<ISearchable> getSearchables(
       IHopMetadataProvider metadataProvider, IVariables variables) throws HopException {
-    return new ProjectSearchablesIterator(metadataProvider, variables, projectConfig);
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    Set<String> candidateFiles = null;
+    if (StringUtils.isNotEmpty(indexQuery)) {
+      try {
+        candidateFiles =
+            ProjectSearchIndex.open(projectConfig, variables, LogChannel.GENERAL).find(indexQuery);
+      } catch (Exception e) {
+        // Fall back to loading everything
+        LogChannel.GENERAL.logError(
+            "Error using the search index of project '"
+                + projectConfig.getProjectName()
+                + "', searching all files",
+            e);
+      }
+    }
+    return new ProjectSearchablesIterator(
+        metadataProvider,
+        variables,
+        projectConfig,
+        config.getSearchParallelism(),
+        candidateFiles);
   }
 }
@@ -37,8 +37,11 @@ import org.apache.hop.metadata.util.HopMetadataInstance;
 import org.apache.hop.metadata.util.HopMetadataUtil;
 import org.apache.hop.projects.config.ProjectsConfig;
 import org.apache.hop.projects.config.ProjectsConfigSingleton;
+import org.apache.hop.projects.project.LinkedProjectsIndex;
 import org.apache.hop.projects.project.Project;
 import org.apache.hop.projects.project.ProjectConfig;
+import org.apache.hop.projects.project.ProjectFileMonitor;
+import org.apache.hop.projects.search.ProjectSearchablesCache;
 import org.apache.hop.ui.core.gui.HopNamespace;
 import org.apache.hop.ui.hopgui.HopGui;
 
@@ -74,7 +77,7 @@ public class ProjectsUtil {
       IHasHopMetadataProvider hasHopMetadataProvider)
       throws HopException {
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     if (projectConfig == null) {
@@ -96,6 +99,10 @@ public class ProjectsUtil {
       project.setMetadataProvider(metadataProvider);
     }
 
+    // Cached searchables were loaded with the variables and metadata of the previous activation
+    //
+    ProjectSearchablesCache.getInstance().invalidateProject(projectName);
+
     // We store the project in the namespace singleton (used mainly in the GUI)
     //
     HopNamespace.setNamespace(projectName);
@@ -107,6 +114,10 @@ public class ProjectsUtil {
     if (Const.getHopPlatformRuntime() != null && Const.getHopPlatformRuntime().equals("GUI")) {
       AuditManager.registerEvent(
           HopGui.DEFAULT_HOP_GUI_NAMESPACE, STRING_PROJECT_AUDIT_TYPE, projectName, "open");
+
+      // Only a long-running GUI benefits from watching the project files for changes
+      //
+      startProjectFileMonitor(projectName, variables, configurationFiles);
     }
 
     // Signal others that we have a new active project
@@ -115,6 +126,43 @@ public class ProjectsUtil {
         log, variables, Defaults.EXTENSION_POINT_PROJECT_ACTIVATED, projectName);
   }
 
+  /**
+   * Watch the home folder of the given project, and of its linked project, for changes. This stops
+   * watching the previously enabled project.
+   *
+   * @param projectName The name of the enabled project
+   * @param variables The variables of the enabled project
+   * @param configurationFiles The configuration files of the enabled environment
+   */
+  public static void startProjectFileMonitor(
+      String projectName, IVariables variables, List<String> configurationFiles) {
+    List<String> folders = new ArrayList<>();
+    for (String variableName :
+        new String[] {VARIABLE_PROJECT_HOME, VARIABLE_LINKED_PROJECT_HOME}) {
+      String folder = variables.getVariable(variableName);
+      if (StringUtils.isNotEmpty(folder) && !folders.contains(folder)) {
+        folders.add(folder);
+      }
+    }
+    List<String> metadataFolders = new ArrayList<>();
+    String metadataFolder = variables.getVariable(Const.HOP_METADATA_FOLDER);
+    if (StringUtils.isNotEmpty(metadataFolder)) {
+      for (String folder : metadataFolder.split(",")) {
+        if (StringUtils.isNotEmpty(folder.trim())) {
+          metadataFolders.add(folder.trim());
+        }
+      }
+    }
+    List<String> realConfigurationFiles = new ArrayList<>();
+    if (configurationFiles != null) {
+      for (String configurationFile : configurationFiles) {
+        realConfigurationFiles.add(variables.resolve(configurationFile));
+      }
+    }
+    ProjectFileMonitor.getInstance()
+        .start(projectName, folders, metadataFolders, realConfigurationFiles);
+  }
+
   public static void validateFileInProject(
       ILogChannel log, String filename, ProjectConfig projectConfig, IVariables variables)
       throws HopException, FileSystemException {
@@ -182,7 +230,7 @@ public class ProjectsUtil {
       return;
     }
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     log.logBasic("Validating active project '" + activeProjectName + "'");
     ProjectConfig projectConfig = config.findProjectConfig(activeProjectName);
@@ -207,7 +255,7 @@ public class ProjectsUtil {
 
     boolean prjFound = false;
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     List<String> prjs = config.listProjectConfigNames();
     Iterator<String> iPrj = prjs.iterator();
 
@@ -221,61 +269,49 @@ public class ProjectsUtil {
 
   public static List<String> getLinkedProjectReferences(String projectName) throws HopException {
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
-    List<String> prjs = config.listProjectConfigNames();
-
-    HopGui hopGui = HopGui.getInstance();
-    List<String> linkedProjectReferences = new ArrayList<>();
-    ProjectConfig currentProjectConfig = config.findProjectConfig(projectName);
-
-    if (currentProjectConfig == null) {
-      linkedProjectReferences = Collections.EMPTY_LIST;
-    } else {
-      for (String prj : prjs) {
-        if (!prj.equals(projectName)) {
-          ProjectConfig prjCfg = config.findProjectConfig(prj);
-          Project thePrj = prjCfg.loadProject(hopGui.getVariables());
-          if (thePrj != null) {
-            if (thePrj.getLinkedProjectName() != null
-                && thePrj.getLinkedProjectName().equals(projectName)) {
-              linkedProjectReferences.add(prj);
-            }
-          } else {
-            hopGui.getLog().logError("Unable to load project '" + prj + "' from its configuration");
-          }
-        }
-      }
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    if (config.findProjectConfig(projectName) == null) {
+      return Collections.emptyList();
     }
-    return linkedProjectReferences;
+    return LinkedProjectsIndex.getInstance()
+        .getReferences(projectName, HopGui.getInstance().getVariables());
   }
 
+  /**
+   * Change the linked project name of all the projects referencing the given project. All the
+   * referencing projects are loaded first and only then written back to their configuration files.
+   *
+   * @param currentName The current name of the linked project
+   * @param newName The new name of the linked project
+   * @return The names of the projects which were changed
+   * @throws HopException In case a referencing project can't be loaded or saved
+   */
   public static List<String> changeLinkedProjectReferences(String currentName, String newName)
       throws HopException {
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
-    List<String> prjs = config.listProjectConfigNames();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    if (config.findProjectConfig(currentName) == null) {
+      return Collections.emptyList();
+    }
 
-    HopGui hopGui = HopGui.getInstance();
-    List<String> linkedProjectReferences = new ArrayList<>();
-    ProjectConfig currentProjectConfig = config.findProjectConfig(currentName);
-
-    if (currentProjectConfig == null) {
-      linkedProjectReferences = Collections.EMPTY_LIST;
-    } else {
-      for (String prj : prjs) {
-        if (!prj.equals(currentName)) {
-          ProjectConfig prjCfg = config.findProjectConfig(prj);
-          Project thePrj = prjCfg.loadProject(hopGui.getVariables());
-          if (thePrj != null) {
-            if (thePrj.getLinkedProjectName() != null
-                && thePrj.getLinkedProjectName().equals(currentName)) {
-              thePrj.setLinkedProjectName(newName);
-            }
-          } else {
-            hopGui.getLog().logError("Unable to load project '" + prj + "' from its configuration");
-          }
-        }
+    IVariables variables = HopGui.getInstance().getVariables();
+    List<String> linkedProjectReferences = getLinkedProjectReferences(currentName);
+
+    // Load everything before writing anything
+    //
+    List<Project> projects = new ArrayList<>();
+    for (String prj : linkedProjectReferences) {
+      ProjectConfig prjCfg = config.findProjectConfig(prj);
+      if (prjCfg == null) {
+        throw new HopException("Unable to find project '" + prj + "' in the configuration");
       }
+      Project thePrj = prjCfg.loadProject(variables);
+      thePrj.setLinkedProjectName(newName);
+      projects.add(thePrj);
+    }
+
+    for (Project thePrj : projects) {
+      thePrj.saveToFile();
     }
     return linkedProjectReferences;
   }
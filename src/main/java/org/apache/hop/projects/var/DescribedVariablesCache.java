@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.var;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.config.DescribedVariablesConfigFile;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.variables.DescribedVariable;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * Keeps the described variables of environment configuration files in memory. The same file is
+ * often shared by a lot of environments so we only parse it again when its last modified time or
+ * size changed. The cache is keyed by the normalized URI of the file.
+ */
+public class DescribedVariablesCache {
+
+  private static final DescribedVariablesCache instance = new DescribedVariablesCache();
+
+  private final Map<String, Entry> entries;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  private DescribedVariablesCache() {
+    entries = new ConcurrentHashMap<>();
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+  }
+
+  public static DescribedVariablesCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the described variables stored in the given configuration file.
+   *
+   * @param filename The resolved configuration filename
+   * @return A copy of the described variables or null if the file doesn't exist
+   * @throws HopException In case the file can't be read
+   */
+  public List<DescribedVariable> getDescribedVariables(String filename) throws HopException {
+    try {
+      FileObject file = HopVfs.getFileObject(filename);
+      String key = file.getName().getURI();
+      if (!file.exists()) {
+        entries.remove(key);
+        return null;
+      }
+      FileContent content = file.getContent();
+      long lastModified = content.getLastModifiedTime();
+      long size = content.getSize();
+
+      Entry entry = entries.get(key);
+      if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+        hits.incrementAndGet();
+      } else {
+        misses.incrementAndGet();
+        DescribedVariablesConfigFile configFile = new DescribedVariablesConfigFile(filename);
+        configFile.readFromFile();
+        entry = new Entry(lastModified, size, copy(configFile.getDescribedVariables()));
+        entries.put(key, entry);
+      }
+      return copy(entry.variables);
+    } catch (HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException(
+          "Error reading described variables from configuration file '" + filename + "'", e);
+    }
+  }
+
+  /**
+   * Forget about the cached version of the given configuration file. Call this after writing to
+   * the file.
+   *
+   * @param filename The resolved configuration filename
+   */
+  public void invalidate(String filename) {
+    if (StringUtils.isEmpty(filename)) {
+      return;
+    }
+    try {
+      entries.remove(HopVfs.getFileObject(filename).getName().getURI());
+    } catch (Exception e) {
+      // The name can't be resolved so it can't be cached either.
+      entries.remove(filename);
+    }
+  }
+
+  /** Forget about all cached configuration files */
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  private static List<DescribedVariable> copy(List<DescribedVariable> variables) {
+    List<DescribedVariable> list = new ArrayList<>(variables.size());
+    for (DescribedVariable variable : variables) {
+      list.add(
+          new DescribedVariable(
+              variable.getName(), variable.getValue(), variable.getDescription()));
+    }
+    return list;
+  }
+
+  /**
+   * Gets the number of reads served from memory
+   *
+   * @return value of hits
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of reads which needed to parse the configuration file
+   *
+   * @return value of misses
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private static final class Entry {
+    private final long lastModified;
+    private final long size;
+    private final List<DescribedVariable> variables;
+
+    private Entry(long lastModified, long size, List<DescribedVariable> variables) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.variables = variables;
+    }
+  }
+}
@@ -118,6 +118,7 @@ public class ManageConfigFileOptionPlugin implements IConfigOptions {
 
       if (changed) {
         variablesConfigFile.saveToFile();
+        DescribedVariablesCache.getInstance().invalidate(realConfigFile);
         log.logBasic("Configuration file '" + configFile + "' was modified.");
       }
 
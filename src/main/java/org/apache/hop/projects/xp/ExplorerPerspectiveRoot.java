@@ -47,7 +47,7 @@ public class ExplorerPerspectiveRoot
     if (StringUtil.isEmpty(projectName)) {
       return;
     }
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     if (projectConfig == null) {
       return;
@@ -54,7 +54,7 @@ public class HopGuiDirectoryOpenSetDefaultFolder
       return;
     }
     try {
-      ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+      ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
       ProjectConfig projectConfig = config.findProjectConfig(projectName);
       if (projectConfig == null) {
         return;
@@ -49,7 +49,7 @@ public class HopGuiFileDefaultFolder implements IExtensionPoint<HopGuiFileDialog
       return;
     }
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     // return if no projectConfig is found
     if (projectConfig == null) {
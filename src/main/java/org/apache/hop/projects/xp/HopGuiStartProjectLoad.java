@@ -50,11 +50,11 @@ public class HopGuiStartProjectLoad implements IExtensionPoint {
     HopGui hopGui = HopGui.getInstance();
 
     try {
-      ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+      ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
       // Only move forward if the "projects" system is enabled.
       //
-      if (ProjectsConfigSingleton.getConfig().isEnabled()) {
+      if (ProjectsConfigSingleton.getSnapshot().isEnabled()) {
         logChannelInterface.logBasic("Projects enabled");
 
         // What is the last used project?
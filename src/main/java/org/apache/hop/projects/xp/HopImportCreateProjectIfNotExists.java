@@ -18,7 +18,6 @@
 package org.apache.hop.projects.xp;
 
 import java.util.Collections;
-import org.apache.hop.core.config.HopConfig;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.extension.ExtensionPoint;
 import org.apache.hop.core.extension.IExtensionPoint;
@@ -58,7 +57,7 @@ public class HopImportCreateProjectIfNotExists implements IExtensionPoint<String
       project.setConfigFilename(
           projectPath + System.getProperty("file.separator") + "project-config.json");
       config.addProjectConfig(projectConfig);
-      HopConfig.getInstance().saveToFile();
+      ProjectsConfigSingleton.saveConfig();
       project.saveToFile();
     }
   }
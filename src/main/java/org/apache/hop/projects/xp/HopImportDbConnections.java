@@ -58,7 +58,7 @@ public class HopImportDbConnections implements IExtensionPoint<Object[]> {
     HopGui hopGui = HopGui.getInstance();
     ILogChannel log = hopGui.getLog();
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     Project project = projectConfig.loadProject(hopGui.getVariables());
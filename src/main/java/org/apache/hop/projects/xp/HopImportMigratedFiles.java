@@ -17,22 +17,36 @@
 
 package org.apache.hop.projects.xp;
 
-import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collections;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import org.apache.commons.vfs2.FileFilterSelector;
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
-import org.apache.commons.vfs2.filter.NameFileFilter;
+import org.apache.commons.vfs2.Selectors;
 import org.apache.hop.core.IProgressMonitor;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.extension.ExtensionPoint;
@@ -47,21 +61,45 @@ import org.apache.hop.projects.project.ProjectConfig;
 import org.apache.hop.ui.core.dialog.ProgressMonitorDialog;
 import org.apache.hop.ui.hopgui.HopGui;
 
+/**
+ * Writes the files migrated by hop-import into the project. The migration object holds:
+ *
+ * <ol>
+ *   <li>The name of the project
+ *   <li>The files, by source filename. The converted XML document of a Kettle file, or null for a
+ *       file to copy as it is. Either a {@code Map<String, DOMSource>} with all the files, or an
+ *       {@code Iterator}, {@code Iterable} or {@code Stream} of {@code Map.Entry<String,
+ *       DOMSource>}. The latter are consumed one file at a time, so a producer converting the
+ *       Kettle files as they are requested keeps only the files being written in memory.
+ *   <li>The folder the Kettle files are imported from
+ *   <li>Whether existing files in the project are skipped
+ *   <li>Optionally the number of files, to report progress of a streamed import
+ * </ol>
+ *
+ * <p>Progress is kept in a {@link KettleImportJournal}, an interrupted import continues where it
+ * stopped.
+ */
 @ExtensionPoint(
     id = "HopImportMigratedFiles",
     description = "Imports variables into a Hop project",
     extensionPointId = "HopImportMigratedFiles")
 public class HopImportMigratedFiles implements IExtensionPoint<Object[]> {
 
+  private static final int FILES_PER_THREAD = 4;
+  private static final long POLL_INTERVAL_MS = 200L;
+  private static final long PROGRESS_INTERVAL_MS = 250L;
+  private static final long TERMINATION_TIMEOUT_SECONDS = 60L;
+
   @Override
   public void callExtensionPoint(
       ILogChannel iLogChannel, IVariables variables, Object[] migrationObject) throws HopException {
     String projectName = (String) migrationObject[0];
-    HashMap<String, DOMSource> filesMap = (HashMap<String, DOMSource>) migrationObject[1];
+    Iterator<Map.Entry<String, DOMSource>> files = getFiles(migrationObject[1]);
     FileObject inputFolder = (FileObject) migrationObject[2];
     boolean skipExitingFiles = (boolean) migrationObject[3];
+    int fileCount = getFileCount(migrationObject);
 
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     ProjectConfig projectConfig = config.findProjectConfig(projectName);
     String projectHome = HopVfs.getFileObject(projectConfig.getProjectHome()).getName().getURI();
@@ -73,8 +111,8 @@ public class HopImportMigratedFiles implements IExtensionPoint<Object[]> {
           true,
           monitor -> {
             try {
-              monitor.beginTask("Importing Kettle files...", filesMap.size());
-              importFiles(filesMap, inputFolder, projectHome, skipExitingFiles, monitor);
+              monitor.beginTask("Importing Kettle files...", fileCount);
+              importFiles(files, inputFolder, projectHome, skipExitingFiles, monitor, iLogChannel);
               monitor.done();
             } catch (InterruptedException e) {
               throw e;
@@ -88,71 +126,287 @@ public class HopImportMigratedFiles implements IExtensionPoint<Object[]> {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private static Iterator<Map.Entry<String, DOMSource>> getFiles(Object files)
+      throws HopException {
+    if (files instanceof Map) {
+      return ((Map<String, DOMSource>) files).entrySet().iterator();
+    }
+    if (files instanceof Iterator) {
+      return (Iterator<Map.Entry<String, DOMSource>>) files;
+    }
+    if (files instanceof Iterable) {
+      return ((Iterable<Map.Entry<String, DOMSource>>) files).iterator();
+    }
+    if (files instanceof Stream) {
+      return ((Stream<Map.Entry<String, DOMSource>>) files).iterator();
+    }
+    throw new HopException(
+        "Unsupported migrated files: " + (files == null ? "null" : files.getClass().getName()));
+  }
+
+  /** The number of files if it's known up front, 0 if it isn't */
+  private static int getFileCount(Object[] migrationObject) {
+    if (migrationObject[1] instanceof Map) {
+      return ((Map<?, ?>) migrationObject[1]).size();
+    }
+    if (migrationObject.length > 4 && migrationObject[4] instanceof Integer) {
+      return (Integer) migrationObject[4];
+    }
+    return 0;
+  }
+
   private void importFiles(
-      HashMap<String, DOMSource> filesMap,
+      Iterator<Map.Entry<String, DOMSource>> files,
       FileObject inputFolder,
       String projectHome,
       boolean skipExitingFiles,
-      IProgressMonitor monitor)
-      throws TransformerConfigurationException,
-          HopException,
-          FileSystemException,
-          InterruptedException {
-    TransformerFactory transformerFactory = XmlHandler.createSecureTransformerFactory();
-    Transformer transformer = transformerFactory.newTransformer();
-    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-
-    int processed = 0;
-    Iterator<String> filesIterator = filesMap.keySet().iterator();
-    while (filesIterator.hasNext() && !monitor.isCanceled()) {
+      IProgressMonitor monitor,
+      ILogChannel log)
+      throws HopException, FileSystemException, InterruptedException {
+    int threads = getParallelism();
+    String inputFolderUri = inputFolder.getName().getURI();
+    FileObject projectHomeFolder = HopVfs.getFileObject(projectHome);
+    KettleImportJournal journal = KettleImportJournal.open(projectHome, inputFolderUri, log);
 
-      String filename = filesIterator.next();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    ImportProgress progress = new ImportProgress(monitor, journal);
+    ThreadLocal<Transformer> transformers = new ThreadLocal<>();
+    Set<FileName> targetFolders = new HashSet<>();
+    Deque<Future<Void>> inFlight = new ArrayDeque<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ImportThreadFactory());
+    boolean completed = false;
+    try {
+      while (files.hasNext() || !inFlight.isEmpty()) {
+        // Take the next files only when there's room: the documents in flight are all in memory
+        //
+        while (files.hasNext()
+            && inFlight.size() < threads * FILES_PER_THREAD
+            && !monitor.isCanceled()) {
+          Map.Entry<String, DOMSource> entry = files.next();
+          String filename = entry.getKey();
+          if (journal.isImported(filename)) {
+            progress.processed.incrementAndGet();
+            continue;
+          }
+          FileObject sourceFile = HopVfs.getFileObject(filename);
+          FileObject targetFile = getTargetFile(inputFolder, projectHomeFolder, sourceFile);
 
-      FileObject sourceFile = HopVfs.getFileObject(filename);
-      if (sourceFile.isFolder()) {
-        monitor.worked(++processed);
-        continue;
+          // Every target folder is created once, here, so the import threads don't race for it
+          //
+          FileObject targetFolder = targetFile.getParent();
+          if (targetFolders.add(targetFolder.getName()) && !targetFolder.exists()) {
+            targetFolder.createFolder();
+          }
+          ImportFile importFile = new ImportFile(sourceFile, targetFile, entry.getValue());
+          inFlight.add(
+              executor.submit(
+                  () -> {
+                    if (!cancelled.get()) {
+                      importFile(importFile, skipExitingFiles, transformers, progress);
+                      journal.imported(filename);
+                    }
+                    progress.processed.incrementAndGet();
+                    return null;
+                  }));
+        }
+        if (monitor.isCanceled()
+            || (!inFlight.isEmpty() && !await(inFlight.peekFirst(), progress))) {
+          log.logBasic(
+              "Kettle import cancelled after "
+                  + progress.processed.get()
+                  + " files, import again to continue where it stopped");
+          return;
+        }
+        inFlight.pollFirst();
       }
+      progress.report(true);
+      completed = true;
+    } finally {
+      cancelled.set(!completed);
+      executor.shutdown();
+      // Let the files being written finish, the remaining ones are skipped when cancelled
+      //
+      executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      journal.close(completed);
+    }
+  }
 
-      String targetFilename = filename.replaceAll(inputFolder.getName().getURI(), projectHome);
-      monitor.subTask("Importing file to: " + targetFilename);
+  /**
+   * Get the file in the project home at the same place as the source file in the input folder
+   *
+   * @param inputFolder The folder the Kettle files are imported from
+   * @param projectHome The home folder of the project to import into
+   * @param sourceFile The imported file
+   * @return The target file
+   * @throws HopException In case the source file isn't in the input folder
+   */
+  private static FileObject getTargetFile(
+      FileObject inputFolder, FileObject projectHome, FileObject sourceFile) throws HopException {
+    try {
+      FileName inputFolderName = inputFolder.getName();
+      if (!inputFolderName.isDescendent(sourceFile.getName())) {
+        throw new HopException(
+            "File " + sourceFile + " is not in the import folder " + inputFolderName.getURI());
+      }
+      return projectHome.resolveFile(inputFolderName.getRelativeName(sourceFile.getName()));
+    } catch (FileSystemException e) {
+      throw new HopException("Error resolving the target file of " + sourceFile, e);
+    }
+  }
 
-      FileObject targetFile = HopVfs.getFileObject(targetFilename);
-      if (skipExitingFiles && targetFile.exists()) {
-        monitor.worked(++processed);
-        continue;
+  /**
+   * Wait for an import task, reporting progress meanwhile
+   *
+   * @return false if the import is cancelled
+   */
+  private static boolean await(Future<Void> future, ImportProgress progress)
+      throws HopException {
+    while (true) {
+      if (progress.monitor.isCanceled()) {
+        return false;
       }
+      progress.report(false);
+      try {
+        future.get(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return true;
+      } catch (TimeoutException e) {
+        // Report progress and check for cancellation again
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof HopException) {
+          throw (HopException) e.getCause();
+        }
+        throw new HopException("Error importing Kettle files", e.getCause());
+      }
+    }
+  }
 
-      // Make sure the parent folder(s) exist...
-      //
-      if (!targetFile.getParent().exists()) {
-        targetFile.getParent().createFolder();
+  private static void importFile(
+      ImportFile importFile,
+      boolean skipExitingFiles,
+      ThreadLocal<Transformer> transformers,
+      ImportProgress progress)
+      throws HopException {
+    try {
+      FileObject sourceFile = importFile.sourceFile;
+      if (sourceFile.isFolder()) {
+        return;
       }
+      FileObject targetFile = importFile.targetFile;
+      if (skipExitingFiles && targetFile.exists()) {
+        return;
+      }
+      progress.lastTargetFilename = targetFile.getName().getURI();
 
-      DOMSource domSource = filesMap.get(filename);
-      if (domSource == null) {
-        // copy any non-Hop files as is
+      if (importFile.domSource == null) {
+        // Copy any non-Hop files as is, straight from file to file
         //
-        try {
-          NameFileFilter filter =
-              new NameFileFilter(Collections.singletonList(sourceFile.getName().getBaseName()));
-          targetFile.getParent().copyFrom(sourceFile.getParent(), new FileFilterSelector(filter));
-          monitor.worked(++processed);
-        } catch (IOException e) {
-          throw new HopException("Error copying file '" + filename, e);
+        if (isLocal(sourceFile) && isLocal(targetFile)) {
+          Files.copy(
+              sourceFile.getPath(),
+              targetFile.getPath(),
+              StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.COPY_ATTRIBUTES);
+        } else {
+          targetFile.copyFrom(sourceFile, Selectors.SELECT_SELF);
         }
       } else {
-        // Convert Kettle XML metadata to Hop
+        // Convert Kettle XML metadata to Hop, every thread has its own transformer
         //
-        StreamResult streamResult = new StreamResult(HopVfs.getOutputStream(targetFilename, false));
-        try {
-          transformer.transform(domSource, streamResult);
-        } catch (TransformerException e) {
-          throw new HopException("Error importing file " + filename, e);
-        } finally {
-          monitor.worked(++processed);
+        Transformer transformer = transformers.get();
+        if (transformer == null) {
+          transformer = newTransformer();
+          transformers.set(transformer);
+        }
+        try (OutputStream outputStream = HopVfs.getOutputStream(targetFile, false)) {
+          transformer.transform(importFile.domSource, new StreamResult(outputStream));
         }
       }
+    } catch (HopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new HopException("Error importing file " + importFile.sourceFile, e);
+    }
+  }
+
+  private static boolean isLocal(FileObject file) {
+    return "file".equals(file.getName().getScheme());
+  }
+
+  private static Transformer newTransformer() throws TransformerConfigurationException {
+    TransformerFactory transformerFactory = XmlHandler.createSecureTransformerFactory();
+    Transformer transformer = transformerFactory.newTransformer();
+    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+    return transformer;
+  }
+
+  /**
+   * The number of import threads configured in the projects configuration or the number of
+   * available processors
+   */
+  private static int getParallelism() {
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
+    if (config != null && config.getImportParallelism() > 0) {
+      return config.getImportParallelism();
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /** A file to convert or copy into the project */
+  private static final class ImportFile {
+    private final FileObject sourceFile;
+    private final FileObject targetFile;
+    private final DOMSource domSource;
+
+    private ImportFile(FileObject sourceFile, FileObject targetFile, DOMSource domSource) {
+      this.sourceFile = sourceFile;
+      this.targetFile = targetFile;
+      this.domSource = domSource;
+    }
+  }
+
+  /**
+   * The progress of all the import threads together, reported by the thread which owns the monitor
+   */
+  private static final class ImportProgress {
+    private final IProgressMonitor monitor;
+    private final KettleImportJournal journal;
+    private final AtomicInteger processed;
+    private volatile String lastTargetFilename;
+    private long lastProgressTime;
+
+    private ImportProgress(IProgressMonitor monitor, KettleImportJournal journal) {
+      this.monitor = monitor;
+      this.journal = journal;
+      this.processed = new AtomicInteger();
+    }
+
+    private void report(boolean force) {
+      long now = System.currentTimeMillis();
+      if (!force && now - lastProgressTime < PROGRESS_INTERVAL_MS) {
+        return;
+      }
+      lastProgressTime = now;
+      String targetFilename = lastTargetFilename;
+      if (targetFilename != null) {
+        monitor.subTask("Importing file " + processed.get() + " to: " + targetFilename);
+      }
+      monitor.worked(processed.get());
+      journal.flush();
+    }
+  }
+
+  private static final class ImportThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "kettle-import-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
     }
   }
 }
@@ -25,6 +25,7 @@ import org.apache.hop.core.logging.ILogChannel;
 import org.apache.hop.core.variables.DescribedVariable;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.core.vfs.HopVfs;
+import org.apache.hop.projects.var.DescribedVariablesCache;
 
 @ExtensionPoint(
     id = "HopImportVariables",
@@ -60,6 +61,7 @@ public class HopImportVariables implements IExtensionPoint<Object[]> {
       // Save the file...
       //
       configFile.saveToFile();
+      DescribedVariablesCache.getInstance().invalidate(configFilename);
     } catch (Exception e) {
       throw new HopException(
           "Error importing variables to environment config file '" + configFilename, e);
@@ -46,7 +46,7 @@ public class HopRestServicesStartupProjectsConfig
 
     Properties properties = provider.getProperties();
     IHasHopMetadataProvider hasHopMetadataProvider = provider.getHasHopMetadataProvider();
-    ProjectsConfig config = ProjectsConfigSingleton.getConfig();
+    ProjectsConfig config = ProjectsConfigSingleton.getSnapshot();
 
     String environmentName = (String) properties.get(OPTION_ENVIRONMENT_NAME);
     if (StringUtils.isEmpty(environmentName)) {
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.xp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.vfs.HopVfs;
+
+/**
+ * The checkpoint journal of a Kettle import, kept in the target project home as {@value
+ * #JOURNAL_FILENAME}. Every imported file is appended to it. When an import is cancelled or fails,
+ * the next import of the same input folder skips the files in the journal and continues where the
+ * previous one stopped. The journal is removed once an import completes.
+ */
+public class KettleImportJournal {
+
+  public static final String JOURNAL_FILENAME = ".hop/kettle-import.journal";
+
+  private static final String INPUT_FOLDER_HEADER = "# input folder: ";
+
+  private final String journalFilename;
+  private final Set<String> importedFiles;
+  private final ILogChannel log;
+  private Writer writer;
+
+  private KettleImportJournal(String journalFilename, ILogChannel log) {
+    this.journalFilename = journalFilename;
+    this.importedFiles = new HashSet<>();
+    this.log = log;
+  }
+
+  /**
+   * Open the journal of the project, reading the files imported by an unfinished earlier import of
+   * the same input folder. A journal which can't be written only logs an error: the import itself
+   * doesn't depend on it.
+   *
+   * @param projectHome The home folder of the project the files are imported into
+   * @param inputFolderUri The folder the Kettle files are imported from
+   * @param log The log channel to report to
+   * @return The journal
+   */
+  public static KettleImportJournal open(
+      String projectHome, String inputFolderUri, ILogChannel log) {
+    KettleImportJournal journal =
+        new KettleImportJournal(projectHome + "/" + JOURNAL_FILENAME, log);
+    String header = INPUT_FOLDER_HEADER + inputFolderUri;
+    try {
+      FileObject journalFile = HopVfs.getFileObject(journal.journalFilename);
+      if (journalFile.exists()) {
+        try (BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(
+                    HopVfs.getInputStream(journalFile), StandardCharsets.UTF_8))) {
+          // A journal of another input folder is of no use, that import starts over
+          //
+          if (header.equals(reader.readLine())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+              if (!line.isEmpty()) {
+                journal.importedFiles.add(line);
+              }
+            }
+          }
+        }
+      }
+      boolean resume = !journal.importedFiles.isEmpty();
+      if (resume) {
+        log.logBasic(
+            "Resuming the Kettle import, skipping "
+                + journal.importedFiles.size()
+                + " files imported earlier");
+      }
+      journalFile.getParent().createFolder();
+      journal.writer =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  HopVfs.getOutputStream(journalFile, resume), StandardCharsets.UTF_8));
+      if (!resume) {
+        journal.writer.write(header);
+        journal.writer.write('\n');
+      }
+    } catch (Exception e) {
+      log.logError(
+          "Unable to open Kettle import journal "
+              + journal.journalFilename
+              + ", the import can't be resumed",
+          e);
+      journal.writer = null;
+    }
+    return journal;
+  }
+
+  /**
+   * Gets whether the file was imported by an earlier, unfinished import
+   *
+   * @param filename The name of the Kettle file
+   * @return true if the file can be skipped
+   */
+  public boolean isImported(String filename) {
+    return importedFiles.contains(filename);
+  }
+
+  /**
+   * Record that a file is imported
+   *
+   * @param filename The name of the Kettle file
+   */
+  public synchronized void imported(String filename) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.write(filename);
+      writer.write('\n');
+    } catch (IOException e) {
+      log.logError("Error writing Kettle import journal " + journalFilename, e);
+      closeWriter();
+    }
+  }
+
+  /** Write the recorded files to the journal file */
+  public synchronized void flush() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      log.logError("Error writing Kettle import journal " + journalFilename, e);
+      closeWriter();
+    }
+  }
+
+  /**
+   * Close the journal
+   *
+   * @param completed true if all the files are imported: the journal is removed
+   */
+  public synchronized void close(boolean completed) {
+    closeWriter();
+    if (completed) {
+      try {
+        HopVfs.getFileObject(journalFilename).delete();
+      } catch (Exception e) {
+        log.logError("Unable to remove Kettle import journal " + journalFilename, e);
+      }
+    }
+  }
+
+  private void closeWriter() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      // Whatever was written is in the journal
+    }
+    writer = null;
+  }
+
+  /**
+   * Gets the number of files imported by an earlier, unfinished import
+   *
+   * @return The number of files to skip
+   */
+  public int getImportedCount() {
+    return importedFiles.size();
+  }
+}
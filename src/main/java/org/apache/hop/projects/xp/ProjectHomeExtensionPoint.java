@@ -35,7 +35,7 @@ public class ProjectHomeExtensionPoint implements IExtensionPoint<Object[]> {
       throws HopException {
     String projectName = variables.resolve((String) objects[0]);
     ProjectConfig projectConfig =
-        ProjectsConfigSingleton.getConfig().findProjectConfig(projectName);
+        ProjectsConfigSingleton.getSnapshot().findProjectConfig(projectName);
     if (projectConfig == null) {
       throw new HopException("Unable to find the project configuration for '" + projectName + "'");
     }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.hop.core.logging.HopLogStore;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.LogChannel;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Times loading the projects configuration at startup, for registries of 10, 1,000 and 10,000
+ * projects. A JVM running hop-run or hop-conf converts its configuration once, so every size is
+ * converted a single time on each path, without warming up. Only the classes involved are loaded up
+ * front so that the first measurement doesn't pay for that. This is off by default, run it with
+ * -Dhop.projects.benchmark=true.
+ */
+@EnabledIfSystemProperty(named = "hop.projects.benchmark", matches = "true")
+class ProjectsConfigLoadBenchmarkTest {
+
+  private static ILogChannel log;
+
+  @BeforeAll
+  static void init() {
+    HopLogStore.init();
+    log = new LogChannel("ProjectsConfigLoadBenchmark");
+  }
+
+  @Test
+  void testStartupConversion() throws Exception {
+    // Load the classes of both paths
+    //
+    Map<?, ?> smallMap = ProjectsConfigSingletonTest.createConfigMap(1);
+    ProjectsConfigSingleton.loadConfig(smallMap);
+    ProjectsConfigSingletonTest.convertRoundTrip(smallMap);
+
+    long loadNanos = 0L;
+    long roundTripNanos = 0L;
+    for (int nrProjects : List.of(10, 1_000, 10_000)) {
+      Map<?, ?> configMap = ProjectsConfigSingletonTest.createConfigMap(nrProjects);
+
+      long start = System.nanoTime();
+      ProjectsConfig loaded = ProjectsConfigSingleton.loadConfig(configMap);
+      loadNanos = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      ProjectsConfigSingletonTest.convertRoundTrip(configMap);
+      roundTripNanos = System.nanoTime() - start;
+
+      assertEquals(nrProjects, loaded.getProjectConfigurations().size());
+      log.logBasic(
+          String.format(
+              "Loading %,d projects: %,d us converting the map, %,d us with the JSON round trip",
+              nrProjects,
+              TimeUnit.NANOSECONDS.toMicros(loadNanos),
+              TimeUnit.NANOSECONDS.toMicros(roundTripNanos)));
+    }
+
+    // With the largest registry the round trip has to be the slower one
+    //
+    assertTrue(
+        loadNanos < roundTripNanos,
+        "Converting the map should be faster than the JSON round trip for 10,000 projects");
+  }
+}
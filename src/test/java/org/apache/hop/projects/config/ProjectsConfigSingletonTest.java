@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.hop.core.json.HopJson;
+import org.apache.hop.projects.environment.LifecycleEnvironment;
+import org.apache.hop.projects.lifecycle.ProjectLifecycle;
+import org.apache.hop.projects.project.ProjectConfig;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Loads the projects entry of the Hop config map the way {@link ProjectsConfigSingleton} does and
+ * compares the result with the former Gson to JSON string to Jackson round trip.
+ */
+class ProjectsConfigSingletonTest {
+
+  @Test
+  void testLoadConfig() throws Exception {
+    Map<?, ?> configMap = createConfigMap(25);
+
+    ProjectsConfig loaded = ProjectsConfigSingleton.loadConfig(configMap);
+    ProjectsConfig roundTrip = convertRoundTrip(configMap);
+
+    assertEquals(25, loaded.getProjectConfigurations().size());
+    assertEquals(25, loaded.getLifecycleEnvironments().size());
+    assertNotNull(loaded.findProjectConfig("project-24"));
+    ObjectMapper mapper = HopJson.newMapper();
+    assertEquals(mapper.writeValueAsString(roundTrip), mapper.writeValueAsString(loaded));
+  }
+
+  @Test
+  void testLoadMissingConfig() {
+    ProjectsConfig loaded = ProjectsConfigSingleton.loadConfig(null);
+    assertTrue(loaded.getProjectConfigurations().isEmpty());
+    assertTrue(loaded.getLifecycleEnvironments().isEmpty());
+  }
+
+  @Test
+  void testLoadConfigObject() {
+    ProjectsConfig config = new ProjectsConfig();
+    assertSame(config, ProjectsConfigSingleton.loadConfig(config));
+  }
+
+  @Test
+  void testSnapshotIsReadOnly() {
+    ProjectsConfig config = new ProjectsConfig();
+    config.addProjectConfig(new ProjectConfig("demo", "/projects/demo", "project-config.json"));
+    config.addEnvironment(
+        new LifecycleEnvironment(
+            "demo-dev", "Development", "demo", new ArrayList<>(List.of("/dev.json"))));
+    config.addLifecycle(new ProjectLifecycle("default", List.of("dev"), List.of("/dev.json")));
+
+    ProjectsConfig snapshot = config.createSnapshot(1L);
+    ProjectConfig projectConfig = snapshot.findProjectConfig("demo");
+    LifecycleEnvironment environment = snapshot.findEnvironment("demo-dev");
+    ProjectLifecycle lifecycle = snapshot.getProjectLifecycles().get(0);
+
+    assertThrows(UnsupportedOperationException.class, () -> projectConfig.setProjectHome("/x"));
+    assertThrows(UnsupportedOperationException.class, () -> environment.setPurpose("Testing"));
+    assertThrows(
+        UnsupportedOperationException.class, () -> environment.getConfigurationFiles().clear());
+    assertThrows(UnsupportedOperationException.class, () -> lifecycle.setName("other"));
+    assertThrows(
+        UnsupportedOperationException.class, () -> lifecycle.getLifecycleEnvironments().clear());
+
+    // The configuration the snapshot was taken from stays writable
+    //
+    config.findProjectConfig("demo").setProjectHome("/projects/other");
+    config.findEnvironment("demo-dev").getConfigurationFiles().add("/other.json");
+    assertEquals("/projects/demo", projectConfig.getProjectHome());
+    assertEquals(List.of("/dev.json"), environment.getConfigurationFiles());
+  }
+
+  /** The way the projects configuration used to be loaded */
+  static ProjectsConfig convertRoundTrip(Map<?, ?> configMap) throws Exception {
+    ObjectMapper mapper = HopJson.newMapper();
+    return mapper.readValue(new Gson().toJson(configMap), ProjectsConfig.class);
+  }
+
+  /**
+   * Build the projects entry the way it sits in the Hop config map after the hop-config.json file
+   * was read: nested maps and lists.
+   */
+  static Map<?, ?> createConfigMap(int nrProjects) throws Exception {
+    ProjectsConfig config = new ProjectsConfig();
+    for (int i = 0; i < nrProjects; i++) {
+      String projectName = "project-" + i;
+      config.addProjectConfig(
+          new ProjectConfig(
+              projectName,
+              "/projects/" + projectName,
+              ProjectsConfig.DEFAULT_PROJECT_CONFIG_FILENAME));
+      config.addEnvironment(
+          new LifecycleEnvironment(
+              projectName + "-dev",
+              "Development",
+              projectName,
+              List.of("/environments/" + projectName + "-dev-config.json")));
+    }
+    ObjectMapper mapper = HopJson.newMapper();
+    return mapper.readValue(mapper.writeValueAsString(config), Map.class);
+  }
+}
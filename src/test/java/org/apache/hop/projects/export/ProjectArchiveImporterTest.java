@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.hop.core.ProgressNullMonitorListener;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.HopLogStore;
+import org.apache.hop.projects.project.ProjectFileHashes;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Imports hand-made archives with {@link ProjectArchiveImporter}: paths which would escape the
+ * target folder are refused, a blob which doesn't match its hash leaves no file behind.
+ */
+class ProjectArchiveImporterTest {
+
+  private static final String PROJECT_NAME = "demo";
+
+  @TempDir Path tempFolder;
+
+  @BeforeAll
+  static void init() {
+    HopLogStore.init();
+  }
+
+  @Test
+  void testValidatePath() {
+    ProjectArchiveImporter importer = new ProjectArchiveImporter("archive.zip");
+    for (String path :
+        List.of("file.hpl", "folder/file.hwf", "a/b/c/.hidden", "name with spaces.txt")) {
+      assertDoesNotThrow(() -> importer.validatePath(path), path);
+    }
+    for (String path :
+        List.of(
+            "",
+            "/etc/passwd",
+            "../outside.txt",
+            "folder/../../outside.txt",
+            "folder/./file.txt",
+            "folder//file.txt",
+            "folder/",
+            "..",
+            "C:/Windows/file.txt",
+            "folder\\..\\file.txt")) {
+      assertThrows(HopException.class, () -> importer.validatePath(path), path);
+    }
+  }
+
+  @Test
+  void testImport() throws Exception {
+    Map<String, byte[]> files = new LinkedHashMap<>();
+    files.put("readme.txt", bytes("Read me"));
+    files.put("pipelines/load.hpl", bytes("<pipeline/>"));
+    Path archive = writeArchive(files, Map.of());
+
+    Path target = tempFolder.resolve("target");
+    int imported =
+        new ProjectArchiveImporter(archive.toString())
+            .importProject(PROJECT_NAME, target.toString(), new ProgressNullMonitorListener());
+
+    assertEquals(2, imported);
+    for (Map.Entry<String, byte[]> file : files.entrySet()) {
+      assertArrayEquals(file.getValue(), Files.readAllBytes(target.resolve(file.getKey())));
+    }
+    assertFalse(hasTempFiles(target));
+  }
+
+  @Test
+  void testCorruptBlob() throws Exception {
+    Path archive =
+        writeArchive(Map.of("readme.txt", bytes("Read me")), Map.of("readme.txt", bytes("Bad")));
+
+    Path target = Files.createDirectory(tempFolder.resolve("target"));
+    Path existing = Files.write(target.resolve("readme.txt"), bytes("The previous content"));
+    ProjectArchiveImporter importer = new ProjectArchiveImporter(archive.toString());
+    assertThrows(
+        HopException.class,
+        () ->
+            importer.importProject(
+                PROJECT_NAME, target.toString(), new ProgressNullMonitorListener()));
+
+    assertArrayEquals(bytes("The previous content"), Files.readAllBytes(existing));
+    assertFalse(hasTempFiles(target));
+  }
+
+  @Test
+  void testPathOutsideTarget() throws Exception {
+    Path archive = writeArchive(Map.of("../outside.txt", bytes("Outside")), Map.of());
+
+    Path target = tempFolder.resolve("target");
+    ProjectArchiveImporter importer = new ProjectArchiveImporter(archive.toString());
+    assertThrows(
+        HopException.class,
+        () ->
+            importer.importProject(
+                PROJECT_NAME, target.toString(), new ProgressNullMonitorListener()));
+
+    assertFalse(Files.exists(tempFolder.resolve("outside.txt")));
+  }
+
+  /**
+   * Write an archive with a single project, the way {@link ProjectArchiveExporter} lays it out
+   *
+   * @param files The content of the files by path
+   * @param corrupt Blob content to store instead of the real content, by path
+   * @return The archive
+   */
+  private Path writeArchive(Map<String, byte[]> files, Map<String, byte[]> corrupt)
+      throws Exception {
+    ProjectArchiveManifest manifest = new ProjectArchiveManifest(PROJECT_NAME, null, "demo");
+    Path archive = tempFolder.resolve("archive.zip");
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(archive))) {
+      for (Map.Entry<String, byte[]> file : files.entrySet()) {
+        String hash = ProjectFileHashes.hash(file.getValue());
+        manifest.addFile(file.getKey(), hash, file.getValue().length);
+        zipOutputStream.putNextEntry(new ZipEntry(ProjectArchiveExporter.getBlobName(hash)));
+        zipOutputStream.write(corrupt.getOrDefault(file.getKey(), file.getValue()));
+        zipOutputStream.closeEntry();
+      }
+      zipOutputStream.putNextEntry(
+          new ZipEntry(ProjectArchiveExporter.getManifestName(PROJECT_NAME)));
+      manifest.write(zipOutputStream);
+      zipOutputStream.closeEntry();
+    }
+    return archive;
+  }
+
+  private static boolean hasTempFiles(Path folder) throws Exception {
+    try (Stream<Path> paths = Files.walk(folder)) {
+      return paths.anyMatch(path -> path.getFileName().toString().endsWith(".tmp"));
+    }
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
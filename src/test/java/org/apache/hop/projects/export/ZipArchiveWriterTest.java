@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hop.projects.export;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.hop.core.ProgressNullMonitorListener;
+import org.apache.hop.core.logging.HopLogStore;
+import org.apache.hop.core.vfs.HopVfs;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes archives with {@link ProjectExporter} and reads them back with {@link ZipFile}: the
+ * entries written by {@link ZipArchiveWriter} have to be readable by the JDK, whether they were
+ * kept in memory, spilled to a file, deflated or stored.
+ */
+class ZipArchiveWriterTest {
+
+  @TempDir Path tempFolder;
+
+  @BeforeAll
+  static void init() {
+    HopLogStore.init();
+  }
+
+  @Test
+  void testRoundTrip() throws Exception {
+    Path home = Files.createDirectory(tempFolder.resolve("project"));
+    Random random = new Random(42L);
+    Map<String, byte[]> contents = new LinkedHashMap<>();
+    contents.put("empty.txt", new byte[0]);
+    contents.put("readme.txt", "A small file".getBytes(StandardCharsets.UTF_8));
+    contents.put("pipelines/load.hpl", repeat("<pipeline/>\n", 50_000));
+    contents.put("pipelines/nested/image.png", randomBytes(random, 100_000));
+    // Random bytes don't compress: this entry is spilled to a temporary file
+    contents.put("data/large.bin", randomBytes(random, ProjectExportEntry.SPILL_THRESHOLD + 12345));
+    contents.put("data/compressible.csv", repeat("1,2,3,4,5\n", 1_000_000));
+    for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+      Path file = home.resolve(entry.getKey());
+      Files.createDirectories(file.getParent());
+      Files.write(file, entry.getValue());
+    }
+
+    Path zipPath = tempFolder.resolve("export.zip");
+    ProjectExporter exporter =
+        new ProjectExporter(HopVfs.getFileObject(home.toString()), zipPath.toString());
+    exporter.setParallelism(4);
+    ProjectExportResult result = exporter.export(new ProgressNullMonitorListener());
+    assertNotNull(result);
+    assertEquals(0L, ProjectExportEntry.getMemoryUsed());
+
+    List<String> expectedNames = new ArrayList<>();
+    for (String folder : List.of("", "pipelines/", "pipelines/nested/", "data/")) {
+      expectedNames.add("project/" + folder);
+    }
+    for (String filename : contents.keySet()) {
+      expectedNames.add("project/" + filename);
+    }
+    expectedNames.add("project/" + ProjectExportManifest.MANIFEST_FILENAME);
+
+    try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+      List<String> names = new ArrayList<>();
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        names.add(entry.getName());
+      }
+      Collections.sort(names);
+      Collections.sort(expectedNames);
+      assertEquals(expectedNames, names);
+
+      for (Map.Entry<String, byte[]> expected : contents.entrySet()) {
+        ZipEntry entry = zipFile.getEntry("project/" + expected.getKey());
+        assertNotNull(entry, expected.getKey());
+        CRC32 crc = new CRC32();
+        crc.update(expected.getValue());
+        assertEquals(crc.getValue(), entry.getCrc(), expected.getKey());
+        assertEquals(expected.getValue().length, entry.getSize(), expected.getKey());
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+          assertArrayEquals(expected.getValue(), inputStream.readAllBytes(), expected.getKey());
+        }
+      }
+      assertEquals(
+          ZipEntry.STORED, zipFile.getEntry("project/pipelines/nested/image.png").getMethod());
+      assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("project/data/large.bin").getMethod());
+    }
+  }
+
+  @Test
+  void testSpilledEntry() throws Exception {
+    byte[] data = randomBytes(new Random(7L), ProjectExportEntry.SPILL_THRESHOLD * 2);
+    ProjectExportEntry entry =
+        ProjectExportEntry.compress(
+            "large.bin", System.currentTimeMillis(), false, 0, out -> out.write(data));
+    Path zipPath = tempFolder.resolve("spilled.zip");
+    try {
+      assertNotNull(entry.getSpillFile());
+      try (ZipArchiveWriter writer =
+          new ZipArchiveWriter(
+              FileChannel.open(zipPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+        writer.write(ProjectExportEntry.folder("folder/", System.currentTimeMillis()));
+        writer.write(entry);
+      }
+    } finally {
+      entry.discard();
+    }
+    assertEquals(0L, ProjectExportEntry.getMemoryUsed());
+
+    try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+      assertNotNull(zipFile.getEntry("folder/"));
+      ZipEntry zipEntry = zipFile.getEntry("large.bin");
+      CRC32 crc = new CRC32();
+      crc.update(data);
+      assertEquals(crc.getValue(), zipEntry.getCrc());
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        assertArrayEquals(data, inputStream.readAllBytes());
+      }
+    }
+  }
+
+  private static byte[] randomBytes(Random random, int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private static byte[] repeat(String line, int count) {
+    return line.repeat(count).getBytes(StandardCharsets.UTF_8);
+  }
+}